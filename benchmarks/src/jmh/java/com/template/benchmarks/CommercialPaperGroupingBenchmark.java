@@ -0,0 +1,55 @@
+package com.template.benchmarks;
+
+import com.template.contracts.CommercialPaper;
+import com.template.contracts.PaperGroupingKey;
+import net.corda.core.transactions.LedgerTransaction;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Before/after comparison of the grouping step in CommercialPaper.verify: grouping by State::withoutOwner (before)
+ * against grouping by the cached PaperGroupingKey (after), plus a full verify of the Move.
+ *
+ * Run with: ./gradlew benchmarks:jmh
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CommercialPaperGroupingBenchmark {
+
+    @Param({"1000", "10000"})
+    public int states;
+
+    private SyntheticTransactions.Parties parties;
+    private final CommercialPaper contract = new CommercialPaper();
+    private LedgerTransaction tx;
+
+    @Setup(Level.Trial)
+    public void parties() {
+        this.parties = new SyntheticTransactions.Parties(1);
+    }
+
+    // Fresh states per invocation, otherwise the cached grouping keys from the previous invocation would be reused.
+    @Setup(Level.Invocation)
+    public void transaction() {
+        this.tx = SyntheticTransactions.commercialPaperMove(this.states, this.parties, CommercialPaper.State::new, CommercialPaper.CP_CONTRACT_ID, new CommercialPaper.Commands.Move());
+    }
+
+    @Benchmark
+    public List<LedgerTransaction.InOutGroup<CommercialPaper.State, CommercialPaper.State>> groupByWithoutOwner() {
+        return this.tx.groupStates(CommercialPaper.State.class, CommercialPaper.State::withoutOwner);
+    }
+
+    @Benchmark
+    public List<LedgerTransaction.InOutGroup<CommercialPaper.State, PaperGroupingKey>> groupByGroupingKey() {
+        return this.tx.groupStates(CommercialPaper.State.class, CommercialPaper.State::groupingKey);
+    }
+
+    @Benchmark
+    public LedgerTransaction verifyMove() {
+        this.contract.verify(this.tx);
+        return this.tx;
+    }
+}
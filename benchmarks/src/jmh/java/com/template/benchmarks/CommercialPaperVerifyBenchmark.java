@@ -0,0 +1,72 @@
+package com.template.benchmarks;
+
+import com.template.benchmarks.SyntheticTransactions.PaperCommand;
+import com.template.contracts.CommercialPaper;
+import net.corda.core.contracts.CommandData;
+import net.corda.core.transactions.LedgerTransaction;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput and allocation of CommercialPaper.verify, per command and transaction size.
+ *
+ * Run with: ./gradlew benchmarks:jmh
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CommercialPaperVerifyBenchmark {
+
+    @Param({"ISSUE", "MOVE", "BULK_MOVE", "REDEEM"})
+    public PaperCommand command;
+
+    @Param({"100", "1000", "10000"})
+    public int states;
+
+    @Param({"10"})
+    public int groups;
+
+    @Param({"1", "10"})
+    public int signers;
+
+    @Param({"0"})
+    public int unrelatedCommands;
+
+    private SyntheticTransactions.Parties parties;
+    private final CommercialPaper contract = new CommercialPaper();
+    private LedgerTransaction tx;
+
+    @Setup(Level.Trial)
+    public void parties() {
+        this.parties = new SyntheticTransactions.Parties(this.signers);
+    }
+
+    // Fresh states per invocation, as a node would deserialise them, so cached grouping keys are not carried over.
+    @Setup(Level.Invocation)
+    public void transaction() {
+        this.tx = SyntheticTransactions.paper(CommercialPaper.CP_CONTRACT_ID, CommercialPaper.State::new, this.command, commandData(this.command),
+                this.states, this.groups, this.parties, this.unrelatedCommands);
+    }
+
+    @Benchmark
+    public LedgerTransaction verify() {
+        this.contract.verify(this.tx);
+        return this.tx;
+    }
+
+    private static CommandData commandData(PaperCommand command) {
+        switch (command) {
+            case ISSUE:
+                return new CommercialPaper.Commands.Issue();
+            case MOVE:
+                return new CommercialPaper.Commands.Move();
+            case BULK_MOVE:
+                return new CommercialPaper.Commands.BulkMove();
+            case REDEEM:
+                return new CommercialPaper.Commands.Redeem();
+            default:
+                throw new IllegalArgumentException("unrecognised command " + command);
+        }
+    }
+}
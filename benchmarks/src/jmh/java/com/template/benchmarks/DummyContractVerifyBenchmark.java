@@ -0,0 +1,69 @@
+package com.template.benchmarks;
+
+import com.template.benchmarks.SyntheticTransactions.PaperCommand;
+import com.template.contracts.DummyContract;
+import net.corda.core.contracts.CommandData;
+import net.corda.core.transactions.LedgerTransaction;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput and allocation of DummyContract.verify, per command and transaction size.
+ *
+ * Run with: ./gradlew benchmarks:jmh
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class DummyContractVerifyBenchmark {
+
+    @Param({"ISSUE", "MOVE", "REDEEM"})
+    public PaperCommand command;
+
+    @Param({"100", "1000", "10000"})
+    public int states;
+
+    @Param({"10"})
+    public int groups;
+
+    @Param({"1", "10"})
+    public int signers;
+
+    @Param({"0"})
+    public int unrelatedCommands;
+
+    private SyntheticTransactions.Parties parties;
+    private final DummyContract contract = new DummyContract();
+    private LedgerTransaction tx;
+
+    @Setup(Level.Trial)
+    public void parties() {
+        this.parties = new SyntheticTransactions.Parties(this.signers);
+    }
+
+    @Setup(Level.Invocation)
+    public void transaction() {
+        this.tx = SyntheticTransactions.paper(DummyContract.DUMMY_CONTRACT_ID, DummyContract.State::new, this.command, commandData(this.command),
+                this.states, this.groups, this.parties, this.unrelatedCommands);
+    }
+
+    @Benchmark
+    public LedgerTransaction verify() {
+        this.contract.verify(this.tx);
+        return this.tx;
+    }
+
+    private static CommandData commandData(PaperCommand command) {
+        switch (command) {
+            case ISSUE:
+                return new DummyContract.Commands.Issue();
+            case MOVE:
+                return new DummyContract.Commands.Move();
+            case REDEEM:
+                return new DummyContract.Commands.Redeem();
+            default:
+                throw new IllegalArgumentException("unrecognised command " + command);
+        }
+    }
+}
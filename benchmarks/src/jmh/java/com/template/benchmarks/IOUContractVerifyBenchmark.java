@@ -0,0 +1,38 @@
+package com.template.benchmarks;
+
+import com.template.contracts.IOUContract;
+import net.corda.core.transactions.LedgerTransaction;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput and allocation of IOUContract.verify, for a single Create and for BatchCreates of increasing size.
+ *
+ * Run with: ./gradlew benchmarks:jmh
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class IOUContractVerifyBenchmark {
+
+    @Param({"1", "100", "1000"})
+    public int ious;
+
+    @Param({"0", "10"})
+    public int unrelatedCommands;
+
+    private final IOUContract contract = new IOUContract();
+    private LedgerTransaction tx;
+
+    @Setup(Level.Trial)
+    public void transaction() {
+        this.tx = SyntheticTransactions.iouCreate(this.ious, new SyntheticTransactions.Parties(1), this.unrelatedCommands);
+    }
+
+    @Benchmark
+    public LedgerTransaction verifyCreate() {
+        this.contract.verify(this.tx);
+        return this.tx;
+    }
+}
@@ -0,0 +1,162 @@
+package com.template.benchmarks;
+
+import com.google.common.collect.ImmutableList;
+import com.template.contracts.CommercialPaper;
+import net.corda.core.contracts.*;
+import net.corda.core.crypto.NullKeys;
+import net.corda.core.identity.AbstractParty;
+import net.corda.core.identity.AnonymousParty;
+import net.corda.core.transactions.LedgerTransaction;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.util.Currency;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Before/after comparison of the immutable CommercialPaper.State, which caches its hash, against a copy of the mutable
+ * State it replaced, which rehashed all four fields on every call.
+ *
+ * Both are grouped on withoutOwner, the key the contract used before it had a grouping key of its own, so the only
+ * difference between groupLegacy and groupImmutable is the hash. The grouping key is measured separately in
+ * CommercialPaperGroupingBenchmark. groupStates hashes every key once to index it and once per group to look it up,
+ * and the vault's bookkeeping puts the same states through HashSets again, so both are measured here. verify runs the
+ * contract itself over the same large groups; there is no legacy counterpart, as the contract only accepts its own
+ * State.
+ *
+ * Run with: ./gradlew benchmarks:jmh -Pjmh.include=PaperStateHashingBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PaperStateHashingBenchmark {
+
+    @Param({"1000", "10000"})
+    public int states;
+
+    @Param({"1", "100"})
+    public int groups;
+
+    private SyntheticTransactions.Parties parties;
+    private final CommercialPaper contract = new CommercialPaper();
+    private LedgerTransaction legacyTx;
+    private LedgerTransaction immutableTx;
+
+    @Setup(Level.Trial)
+    public void parties() {
+        this.parties = new SyntheticTransactions.Parties(1);
+    }
+
+    // Fresh states per invocation, so the immutable states start with nothing cached, as they would after deserialisation.
+    @Setup(Level.Invocation)
+    public void transactions() {
+        this.legacyTx = SyntheticTransactions.paper(CommercialPaper.CP_CONTRACT_ID, LegacyState::new, SyntheticTransactions.PaperCommand.BULK_MOVE,
+                new CommercialPaper.Commands.BulkMove(), this.states, this.groups, this.parties, 0);
+        this.immutableTx = SyntheticTransactions.paper(CommercialPaper.CP_CONTRACT_ID, CommercialPaper.State::new, SyntheticTransactions.PaperCommand.BULK_MOVE,
+                new CommercialPaper.Commands.BulkMove(), this.states, this.groups, this.parties, 0);
+    }
+
+    @Benchmark
+    public List<LedgerTransaction.InOutGroup<LegacyState, LegacyState>> groupLegacy() {
+        return this.legacyTx.groupStates(LegacyState.class, LegacyState::withoutOwner);
+    }
+
+    @Benchmark
+    public List<LedgerTransaction.InOutGroup<CommercialPaper.State, CommercialPaper.State>> groupImmutable() {
+        return this.immutableTx.groupStates(CommercialPaper.State.class, CommercialPaper.State::withoutOwner);
+    }
+
+    @Benchmark
+    public LedgerTransaction verify() {
+        this.contract.verify(this.immutableTx);
+        return this.immutableTx;
+    }
+
+    @Benchmark
+    public int hashSetsLegacy() {
+        return hashTwice(this.legacyTx.outputsOfType(LegacyState.class));
+    }
+
+    @Benchmark
+    public int hashSetsImmutable() {
+        return hashTwice(this.immutableTx.outputsOfType(CommercialPaper.State.class));
+    }
+
+    private static int hashTwice(List<? extends ContractState> outputs) {
+        Set<ContractState> first = new HashSet<>(outputs);
+        Set<ContractState> second = new HashSet<>(outputs);
+        return first.size() + second.size();
+    }
+
+    /**
+     * CommercialPaper.State as it was before it was made immutable: non-final fields and a hashCode that is
+     * recomputed on every call.
+     */
+    public static class LegacyState implements OwnableState {
+
+        private PartyAndReference issuance;
+        private AbstractParty owner;
+        private Amount<Issued<Currency>> faceValue;
+        private Instant maturityDate;
+
+        public LegacyState(PartyAndReference issuance, AbstractParty owner, Amount<Issued<Currency>> faceValue, Instant maturityDate) {
+            this.issuance = issuance;
+            this.owner = owner;
+            this.faceValue = faceValue;
+            this.maturityDate = maturityDate;
+        }
+
+        public LegacyState withoutOwner() {
+            return new LegacyState(this.issuance, new AnonymousParty(NullKeys.NullPublicKey.INSTANCE), this.faceValue, this.maturityDate);
+        }
+
+        @NotNull
+        @Override
+        public AbstractParty getOwner() {
+            return this.owner;
+        }
+
+        @NotNull
+        @Override
+        public CommandAndState withNewOwner(@NotNull AbstractParty newOwner) {
+            return new CommandAndState(new CommercialPaper.Commands.Move(), new LegacyState(this.issuance, newOwner, this.faceValue, this.maturityDate));
+        }
+
+        @NotNull
+        @Override
+        public List<AbstractParty> getParticipants() {
+            return ImmutableList.of(this.owner);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+
+            LegacyState state = (LegacyState) o;
+            return Objects.equals(this.issuance, state.issuance)
+                    && Objects.equals(this.owner, state.owner)
+                    && Objects.equals(this.faceValue, state.faceValue)
+                    && Objects.equals(this.maturityDate, state.maturityDate);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = this.issuance != null ? this.issuance.hashCode() : 0;
+            result = 31 * result + (this.owner != null ? this.owner.hashCode() : 0);
+            result = 31 * result + (this.faceValue != null ? this.faceValue.hashCode() : 0);
+            result = 31 * result + (this.maturityDate != null ? this.maturityDate.hashCode() : 0);
+            return result;
+        }
+    }
+}
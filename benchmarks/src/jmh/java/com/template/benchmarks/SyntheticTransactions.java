@@ -0,0 +1,193 @@
+package com.template.benchmarks;
+
+import com.template.contracts.IOUContract;
+import com.template.states.IOUState;
+import net.corda.core.contracts.*;
+import net.corda.core.crypto.Crypto;
+import net.corda.core.crypto.SecureHash;
+import net.corda.core.identity.AbstractParty;
+import net.corda.core.identity.CordaX500Name;
+import net.corda.core.identity.Party;
+import net.corda.core.transactions.LedgerTransaction;
+import net.corda.core.utilities.OpaqueBytes;
+import net.corda.finance.contracts.asset.Cash;
+
+import java.security.PublicKey;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Currency;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Builds LedgerTransactions directly, without a node or MockServices, so that benchmarks measure contract verification
+ * and nothing else. The states are rebuilt on every call, the same way a node deserialises fresh states for every
+ * verification.
+ *
+ * A transaction is sized by the number of states, the number of groups they fall into (distinct maturity dates), the
+ * number of owners that have to sign, and the number of unrelated commands riding along with the contract's own.
+ */
+final class SyntheticTransactions {
+
+    static final Currency USD = Currency.getInstance(Locale.US);
+    static final Instant NOW = Instant.now();
+    static final long FACE_VALUE = 100_000L;
+
+    private static final Instant FIRST_MATURITY = NOW.plus(30, ChronoUnit.DAYS);
+
+    /**
+     * The shapes a paper transaction can take. MOVE always puts each paper in its own group, because a Move requires
+     * exactly one output per group.
+     */
+    enum PaperCommand {
+        ISSUE, MOVE, BULK_MOVE, REDEEM
+    }
+
+    /**
+     * CommercialPaper.State and DummyContract.State share a constructor but not a type.
+     */
+    interface PaperFactory {
+        ContractState create(PartyAndReference issuance, AbstractParty owner, Amount<Issued<Currency>> faceValue, Instant maturityDate);
+    }
+
+    /**
+     * A command the contracts under test don't recognise, used to pad out the command list.
+     */
+    static class Unrelated implements CommandData {
+    }
+
+    static final class Parties {
+        final Party issuer;
+        final List<Party> owners;
+        final Party newOwner;
+        final Party notary;
+
+        Parties(int owners) {
+            this.issuer = party("Issuer");
+            this.owners = new ArrayList<>(owners);
+
+            for (int i = 0; i < owners; i++) {
+                this.owners.add(party("Owner" + i));
+            }
+
+            this.newOwner = party("NewOwner");
+            this.notary = party("Notary");
+        }
+    }
+
+    private SyntheticTransactions() {
+    }
+
+    static Party party(String organisation) {
+        return new Party(new CordaX500Name(organisation, "London", "GB"), Crypto.generateKeyPair(Crypto.EDDSA_ED25519_SHA512).getPublic());
+    }
+
+    @SuppressWarnings("deprecation")
+    static LedgerTransaction paper(String contract, PaperFactory factory, PaperCommand kind, CommandData command,
+                                   int states, int groups, Parties parties, int unrelatedCommands) {
+        PartyAndReference issuance = new PartyAndReference(parties.issuer, OpaqueBytes.of((byte) 1));
+        Amount<Issued<Currency>> faceValue = new Amount<>(FACE_VALUE, new Issued<>(issuance, USD));
+        int distinct = kind == PaperCommand.MOVE ? states : Math.max(1, Math.min(groups, states));
+
+        List<StateAndRef<ContractState>> inputs = new ArrayList<>();
+        List<TransactionState<ContractState>> outputs = new ArrayList<>();
+        List<PublicKey> signers = new ArrayList<>();
+        Map<Party, long[]> owed = new LinkedHashMap<>();
+        SecureHash previousTx = SecureHash.randomSHA256();
+        TimeWindow timeWindow = null;
+
+        if (kind == PaperCommand.ISSUE) {
+            signers.add(parties.issuer.getOwningKey());
+            timeWindow = TimeWindow.between(NOW, NOW.plus(1, ChronoUnit.DAYS));
+        }
+        else {
+            for (Party owner : parties.owners) {
+                signers.add(owner.getOwningKey());
+            }
+        }
+
+        for (int i = 0; i < states; i++) {
+            Instant maturityDate = FIRST_MATURITY.plusSeconds(i % distinct);
+            Party owner = parties.owners.get(i % parties.owners.size());
+
+            switch (kind) {
+                case ISSUE:
+                    outputs.add(transactionState(factory.create(issuance, parties.issuer, faceValue, maturityDate), contract, parties.notary));
+                    break;
+                case MOVE:
+                case BULK_MOVE:
+                    inputs.add(stateAndRef(factory.create(issuance, owner, faceValue, maturityDate), contract, parties.notary, previousTx, i));
+                    outputs.add(transactionState(factory.create(issuance, parties.newOwner, faceValue, maturityDate), contract, parties.notary));
+                    break;
+                case REDEEM:
+                    inputs.add(stateAndRef(factory.create(issuance, owner, faceValue, maturityDate), contract, parties.notary, previousTx, i));
+                    owed.computeIfAbsent(owner, key -> new long[1])[0] += FACE_VALUE;
+                    break;
+            }
+        }
+
+        if (kind == PaperCommand.REDEEM) {
+            for (Map.Entry<Party, long[]> payment : owed.entrySet()) {
+                Cash.State cash = new Cash.State(new Amount<>(payment.getValue()[0], new Issued<>(issuance, USD)), payment.getKey());
+                outputs.add(transactionState(cash, Cash.PROGRAM_ID, parties.notary));
+            }
+
+            timeWindow = TimeWindow.fromOnly(FIRST_MATURITY.plus(1, ChronoUnit.DAYS));
+        }
+
+        List<CommandWithParties<CommandData>> commands = commands(command, signers, parties, unrelatedCommands);
+        return new LedgerTransaction(inputs, outputs, commands, Collections.emptyList(), SecureHash.randomSHA256(), parties.notary, timeWindow, new PrivacySalt());
+    }
+
+    /**
+     * A Move of the given number of papers from one owner to another, every paper in its own group.
+     */
+    static LedgerTransaction commercialPaperMove(int papers, Parties parties, PaperFactory factory, String contract, CommandData move) {
+        return paper(contract, factory, PaperCommand.MOVE, move, papers, papers, parties, 0);
+    }
+
+    /**
+     * A Create of one IOU, or a BatchCreate of several, between the same lender and borrower.
+     */
+    @SuppressWarnings("deprecation")
+    static LedgerTransaction iouCreate(int ious, Parties parties, int unrelatedCommands) {
+        Party lender = parties.issuer;
+        Party borrower = parties.owners.get(0);
+        List<TransactionState<ContractState>> outputs = new ArrayList<>(ious);
+
+        for (int i = 0; i < ious; i++) {
+            outputs.add(transactionState(new IOUState(10, lender, borrower), IOUContract.ID, parties.notary));
+        }
+
+        List<PublicKey> signers = new ArrayList<>();
+        signers.add(borrower.getOwningKey());
+        signers.add(lender.getOwningKey());
+
+        CommandData command = ious == 1 ? new IOUContract.Create() : new IOUContract.BatchCreate();
+        List<CommandWithParties<CommandData>> commands = commands(command, signers, parties, unrelatedCommands);
+        return new LedgerTransaction(Collections.emptyList(), outputs, commands, Collections.emptyList(), SecureHash.randomSHA256(), parties.notary, null, new PrivacySalt());
+    }
+
+    private static List<CommandWithParties<CommandData>> commands(CommandData command, List<PublicKey> signers, Parties parties, int unrelatedCommands) {
+        List<CommandWithParties<CommandData>> commands = new ArrayList<>(1 + unrelatedCommands);
+        commands.add(new CommandWithParties<>(signers, Collections.emptyList(), command));
+
+        for (int i = 0; i < unrelatedCommands; i++) {
+            commands.add(new CommandWithParties<>(Collections.singletonList(parties.notary.getOwningKey()), Collections.emptyList(), new Unrelated()));
+        }
+
+        return commands;
+    }
+
+    private static StateAndRef<ContractState> stateAndRef(ContractState data, String contract, Party notary, SecureHash tx, int index) {
+        return new StateAndRef<>(transactionState(data, contract, notary), new StateRef(tx, index));
+    }
+
+    private static TransactionState<ContractState> transactionState(ContractState data, String contract, Party notary) {
+        return new TransactionState<>(data, contract, notary, null, AlwaysAcceptAttachmentConstraint.INSTANCE);
+    }
+}
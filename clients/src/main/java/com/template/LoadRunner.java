@@ -0,0 +1,89 @@
+package com.template;
+
+import com.template.flows.LoadDriverFlow;
+import com.template.services.LoadReport;
+import com.template.services.LoadSpec;
+import net.corda.client.rpc.CordaRPCClient;
+import net.corda.client.rpc.CordaRPCConnection;
+import net.corda.core.identity.CordaX500Name;
+import net.corda.core.identity.Party;
+import net.corda.core.messaging.CordaRPCOps;
+import net.corda.core.utilities.NetworkHostAndPort;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Runs the load driver on a node over RPC, logs its throughput and latency percentiles, and writes the full percentile
+ * distribution to load-&lt;kind&gt;.hgrm in the working directory.
+ *
+ * The node runs the flows itself, so the figures are not skewed by RPC round trips from here. This client only starts
+ * the run and polls for the report until it is done.
+ */
+class LoadRunner {
+    private static final Logger logger = LoggerFactory.getLogger(LoadRunner.class);
+    private static final long POLL_MILLIS = 5_000;
+
+    public static void main(String[] args) throws InterruptedException {
+
+        if (args.length < 6) {
+            throw new IllegalArgumentException("Usage: LoadRunner <node address> <username> <password> <IOU|DUMMY_ISSUE> <concurrency> <duration seconds> [counterparty X500 name...]");
+        }
+
+        final NetworkHostAndPort nodeAddress = NetworkHostAndPort.parse(args[0]);
+        String username = args[1];
+        String password = args[2];
+        LoadSpec.Kind kind = LoadSpec.Kind.valueOf(args[3]);
+        int concurrency = Integer.parseInt(args[4]);
+        long durationSeconds = Long.parseLong(args[5]);
+
+        final CordaRPCClient client = new CordaRPCClient(nodeAddress);
+        final CordaRPCConnection connection = client.start(username, password);
+        final CordaRPCOps proxy = connection.getProxy();
+
+        try {
+            List<Party> counterparties = new ArrayList<>();
+
+            for (int i = 6; i < args.length; i++) {
+                Party party = proxy.wellKnownPartyFromX500Name(CordaX500Name.parse(args[i]));
+
+                if (party == null) {
+                    throw new IllegalArgumentException("Unknown counterparty " + args[i]);
+                }
+
+                counterparties.add(party);
+            }
+
+            LoadSpec spec = new LoadSpec(kind, counterparties, concurrency, durationSeconds);
+            LoadReport report = proxy.startFlowDynamic(LoadDriverFlow.StartLoadFlow.class, spec).getReturnValue().get();
+            logger.info("Started " + spec);
+
+            while (report.isRunning()) {
+                Thread.sleep(POLL_MILLIS);
+                report = proxy.startFlowDynamic(LoadDriverFlow.ReportFlow.class).getReturnValue().get();
+                logger.info(report.toString());
+            }
+
+            logger.info(String.format("%s: %d completed, %d failed in %.1fs, %.1f tx/s",
+                    kind, report.getCompleted(), report.getFailed(), report.getElapsedMillis() / 1000.0, report.transactionsPerSecond()));
+            logger.info(String.format("latency ms: p50=%.1f p99=%.1f p999=%.1f max=%.1f",
+                    report.percentileMillis(50), report.percentileMillis(99), report.percentileMillis(99.9), report.histogram().getMaxValue() / 1000.0));
+
+            Path hgrm = Paths.get("load-" + kind + ".hgrm");
+            Files.write(hgrm, report.getPercentileDistribution().getBytes(StandardCharsets.UTF_8));
+            logger.info("Percentile distribution written to {}", hgrm.toAbsolutePath());
+        } catch (ExecutionException | IOException e) {
+            logger.error(e.getMessage(), e);
+        } finally {
+            connection.notifyServerAndClose();
+        }
+    }
+}
@@ -2,6 +2,8 @@ package com.template;
 
 import com.template.contracts.DummyContract;
 import com.template.flows.DummyContractIssueFlow;
+import com.template.flows.DummyContractUpgradeFlow;
+import com.template.services.BulkUpgradeReport;
 import net.corda.client.rpc.CordaRPCClient;
 import net.corda.client.rpc.CordaRPCConnection;
 import net.corda.core.contracts.Amount;
@@ -95,7 +97,13 @@ class UpgradeRpcExample {
 
         // Party B buys the DummyContract.
 
-        // Party A upgrades the DummyContract.
+        // Party A upgrades the DummyContract, in bulk, with up to 8 upgrades in flight at a time.
+        try {
+            BulkUpgradeReport report = proxyA.startFlowDynamic(DummyContractUpgradeFlow.BulkUpgradeFlow.class, 100, 8).getReturnValue().get();
+            logger.info("Upgrade started: " + report);
+        } catch (InterruptedException | ExecutionException e) {
+            logger.error(e.getMessage(), e);
+        }
 
         connectionA.notifyServerAndClose();
         connectionB.notifyServerAndClose();
@@ -0,0 +1,31 @@
+package com.template.contracts;
+
+import net.corda.core.contracts.ContractState;
+
+import java.util.List;
+
+/**
+ * The checks for one command type, registered with a {@link GroupedContractVerifier}.
+ *
+ * A fresh rule is created for every transaction, so a rule may keep running totals across groups in its own fields and
+ * check them in {@link #end}. Rules report failures through {@link GroupedContractVerifier#require}.
+ */
+public interface CommandRule<S extends ContractState> {
+
+    /**
+     * Called once per transaction, before any group.
+     */
+    default void begin(VerificationContext context) {
+    }
+
+    /**
+     * Called once for every group of states in the transaction.
+     */
+    void verifyGroup(VerificationContext context, List<S> inputs, List<S> outputs);
+
+    /**
+     * Called once per transaction, after every group has been verified.
+     */
+    default void end(VerificationContext context) {
+    }
+}
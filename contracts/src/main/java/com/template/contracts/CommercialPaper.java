@@ -1,97 +1,62 @@
 package com.template.contracts;
 
 import com.google.common.collect.ImmutableList;
+import com.template.schemas.PaperSchemaV1;
 import net.corda.core.contracts.*;
 import net.corda.core.crypto.NullKeys;
+import net.corda.core.flows.FlowLogicRefFactory;
 import net.corda.core.identity.AbstractParty;
 import net.corda.core.identity.AnonymousParty;
 import net.corda.core.identity.Party;
 import net.corda.core.node.ServiceHub;
+import net.corda.core.node.services.StatesNotAvailableException;
+import net.corda.core.schemas.MappedSchema;
+import net.corda.core.schemas.PersistentState;
+import net.corda.core.schemas.QueryableState;
+import net.corda.core.serialization.ConstructorForDeserialization;
 import net.corda.core.transactions.LedgerTransaction;
 import net.corda.core.transactions.TransactionBuilder;
-import net.corda.finance.workflows.asset.CashUtils;
+import net.corda.finance.contracts.asset.Cash;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.security.PublicKey;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Currency;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 
-import static net.corda.core.contracts.ContractsDSL.requireSingleCommand;
-import static net.corda.core.contracts.ContractsDSL.requireThat;
 import static net.corda.finance.contracts.CommercialPaperKt.CP_PROGRAM_ID;
-import static net.corda.finance.contracts.utils.StateSumming.sumCashBy;
 
 public class CommercialPaper implements Contract {
 
     public static final String CP_CONTRACT_ID = "com.template.contracts.CommercialPaper";
 
+    /**
+     * Papers that mature within the same window are redeemed together, when the window ends.
+     */
+    public static final Duration MATURITY_WINDOW = Duration.ofMinutes(15);
+
+    private static final String MATURITY_FLOW = "com.template.flows.PaperMaturityFlow";
+
+    private static final GroupedContractVerifier<State, PaperGroupingKey, Commands> VERIFIER =
+            new GroupedContractVerifier<>(State.class, State::groupingKey, Commands.class)
+                    .register(Commands.Move.class, PaperRules.Move::new)
+                    .register(Commands.BulkMove.class, PaperRules.BulkMove::new)
+                    .register(Commands.Redeem.class, PaperRules.Redeem::new)
+                    .register(Commands.Issue.class, PaperRules.Issue::new)
+                    .register(Commands.Exit.class, PaperRules.Exit::new);
+
     @Override
     public void verify(@NotNull LedgerTransaction tx) throws IllegalArgumentException {
-        List<LedgerTransaction.InOutGroup<State, State>> groups = tx.groupStates(State.class, State::withoutOwner);
-        CommandWithParties<Commands> cmd = requireSingleCommand(tx.getCommands(), Commands.class);
-        TimeWindow timeWindow = tx.getTimeWindow();
-
-        for (LedgerTransaction.InOutGroup group : groups) {
-            List<State> inputs = group.getInputs();
-            List<State> outputs = group.getOutputs();
-
-            if (cmd.getValue() instanceof Commands.Move) {
-                State input = inputs.get(0);
-
-                requireThat(require -> {
-                    require.using("the transaction is signed by the owner of the CP", cmd.getSigners().contains(input.getOwner().getOwningKey()));
-                    require.using("the state is propagated", outputs.size() == 1);
-                    // Don't need to check anything else, if outputs.size == 1 then the output is equal to the input (ignoring the owner field) due to the grouping.
-                    return null;
-                });
-            }
-            else if (cmd.getValue() instanceof Commands.Redeem) {
-                // Redemption of the paper requires the movement of on-ledger cash.
-                State input = inputs.get(0);
-                Amount<Issued<Currency>> received = sumCashBy(tx.getOutputStates(), input.getOwner());
-
-                if (timeWindow == null) {
-                    throw new IllegalArgumentException("redemptions must be timestamped");
-                }
-
-                Instant time = timeWindow.getFromTime();
-
-                requireThat(require -> {
-                    assert time != null;
-                    require.using("the paper must have matured", time.isAfter(input.getMaturityDate()));
-                    require.using("the received amount equals the face value", received == input.getFaceValue());
-                    require.using("the paper must be destroyed", outputs.isEmpty());
-                    require.using("the transaction is signed by the owner of the CP", cmd.getSigners().contains(input.getOwner().getOwningKey()));
-                    return null;
-                });
-            }
-            else if (cmd.getValue() instanceof Commands.Issue) {
-                State output = outputs.get(0);
-
-                if (timeWindow == null) {
-                    throw new IllegalArgumentException("issuances must have a time window");
-                }
-
-                Instant time = timeWindow.getUntilTime();
-
-                requireThat(require -> {
-                    // Don't allow people to issue commercial paper under other entities' identities.
-                    require.using("output states are issued by a command signer", cmd.getSigners().contains(output.getIssuance().getParty().getOwningKey()));
-                    require.using("output values sum to more than the inputs", output.getFaceValue().getQuantity() > 0);
-                    assert time != null;
-                    require.using("the maturity date is not in the past", time.isBefore(output.getMaturityDate()));
-                    // Don't allow an existing CP state to be replaced by this issuance.
-                    require.using("can't reissue an existing state", inputs.isEmpty());
-                    return null;
-                });
-            }
-            else {
-                throw new IllegalArgumentException("unrecognised command");
-            }
-        }
-        // throw new UnsupportedOperationException();
+        VERIFIER.verify(tx);
     }
 
     public TransactionBuilder generateIssue(PartyAndReference issuance, Amount<Issued<Currency>> faceValue, Instant maturityDate, Party notary) {
@@ -107,34 +72,108 @@ public class CommercialPaper implements Contract {
         tx.addCommand(new Command<CommandData>(new Commands.Move(), paper.getState().getData().getOwner().getOwningKey()));
     }
 
-    public void generateRedeem(TransactionBuilder tx, StateAndRef<State> paper, ServiceHub services) throws InsufficientBalanceException {
-        // Add the cash movement using the states in out vault.
-        CashUtils.generateSpend(
-                services,
-                tx,
-                new Amount<>(
-                        paper.getState().getData().getFaceValue().getQuantity(),
-                        paper.getState().getData().getFaceValue().getDisplayTokenSize(),
-                        paper.getState().getData().getFaceValue().getToken().getProduct()
-                ),
-                services.getMyInfo().getLegalIdentities().get(0),
-                (Set<AbstractParty>) paper.getState().getData().getOwner()
-        );
+    /**
+     * Moves many papers to a new owner under a single BulkMove command, signed by every current owner.
+     */
+    public void generateBulkMove(TransactionBuilder tx, List<StateAndRef<State>> papers, AbstractParty newOwner) {
+        Set<PublicKey> ownerKeys = new LinkedHashSet<>();
 
-        tx.addInputState(paper);
-        tx.addCommand(new Command<CommandData>(new Commands.Redeem(), paper.getState().getData().getOwner().getOwningKey()));
+        for (StateAndRef<State> paper : papers) {
+            tx.addInputState(paper);
+            tx.addOutputState(paper.getState().getData().withOwner(newOwner), CP_CONTRACT_ID);
+            ownerKeys.add(paper.getState().getData().getOwner().getOwningKey());
+        }
+
+        tx.addCommand(new Command<CommandData>(new Commands.BulkMove(), new ArrayList<>(ownerKeys)));
+    }
+
+    /**
+     * Redeems one paper, paying its face value to the owner out of our cash. See the list version.
+     */
+    public void generateRedeem(TransactionBuilder tx, StateAndRef<State> paper, ServiceHub services)
+            throws InsufficientBalanceException, StatesNotAvailableException {
+        generateRedeem(tx, Collections.singletonList(paper), services);
     }
 
-    public static class State implements OwnableState {
+    /**
+     * Redeems many papers in one transaction. The cash leg is one payment per (owner, issued currency) rather than one
+     * per paper, paid out of coins chosen and soft-locked by {@link RedemptionCoinSelector}, and the whole lot is
+     * covered by a single Redeem command signed by every owner.
+     *
+     * @throws StatesNotAvailableException if concurrent flows kept taking the coins. Worth retrying after a pause.
+     */
+    public void generateRedeem(TransactionBuilder tx, List<StateAndRef<State>> papers, ServiceHub services)
+            throws InsufficientBalanceException, StatesNotAvailableException {
+        Map<AbstractParty, Map<Issued<Currency>, long[]>> payments = new LinkedHashMap<>();
+        Set<PublicKey> ownerKeys = new LinkedHashSet<>();
+
+        for (StateAndRef<State> paper : papers) {
+            State state = paper.getState().getData();
+            Map<Issued<Currency>, long[]> byToken = payments.computeIfAbsent(state.getOwner(), owner -> new LinkedHashMap<>());
+            long[] total = byToken.computeIfAbsent(state.getFaceValue().getToken(), token -> new long[1]);
+            total[0] = Math.addExact(total[0], state.getFaceValue().getQuantity());
+
+            tx.addInputState(paper);
+            ownerKeys.add(state.getOwner().getOwningKey());
+        }
 
-        private PartyAndReference issuance;
-        private AbstractParty owner;
-        private Amount<Issued<Currency>> faceValue;
-        private Instant maturityDate;
+        // Add the cash movement using the states in our vault.
+        Set<PublicKey> cashSigners = new LinkedHashSet<>();
 
-        public State() {
-        }   // for serialisation
+        for (Map.Entry<AbstractParty, Map<Issued<Currency>, long[]>> payment : payments.entrySet()) {
+            for (Map.Entry<Issued<Currency>, long[]> amount : payment.getValue().entrySet()) {
+                RedemptionCoinSelector.generatePayment(services, tx, payment.getKey(), new Amount<>(amount.getValue()[0], amount.getKey()), cashSigners);
+            }
+        }
 
+        tx.addCommand(new Command<CommandData>(new Cash.Commands.Move(), new ArrayList<>(cashSigners)));
+        tx.addCommand(new Command<CommandData>(new Commands.Redeem(), new ArrayList<>(ownerKeys)));
+    }
+
+    /**
+     * Takes a paper off the ledger without paying for it, as the first half of a reissue. Needs both the owner's and
+     * the issuer's signatures.
+     */
+    public void generateExit(TransactionBuilder tx, StateAndRef<State> paper) {
+        State state = paper.getState().getData();
+        tx.addInputState(paper);
+        tx.addCommand(new Command<CommandData>(new Commands.Exit(), ImmutableList.of(state.getOwner().getOwningKey(), state.getIssuance().getParty().getOwningKey())));
+    }
+
+    /**
+     * Issues a fresh copy of an exited paper, with the same issuance, face value, maturity and owner but no history.
+     * The owner signs as well as the issuer, so a paper can't be reissued to someone who didn't agree to it.
+     */
+    public void generateReissue(TransactionBuilder tx, State exited) {
+        tx.addOutputState(exited.copy(), CP_CONTRACT_ID);
+        tx.addCommand(new Command<CommandData>(new Commands.Issue(), ImmutableList.of(exited.getIssuance().getParty().getOwningKey(), exited.getOwner().getOwningKey())));
+    }
+
+    /**
+     * The end of the maturity window a paper falls in: the first window boundary strictly after its maturity.
+     */
+    public static Instant maturityWindowEnd(Instant maturityDate) {
+        long window = MATURITY_WINDOW.toMillis();
+        return Instant.ofEpochMilli(Math.floorDiv(maturityDate.toEpochMilli(), window) * window + window);
+    }
+
+    /**
+     * Immutable, so the hash and the grouping key are worked out at most once per instance and then reused by
+     * groupStates and the vault. Neither cached value is part of the serialised form.
+     *
+     * Every paper schedules a maturity flow for the end of its maturity window rather than for its exact maturity, so
+     * all the papers in a window come due at once and the first flow to run can redeem them all in a few transactions.
+     */
+    public static class State implements PaperState, QueryableState, SchedulableState {
+
+        private final PartyAndReference issuance;
+        private final AbstractParty owner;
+        private final Amount<Issued<Currency>> faceValue;
+        private final Instant maturityDate;
+        private transient int hash;                       // derived, 0 until first computed
+        private transient PaperGroupingKey groupingKey;   // derived, built on first use
+
+        @ConstructorForDeserialization
         public State(PartyAndReference issuance, AbstractParty owner, Amount<Issued<Currency>> faceValue, Instant maturityDate) {
             this.issuance = issuance;
             this.owner = owner;
@@ -154,6 +193,19 @@ public class CommercialPaper implements Contract {
             return new State(this.issuance, owner, this.faceValue, this.maturityDate);
         }
 
+        /**
+         * The owner-independent key used to group inputs and outputs in verify(). Computed once and cached, so repeated
+         * grouping passes over the same state don't allocate.
+         */
+        @Override
+        public PaperGroupingKey groupingKey() {
+            if (this.groupingKey == null) {
+                this.groupingKey = new PaperGroupingKey(this.issuance, this.faceValue, this.maturityDate);
+            }
+
+            return this.groupingKey;
+        }
+
         @NotNull
         @Override
         public AbstractParty getOwner() {
@@ -166,14 +218,17 @@ public class CommercialPaper implements Contract {
             return new CommandAndState(new CommercialPaper.Commands.Move(), new State(this.issuance, newOwner, this.faceValue, this.maturityDate));
         }
 
+        @Override
         public PartyAndReference getIssuance() {
             return this.issuance;
         }
 
+        @Override
         public Amount<Issued<Currency>> getFaceValue() {
             return this.faceValue;
         }
 
+        @Override
         public Instant getMaturityDate() {
             return this.maturityDate;
         }
@@ -190,6 +245,11 @@ public class CommercialPaper implements Contract {
 
             State state = (State) o;
 
+            // Both hashes are cached, so this rejects most unequal states without touching the fields.
+            if (hashCode() != state.hashCode()) {
+                return false;
+            }
+
             if (!Objects.equals(this.issuance, state.issuance)) {
                 return false;
             }
@@ -207,10 +267,18 @@ public class CommercialPaper implements Contract {
 
         @Override
         public int hashCode() {
-            int result = this.issuance != null ? this.issuance.hashCode() : 0;
-            result = 31 * result + (this.owner != null ? this.owner.hashCode() : 0);
-            result = 31 * result + (this.faceValue != null ? this.faceValue.hashCode() : 0);
-            result = 31 * result + (this.maturityDate != null ? this.maturityDate.hashCode() : 0);
+            // Racy single-check caching, as in String.hashCode(): the fields are final, so every thread computes the
+            // same value and the worst case is computing it more than once.
+            int result = this.hash;
+
+            if (result == 0) {
+                result = this.issuance != null ? this.issuance.hashCode() : 0;
+                result = 31 * result + (this.owner != null ? this.owner.hashCode() : 0);
+                result = 31 * result + (this.faceValue != null ? this.faceValue.hashCode() : 0);
+                result = 31 * result + (this.maturityDate != null ? this.maturityDate.hashCode() : 0);
+                this.hash = result;
+            }
+
             return result;
         }
 
@@ -219,6 +287,29 @@ public class CommercialPaper implements Contract {
         public List<AbstractParty> getParticipants() {
             return ImmutableList.of(this.owner);
         }
+
+        @Nullable
+        @Override
+        public ScheduledActivity nextScheduledActivity(@NotNull StateRef thisStateRef, @NotNull FlowLogicRefFactory flowLogicRefFactory) {
+            return new ScheduledActivity(flowLogicRefFactory.create(MATURITY_FLOW, thisStateRef), maturityWindowEnd(this.maturityDate));
+        }
+
+        @NotNull
+        @Override
+        public PersistentState generateMappedObject(@NotNull MappedSchema schema) {
+            if (schema instanceof PaperSchemaV1) {
+                return new PaperSchemaV1.PersistentCommercialPaper(this);
+            }
+            else {
+                throw new IllegalArgumentException("Unrecognised schema " + schema);
+            }
+        }
+
+        @NotNull
+        @Override
+        public Iterable<MappedSchema> supportedSchemas() {
+            return ImmutableList.of(new PaperSchemaV1());
+        }
     }
 
     public static class Commands implements CommandData {
@@ -229,6 +320,13 @@ public class CommercialPaper implements Contract {
             }
         }
 
+        public static class BulkMove extends Commands {
+            @Override
+            public boolean equals(Object o) {
+                return o instanceof BulkMove;
+            }
+        }
+
         public static class Redeem extends Commands {
             @Override
             public boolean equals(Object o) {
@@ -242,5 +340,12 @@ public class CommercialPaper implements Contract {
                 return o instanceof Issue;
             }
         }
+
+        public static class Exit extends Commands {
+            @Override
+            public boolean equals(Object o) {
+                return o instanceof Exit;
+            }
+        }
     }
 }
@@ -1,97 +1,46 @@
 package com.template.contracts;
 
 import com.google.common.collect.ImmutableList;
+import com.template.schemas.PaperSchemaV1;
 import net.corda.core.contracts.*;
 import net.corda.core.crypto.NullKeys;
 import net.corda.core.identity.AbstractParty;
 import net.corda.core.identity.AnonymousParty;
 import net.corda.core.identity.Party;
 import net.corda.core.node.ServiceHub;
+import net.corda.core.node.services.StatesNotAvailableException;
+import net.corda.core.schemas.MappedSchema;
+import net.corda.core.schemas.PersistentState;
+import net.corda.core.schemas.QueryableState;
 import net.corda.core.transactions.LedgerTransaction;
 import net.corda.core.transactions.TransactionBuilder;
-import net.corda.finance.workflows.asset.CashUtils;
+import net.corda.finance.contracts.asset.Cash;
 import org.jetbrains.annotations.NotNull;
 
+import java.security.PublicKey;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Currency;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 
-import static net.corda.core.contracts.ContractsDSL.requireSingleCommand;
-import static net.corda.core.contracts.ContractsDSL.requireThat;
 import static net.corda.finance.contracts.CommercialPaperKt.CP_PROGRAM_ID;
-import static net.corda.finance.contracts.utils.StateSumming.sumCashBy;
 
 public class DummyContract implements Contract {
 
     public static final String DUMMY_CONTRACT_ID = "com.template.contracts.DummyContract";
 
+    private static final GroupedContractVerifier<State, PaperGroupingKey, Commands> VERIFIER =
+            new GroupedContractVerifier<>(State.class, State::groupingKey, Commands.class)
+                    .register(Commands.Move.class, PaperRules.Move::new)
+                    .register(Commands.Redeem.class, PaperRules.Redeem::new)
+                    .register(Commands.Issue.class, PaperRules.Issue::new);
+
     @Override
     public void verify(@NotNull LedgerTransaction tx) throws IllegalArgumentException {
-        List<LedgerTransaction.InOutGroup<State, State>> groups = tx.groupStates(State.class, State::withoutOwner);
-        CommandWithParties<Commands> cmd = requireSingleCommand(tx.getCommands(), Commands.class);
-        TimeWindow timeWindow = tx.getTimeWindow();
-
-        for (LedgerTransaction.InOutGroup group : groups) {
-            List<State> inputs = group.getInputs();
-            List<State> outputs = group.getOutputs();
-
-            if (cmd.getValue() instanceof Commands.Move) {
-                State input = inputs.get(0);
-
-                requireThat(require -> {
-                    require.using("the transaction is signed by the owner of the CP", cmd.getSigners().contains(input.getOwner().getOwningKey()));
-                    require.using("the state is propagated", outputs.size() == 1);
-                    // Don't need to check anything else, if outputs.size == 1 then the output is equal to the input (ignoring the owner field) due to the grouping.
-                    return null;
-                });
-            }
-            else if (cmd.getValue() instanceof Commands.Redeem) {
-                // Redemption of the paper requires the movement of on-ledger cash.
-                State input = inputs.get(0);
-                Amount<Issued<Currency>> received = sumCashBy(tx.getOutputStates(), input.getOwner());
-
-                if (timeWindow == null) {
-                    throw new IllegalArgumentException("redemptions must be timestamped");
-                }
-
-                Instant time = timeWindow.getFromTime();
-
-                requireThat(require -> {
-                    assert time != null;
-                    require.using("the paper must have matured", time.isAfter(input.getMaturityDate()));
-                    require.using("the received amount equals the face value", received == input.getFaceValue());
-                    require.using("the paper must be destroyed", outputs.isEmpty());
-                    require.using("the transaction is signed by the owner of the CP", cmd.getSigners().contains(input.getOwner().getOwningKey()));
-                    return null;
-                });
-            }
-            else if (cmd.getValue() instanceof Commands.Issue) {
-                State output = outputs.get(0);
-
-                if (timeWindow == null) {
-                    throw new IllegalArgumentException("issuances must have a time window");
-                }
-
-                Instant time = timeWindow.getUntilTime();
-
-                requireThat(require -> {
-                    // Don't allow people to issue commercial paper under other entities' identities.
-                    require.using("output states are issued by a command signer", cmd.getSigners().contains(output.getIssuance().getParty().getOwningKey()));
-                    require.using("output values sum to more than the inputs", output.getFaceValue().getQuantity() > 0);
-                    assert time != null;
-                    require.using("the maturity date is not in the past", time.isBefore(output.getMaturityDate()));
-                    // Don't allow an existing CP state to be replaced by this issuance.
-                    require.using("can't reissue an existing state", inputs.isEmpty());
-                    return null;
-                });
-            }
-            else {
-                throw new IllegalArgumentException("unrecognised command");
-            }
-        }
-        // throw new UnsupportedOperationException();
+        VERIFIER.verify(tx);
     }
 
     public TransactionBuilder generateIssue(PartyAndReference issuance, Amount<Issued<Currency>> faceValue, Instant maturityDate, Party notary) {
@@ -107,31 +56,25 @@ public class DummyContract implements Contract {
         tx.addCommand(new Command<CommandData>(new Commands.Move(), paper.getState().getData().getOwner().getOwningKey()));
     }
 
-    public void generateRedeem(TransactionBuilder tx, StateAndRef<State> paper, ServiceHub services) throws InsufficientBalanceException {
-        // Add the cash movement using the states in out vault.
-        CashUtils.generateSpend(
-                services,
-                tx,
-                new Amount<>(
-                        paper.getState().getData().getFaceValue().getQuantity(),
-                        paper.getState().getData().getFaceValue().getDisplayTokenSize(),
-                        paper.getState().getData().getFaceValue().getToken().getProduct()
-                ),
-                services.getMyInfo().getLegalIdentities().get(0),
-                (Set<AbstractParty>) paper.getState().getData().getOwner()
-        );
+    public void generateRedeem(TransactionBuilder tx, StateAndRef<State> paper, ServiceHub services)
+            throws InsufficientBalanceException, StatesNotAvailableException {
+        // Pay the owner the face value out of the cash in our vault.
+        Set<PublicKey> cashSigners = new LinkedHashSet<>();
+        RedemptionCoinSelector.generatePayment(services, tx, paper.getState().getData().getOwner(), paper.getState().getData().getFaceValue(), cashSigners);
+        tx.addCommand(new Command<CommandData>(new Cash.Commands.Move(), new ArrayList<>(cashSigners)));
 
         tx.addInputState(paper);
         tx.addCommand(new Command<CommandData>(new Commands.Redeem(), paper.getState().getData().getOwner().getOwningKey()));
     }
 
-    public static class State implements OwnableState {
+    public static class State implements PaperState, QueryableState {
 
         private PartyAndReference issuance;
         private AbstractParty owner;
         private Amount<Issued<Currency>> faceValue;
         private Instant maturityDate;
         private int magicNumber;    // Added for DummyContract, nothing to do with a CommercialPaper.
+        private transient PaperGroupingKey groupingKey;   // derived, built on first use
 
         public int getMagicNumber() {
             return this.magicNumber;
@@ -163,6 +106,15 @@ public class DummyContract implements Contract {
             return new State(this.issuance, owner, this.faceValue, this.maturityDate);
         }
 
+        @Override
+        public PaperGroupingKey groupingKey() {
+            if (this.groupingKey == null) {
+                this.groupingKey = new PaperGroupingKey(this.issuance, this.faceValue, this.maturityDate);
+            }
+
+            return this.groupingKey;
+        }
+
         @NotNull
         @Override
         public AbstractParty getOwner() {
@@ -175,14 +127,17 @@ public class DummyContract implements Contract {
             return new CommandAndState(new DummyContract.Commands.Move(), new State(this.issuance, newOwner, this.faceValue, this.maturityDate));
         }
 
+        @Override
         public PartyAndReference getIssuance() {
             return this.issuance;
         }
 
+        @Override
         public Amount<Issued<Currency>> getFaceValue() {
             return this.faceValue;
         }
 
+        @Override
         public Instant getMaturityDate() {
             return this.maturityDate;
         }
@@ -228,6 +183,23 @@ public class DummyContract implements Contract {
         public List<AbstractParty> getParticipants() {
             return ImmutableList.of(this.owner);
         }
+
+        @NotNull
+        @Override
+        public PersistentState generateMappedObject(@NotNull MappedSchema schema) {
+            if (schema instanceof PaperSchemaV1) {
+                return new PaperSchemaV1.PersistentDummyPaper(this);
+            }
+            else {
+                throw new IllegalArgumentException("Unrecognised schema " + schema);
+            }
+        }
+
+        @NotNull
+        @Override
+        public Iterable<MappedSchema> supportedSchemas() {
+            return ImmutableList.of(new PaperSchemaV1());
+        }
     }
 
     public static class Commands implements CommandData {
@@ -0,0 +1,75 @@
+package com.template.contracts;
+
+import net.corda.core.contracts.CommandData;
+import net.corda.core.contracts.CommandWithParties;
+import net.corda.core.contracts.ContractState;
+import net.corda.core.transactions.LedgerTransaction;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static net.corda.core.contracts.ContractsDSL.requireSingleCommand;
+
+/**
+ * A table-driven verify() for contracts that group their states and expect exactly one of their own commands per
+ * transaction.
+ *
+ * Each contract builds one of these once, registering a {@link CommandRule} per command type. On verify the rule is
+ * looked up once by the command's class, and then the same rule instance is run over every group, so the per-group
+ * loop makes one kind of call and builds no lambdas.
+ */
+public final class GroupedContractVerifier<S extends ContractState, K, C extends CommandData> {
+
+    private final Class<S> stateType;
+    private final Function<S, K> groupingKey;
+    private final Class<C> commandType;
+    private final Map<Class<? extends CommandData>, Supplier<? extends CommandRule<S>>> rules = new HashMap<>();
+
+    public GroupedContractVerifier(Class<S> stateType, Function<S, K> groupingKey, Class<C> commandType) {
+        this.stateType = stateType;
+        this.groupingKey = groupingKey;
+        this.commandType = commandType;
+    }
+
+    /**
+     * Registers the rule for a command type. Only call this while setting up the verifier, it is not safe to register
+     * rules once transactions are being verified.
+     */
+    public GroupedContractVerifier<S, K, C> register(Class<? extends C> command, Supplier<? extends CommandRule<S>> rule) {
+        this.rules.put(command, rule);
+        return this;
+    }
+
+    public void verify(LedgerTransaction tx) throws IllegalArgumentException {
+        CommandWithParties<C> cmd = requireSingleCommand(tx.getCommands(), this.commandType);
+        Supplier<? extends CommandRule<S>> ruleFactory = this.rules.get(cmd.getValue().getClass());
+
+        if (ruleFactory == null) {
+            throw new IllegalArgumentException("unrecognised command");
+        }
+
+        List<LedgerTransaction.InOutGroup<S, K>> groups = tx.groupStates(this.stateType, this.groupingKey::apply);
+        VerificationContext context = new VerificationContext(tx, cmd);
+        CommandRule<S> rule = ruleFactory.get();
+
+        rule.begin(context);
+
+        for (LedgerTransaction.InOutGroup<S, K> group : groups) {
+            rule.verifyGroup(context, group.getInputs(), group.getOutputs());
+        }
+
+        rule.end(context);
+    }
+
+    /**
+     * The equivalent of requireThat { "message" using expr }, without a lambda per check.
+     */
+    public static void require(String message, boolean expr) {
+        if (!expr) {
+            throw new IllegalArgumentException("Failed requirement: " + message);
+        }
+    }
+}
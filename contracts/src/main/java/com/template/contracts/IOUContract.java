@@ -1,13 +1,17 @@
 package com.template.contracts;
 
 import com.template.states.IOUState;
+import net.corda.core.contracts.Command;
 import net.corda.core.contracts.CommandData;
 import net.corda.core.contracts.CommandWithParties;
 import net.corda.core.contracts.Contract;
+import net.corda.core.contracts.StateAndRef;
 import net.corda.core.identity.Party;
 import net.corda.core.transactions.LedgerTransaction;
+import net.corda.core.transactions.TransactionBuilder;
 
 import java.security.PublicKey;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -21,15 +25,46 @@ public class IOUContract implements Contract {
     public static final String ID = "com.template.contracts.IOUContract";
 
     // Our Create command.
-    public static class Create implements CommandData {
+    public static class Create implements Commands {
+    }
+
+    // Issues any number of IOUs between one lender and one borrower in a single transaction.
+    public static class BatchCreate implements Commands {
+    }
+
+    // Discharges IOUs between one lender and one borrower, leaving nothing in their place.
+    public static class Settle implements Commands {
+    }
+
+    // Replaces any number of IOUs between two parties, in either direction, with at most one IOU for what is owed on
+    // balance. Nothing is left when the IOUs cancel out exactly.
+    public static class Net implements Commands {
     }
 
     // A transaction is valid if the verify() function of the contract of all the transaction's input and output states
     // does not throw an exception.
     @Override
     public void verify(LedgerTransaction tx) {
-        final CommandWithParties<IOUContract.Create> command = requireSingleCommand(tx.getCommands(), IOUContract.Create.class);
+        final CommandWithParties<IOUContract.Commands> command = requireSingleCommand(tx.getCommands(), IOUContract.Commands.class);
 
+        if (command.getValue() instanceof Create) {
+            verifyCreate(tx, command);
+        }
+        else if (command.getValue() instanceof BatchCreate) {
+            verifyBatchCreate(tx, command);
+        }
+        else if (command.getValue() instanceof Settle) {
+            verifySettle(tx, command);
+        }
+        else if (command.getValue() instanceof Net) {
+            verifyNet(tx, command);
+        }
+        else {
+            throw new IllegalArgumentException("Unrecognised command.");
+        }
+    }
+
+    private static void verifyCreate(LedgerTransaction tx, CommandWithParties<IOUContract.Commands> command) {
         // Constraints on the shape of the transaction.
         if (!tx.getInputs().isEmpty()) {
             throw new IllegalArgumentException("No inputs may be consumed when issuing and IOU.");
@@ -41,18 +76,133 @@ public class IOUContract implements Contract {
 
         // IOU specific constraints.
         final IOUState output = tx.outputsOfType(IOUState.class).get(0);
-        final Party lender = output.getLender();
-        final Party borrower = output.getBorrower();
+        verifyIOU(output);
+
+        // Constraints on the signers.
+        verifySigners(command, output.getLender(), output.getBorrower());
+    }
+
+    private static void verifyBatchCreate(LedgerTransaction tx, CommandWithParties<IOUContract.Commands> command) {
+        // Constraints on the shape of the transaction.
+        if (!tx.getInputs().isEmpty()) {
+            throw new IllegalArgumentException("No inputs may be consumed when issuing IOUs.");
+        }
+
+        final List<IOUState> outputs = tx.outputsOfType(IOUState.class);
+
+        if (outputs.isEmpty() || outputs.size() != tx.getOutputs().size()) {
+            throw new IllegalArgumentException("There must be at least one output state and all must be of type IOUState.");
+        }
+
+        // IOU specific constraints, the same for every IOU in the batch.
+        final Party lender = outputs.get(0).getLender();
+        final Party borrower = outputs.get(0).getBorrower();
+
+        for (IOUState output : outputs) {
+            if (!(output.getLender().equals(lender) && output.getBorrower().equals(borrower))) {
+                throw new IllegalArgumentException("All IOUs in a batch must have the same lender and borrower.");
+            }
+
+            verifyIOU(output);
+        }
+
+        // Constraints on the signers, checked once for the whole batch.
+        verifySigners(command, lender, borrower);
+    }
+
+    private static void verifySettle(LedgerTransaction tx, CommandWithParties<IOUContract.Commands> command) {
+        // Constraints on the shape of the transaction.
+        final List<IOUState> inputs = tx.inputsOfType(IOUState.class);
+
+        if (inputs.isEmpty() || inputs.size() != tx.getInputs().size()) {
+            throw new IllegalArgumentException("There must be at least one input state and all must be of type IOUState.");
+        }
+
+        if (!tx.outputsOfType(IOUState.class).isEmpty()) {
+            throw new IllegalArgumentException("No IOUs may be created when settling.");
+        }
+
+        // IOU specific constraints.
+        final Party lender = inputs.get(0).getLender();
+        final Party borrower = inputs.get(0).getBorrower();
+
+        for (IOUState input : inputs) {
+            if (!(input.getLender().equals(lender) && input.getBorrower().equals(borrower))) {
+                throw new IllegalArgumentException("All settled IOUs must have the same lender and borrower.");
+            }
+        }
+
+        // Constraints on the signers.
+        verifySigners(command, lender, borrower);
+    }
 
-        if (output.getValue() <= 0) {
+    private static void verifyNet(LedgerTransaction tx, CommandWithParties<IOUContract.Commands> command) {
+        // Constraints on the shape of the transaction.
+        final List<IOUState> inputs = tx.inputsOfType(IOUState.class);
+
+        if (inputs.size() < 2 || inputs.size() != tx.getInputs().size()) {
+            throw new IllegalArgumentException("There must be at least two input states and all must be of type IOUState.");
+        }
+
+        final List<IOUState> outputs = tx.outputsOfType(IOUState.class);
+
+        if (outputs.size() > 1 || outputs.size() != tx.getOutputs().size()) {
+            throw new IllegalArgumentException("There must be at most one output state and it must be of type IOUState.");
+        }
+
+        // IOU specific constraints. The inputs may run either way between the two parties.
+        final Party lender = inputs.get(0).getLender();
+        final Party borrower = inputs.get(0).getBorrower();
+
+        for (IOUState input : inputs) {
+            if (!(input.getLender().equals(lender) && input.getBorrower().equals(borrower))
+                    && !(input.getLender().equals(borrower) && input.getBorrower().equals(lender))) {
+                throw new IllegalArgumentException("All netted IOUs must be between the same two parties.");
+            }
+        }
+
+        final long net = netExposure(inputs, lender);
+
+        if (net == 0) {
+            if (!outputs.isEmpty()) {
+                throw new IllegalArgumentException("No IOU may be created when the netted IOUs cancel out.");
+            }
+        }
+        else {
+            if (outputs.isEmpty()) {
+                throw new IllegalArgumentException("There must be one output state for the net exposure.");
+            }
+
+            final IOUState output = outputs.get(0);
+            final Party netLender = net > 0 ? lender : borrower;
+            final Party netBorrower = net > 0 ? borrower : lender;
+
+            if (!(output.getLender().equals(netLender) && output.getBorrower().equals(netBorrower))) {
+                throw new IllegalArgumentException("The net IOU must be owed to the party that is owed on balance.");
+            }
+
+            if (output.getValue() != Math.abs(net)) {
+                throw new IllegalArgumentException("The net IOU's value must be the net exposure.");
+            }
+
+            verifyIOU(output);
+        }
+
+        // Constraints on the signers.
+        verifySigners(command, lender, borrower);
+    }
+
+    private static void verifyIOU(IOUState iou) {
+        if (iou.getValue() <= 0) {
             throw new IllegalArgumentException("The IOU's value must be non-negative.");
         }
 
-        if (lender.equals(borrower)) {
+        if (iou.getLender().equals(iou.getBorrower())) {
             throw new IllegalArgumentException("The lender and the borrower cannot be the same entity.");
         }
+    }
 
-        // Constraints on the signers.
+    private static void verifySigners(CommandWithParties<IOUContract.Commands> command, Party lender, Party borrower) {
         final List<PublicKey> requiredSigners = command.getSigners();
         final List<PublicKey> expectedSigners = Arrays.asList(borrower.getOwningKey(), lender.getOwningKey());
 
@@ -65,8 +215,55 @@ public class IOUContract implements Contract {
         }
     }
 
+    // Adds the IOUs to the transaction as inputs, along with one IOU for what is owed on balance, and returns that IOU,
+    // or null if they cancel out. The IOUs must all be between the same two parties.
+    public IOUState generateNet(TransactionBuilder tx, List<StateAndRef<IOUState>> ious) {
+        final IOUState first = ious.get(0).getState().getData();
+        final Party lender = first.getLender();
+        final Party borrower = first.getBorrower();
+        final List<IOUState> states = new ArrayList<>(ious.size());
+
+        for (StateAndRef<IOUState> iou : ious) {
+            tx.addInputState(iou);
+            states.add(iou.getState().getData());
+        }
+
+        final long net = netExposure(states, lender);
+
+        if (Math.abs(net) > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("The net exposure is too large for one IOU.");
+        }
+
+        IOUState output = null;
+
+        if (net > 0) {
+            output = new IOUState((int) net, lender, borrower);
+        }
+        else if (net < 0) {
+            output = new IOUState((int) -net, borrower, lender);
+        }
+
+        if (output != null) {
+            tx.addOutputState(output, ID);
+        }
+
+        tx.addCommand(new Command<>(new Net(), Arrays.asList(lender.getOwningKey(), borrower.getOwningKey())));
+        return output;
+    }
+
+    // What the IOUs add up to from the given lender's side: positive if it is owed on balance, negative if it owes.
+    private static long netExposure(List<IOUState> ious, Party lender) {
+        long net = 0;
+
+        for (IOUState iou : ious) {
+            net += iou.getLender().equals(lender) ? iou.getValue() : -iou.getValue();
+        }
+
+        return net;
+    }
+
     // Used to indicate the transaction's intent.
     public interface Commands extends CommandData {
         class Action implements Commands {}
     }
-}
\ No newline at end of file
+}
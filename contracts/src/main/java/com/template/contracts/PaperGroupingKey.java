@@ -0,0 +1,79 @@
+package com.template.contracts;
+
+import net.corda.core.contracts.Amount;
+import net.corda.core.contracts.Issued;
+import net.corda.core.contracts.PartyAndReference;
+
+import java.time.Instant;
+import java.util.Currency;
+import java.util.Objects;
+
+/**
+ * The (issuance, faceValue, maturityDate) triple that paper states are grouped by during verification.
+ *
+ * Grouping used to go through State::withoutOwner, which built a new state and a new AnonymousParty for every input
+ * and output and then hashed the whole thing. This key is built once per state, keeps its hash precomputed, and
+ * leaves the owner out entirely.
+ */
+public final class PaperGroupingKey {
+
+    private final PartyAndReference issuance;
+    private final Amount<Issued<Currency>> faceValue;
+    private final Instant maturityDate;
+    private final int hash;
+
+    public PaperGroupingKey(PartyAndReference issuance, Amount<Issued<Currency>> faceValue, Instant maturityDate) {
+        this.issuance = issuance;
+        this.faceValue = faceValue;
+        this.maturityDate = maturityDate;
+
+        int result = issuance != null ? issuance.hashCode() : 0;
+        result = 31 * result + (faceValue != null ? faceValue.hashCode() : 0);
+        result = 31 * result + (maturityDate != null ? maturityDate.hashCode() : 0);
+        this.hash = result;
+    }
+
+    public PartyAndReference getIssuance() {
+        return this.issuance;
+    }
+
+    public Amount<Issued<Currency>> getFaceValue() {
+        return this.faceValue;
+    }
+
+    public Instant getMaturityDate() {
+        return this.maturityDate;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+
+        if (!(o instanceof PaperGroupingKey)) {
+            return false;
+        }
+
+        PaperGroupingKey key = (PaperGroupingKey) o;
+
+        // Cheap rejection first, most keys in a large transaction differ.
+        if (this.hash != key.hash) {
+            return false;
+        }
+
+        return Objects.equals(this.maturityDate, key.maturityDate)
+                && Objects.equals(this.faceValue, key.faceValue)
+                && Objects.equals(this.issuance, key.issuance);
+    }
+
+    @Override
+    public int hashCode() {
+        return this.hash;
+    }
+
+    @Override
+    public String toString() {
+        return "PaperGroupingKey(issuance=" + this.issuance + ", faceValue=" + this.faceValue + ", maturityDate=" + this.maturityDate + ")";
+    }
+}
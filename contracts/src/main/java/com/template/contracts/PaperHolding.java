@@ -0,0 +1,283 @@
+package com.template.contracts;
+
+import com.google.common.collect.ImmutableList;
+import com.template.schemas.PaperHoldingSchemaV1;
+import net.corda.core.contracts.*;
+import net.corda.core.identity.AbstractParty;
+import net.corda.core.node.ServiceHub;
+import net.corda.core.node.services.StatesNotAvailableException;
+import net.corda.core.schemas.MappedSchema;
+import net.corda.core.schemas.PersistentState;
+import net.corda.core.schemas.QueryableState;
+import net.corda.core.transactions.LedgerTransaction;
+import net.corda.core.transactions.TransactionBuilder;
+import net.corda.finance.contracts.asset.Cash;
+import org.jetbrains.annotations.NotNull;
+
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Currency;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Commercial paper held as a quantity rather than one state per paper. Every paper with the same issuer reference,
+ * currency and maturity is interchangeable, so a holder needs one state per program however many units it holds, and a
+ * move takes as many inputs as it takes holdings to cover the amount, not one per unit.
+ *
+ * The quantity is the face value held, in the currency's smallest unit. Once the program has matured the issuer redeems
+ * holdings for that much cash, issued under the same reference as the paper.
+ */
+public class PaperHolding implements Contract {
+
+    public static final String PAPER_HOLDING_CONTRACT_ID = "com.template.contracts.PaperHolding";
+
+    private static final GroupedContractVerifier<State, Issued<PaperProgram>, Commands> VERIFIER =
+            new GroupedContractVerifier<>(State.class, state -> state.getAmount().getToken(), Commands.class)
+                    .register(Commands.Issue.class, PaperHoldingRules.Issue::new)
+                    .register(Commands.Move.class, PaperHoldingRules.Move::new)
+                    .register(Commands.Split.class, PaperHoldingRules.Split::new)
+                    .register(Commands.Merge.class, PaperHoldingRules.Merge::new)
+                    .register(Commands.Redeem.class, PaperHoldingRules.Redeem::new);
+
+    @Override
+    public void verify(@NotNull LedgerTransaction tx) throws IllegalArgumentException {
+        VERIFIER.verify(tx);
+    }
+
+    /**
+     * Issues a holding of a program to its first owner. The caller sets a time window that closes before maturity.
+     */
+    public void generateIssue(TransactionBuilder tx, Amount<Issued<PaperProgram>> amount, AbstractParty owner) {
+        tx.addOutputState(new State(amount, owner), PAPER_HOLDING_CONTRACT_ID);
+        tx.addCommand(new Command<CommandData>(new Commands.Issue(), amount.getToken().getIssuer().getParty().getOwningKey()));
+    }
+
+    /**
+     * Moves part or all of what we hold of a program to a new owner. Holdings are chosen and soft-locked by
+     * {@link PaperHoldingSelector}, and whatever they hold beyond the amount comes back to us as a single change state.
+     */
+    public void generateMove(TransactionBuilder tx, ServiceHub services, Amount<Issued<PaperProgram>> amount, AbstractParty newOwner)
+            throws InsufficientBalanceException, StatesNotAvailableException {
+        Set<PublicKey> ownerKeys = new LinkedHashSet<>();
+        AbstractParty changeOwner = null;
+        long held = 0;
+
+        for (StateAndRef<State> holding : PaperHoldingSelector.select(services, tx.getLockId(), tx.getNotary(), amount)) {
+            tx.addInputState(holding);
+            held = Math.addExact(held, holding.getState().getData().getAmount().getQuantity());
+            ownerKeys.add(holding.getState().getData().getOwner().getOwningKey());
+            changeOwner = holding.getState().getData().getOwner();
+        }
+
+        tx.addOutputState(new State(amount, newOwner), PAPER_HOLDING_CONTRACT_ID);
+
+        if (held > amount.getQuantity()) {
+            tx.addOutputState(new State(new Amount<>(held - amount.getQuantity(), amount.getToken()), changeOwner), PAPER_HOLDING_CONTRACT_ID);
+        }
+
+        tx.addCommand(new Command<CommandData>(new Commands.Move(), new ArrayList<>(ownerKeys)));
+    }
+
+    /**
+     * Splits one holding into several with the given quantities, which must add up to what it holds.
+     */
+    public void generateSplit(TransactionBuilder tx, StateAndRef<State> holding, List<Long> quantities) {
+        State state = holding.getState().getData();
+        tx.addInputState(holding);
+
+        for (long quantity : quantities) {
+            tx.addOutputState(state.withQuantity(quantity), PAPER_HOLDING_CONTRACT_ID);
+        }
+
+        tx.addCommand(new Command<CommandData>(new Commands.Split(), state.getOwner().getOwningKey()));
+    }
+
+    /**
+     * Merges holdings of the same program and owner into one.
+     */
+    public void generateMerge(TransactionBuilder tx, List<StateAndRef<State>> holdings) {
+        State first = holdings.get(0).getState().getData();
+        long total = 0;
+
+        for (StateAndRef<State> holding : holdings) {
+            tx.addInputState(holding);
+            total = Math.addExact(total, holding.getState().getData().getAmount().getQuantity());
+        }
+
+        tx.addOutputState(first.withQuantity(total), PAPER_HOLDING_CONTRACT_ID);
+        tx.addCommand(new Command<CommandData>(new Commands.Merge(), first.getOwner().getOwningKey()));
+    }
+
+    /**
+     * Redeems matured holdings, paying each owner its face value out of our cash. As with CommercialPaper there is one
+     * payment per owner and currency, out of coins chosen and soft-locked by {@link RedemptionCoinSelector}. The caller
+     * sets a time window that opens after maturity.
+     *
+     * @throws StatesNotAvailableException if concurrent flows kept taking the coins. Worth retrying after a pause.
+     */
+    public void generateRedeem(TransactionBuilder tx, List<StateAndRef<State>> holdings, ServiceHub services)
+            throws InsufficientBalanceException, StatesNotAvailableException {
+        Map<AbstractParty, Map<Issued<Currency>, long[]>> payments = new LinkedHashMap<>();
+        Set<PublicKey> ownerKeys = new LinkedHashSet<>();
+
+        for (StateAndRef<State> holding : holdings) {
+            State state = holding.getState().getData();
+            Map<Issued<Currency>, long[]> byToken = payments.computeIfAbsent(state.getOwner(), owner -> new LinkedHashMap<>());
+            long[] total = byToken.computeIfAbsent(PaperHoldingRules.payableIn(state), token -> new long[1]);
+            total[0] = Math.addExact(total[0], state.getAmount().getQuantity());
+
+            tx.addInputState(holding);
+            ownerKeys.add(state.getOwner().getOwningKey());
+        }
+
+        Set<PublicKey> cashSigners = new LinkedHashSet<>();
+
+        for (Map.Entry<AbstractParty, Map<Issued<Currency>, long[]>> payment : payments.entrySet()) {
+            for (Map.Entry<Issued<Currency>, long[]> amount : payment.getValue().entrySet()) {
+                RedemptionCoinSelector.generatePayment(services, tx, payment.getKey(), new Amount<>(amount.getValue()[0], amount.getKey()), cashSigners);
+            }
+        }
+
+        tx.addCommand(new Command<CommandData>(new Cash.Commands.Move(), new ArrayList<>(cashSigners)));
+        tx.addCommand(new Command<CommandData>(new Commands.Redeem(), new ArrayList<>(ownerKeys)));
+    }
+
+    public static class State implements FungibleAsset<PaperProgram>, QueryableState {
+
+        private final Amount<Issued<PaperProgram>> amount;
+        private final AbstractParty owner;
+
+        public State(Amount<Issued<PaperProgram>> amount, AbstractParty owner) {
+            this.amount = amount;
+            this.owner = owner;
+        }
+
+        @NotNull
+        @Override
+        public Amount<Issued<PaperProgram>> getAmount() {
+            return this.amount;
+        }
+
+        @NotNull
+        @Override
+        public AbstractParty getOwner() {
+            return this.owner;
+        }
+
+        public PaperProgram getProgram() {
+            return this.amount.getToken().getProduct();
+        }
+
+        public State withQuantity(long quantity) {
+            return new State(new Amount<>(quantity, this.amount.getToken()), this.owner);
+        }
+
+        @NotNull
+        @Override
+        public Collection<PublicKey> getExitKeys() {
+            return ImmutableList.of(this.owner.getOwningKey(), this.amount.getToken().getIssuer().getParty().getOwningKey());
+        }
+
+        @NotNull
+        @Override
+        public FungibleAsset<PaperProgram> withNewOwnerAndAmount(@NotNull Amount<Issued<PaperProgram>> newAmount, @NotNull AbstractParty newOwner) {
+            return new State(newAmount, newOwner);
+        }
+
+        @NotNull
+        @Override
+        public CommandAndState withNewOwner(@NotNull AbstractParty newOwner) {
+            return new CommandAndState(new Commands.Move(), new State(this.amount, newOwner));
+        }
+
+        @NotNull
+        @Override
+        public List<AbstractParty> getParticipants() {
+            return ImmutableList.of(this.owner);
+        }
+
+        @NotNull
+        @Override
+        public PersistentState generateMappedObject(@NotNull MappedSchema schema) {
+            if (schema instanceof PaperHoldingSchemaV1) {
+                return new PaperHoldingSchemaV1.PersistentPaperHolding(this);
+            }
+            else {
+                throw new IllegalArgumentException("Unrecognised schema " + schema);
+            }
+        }
+
+        @NotNull
+        @Override
+        public Iterable<MappedSchema> supportedSchemas() {
+            return ImmutableList.of(new PaperHoldingSchemaV1());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+
+            State state = (State) o;
+            return Objects.equals(this.amount, state.amount) && Objects.equals(this.owner, state.owner);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.amount, this.owner);
+        }
+
+        @Override
+        public String toString() {
+            return "PaperHolding(" + this.amount + " owned by " + this.owner + ")";
+        }
+    }
+
+    public static class Commands implements CommandData {
+        public static class Issue extends Commands {
+            @Override
+            public boolean equals(Object o) {
+                return o instanceof Issue;
+            }
+        }
+
+        public static class Move extends Commands {
+            @Override
+            public boolean equals(Object o) {
+                return o instanceof Move;
+            }
+        }
+
+        public static class Split extends Commands {
+            @Override
+            public boolean equals(Object o) {
+                return o instanceof Split;
+            }
+        }
+
+        public static class Merge extends Commands {
+            @Override
+            public boolean equals(Object o) {
+                return o instanceof Merge;
+            }
+        }
+
+        public static class Redeem extends Commands {
+            @Override
+            public boolean equals(Object o) {
+                return o instanceof Redeem;
+            }
+        }
+    }
+}
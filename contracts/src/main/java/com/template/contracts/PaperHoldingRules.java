@@ -0,0 +1,173 @@
+package com.template.contracts;
+
+import net.corda.core.contracts.Issued;
+import net.corda.core.contracts.TimeWindow;
+import net.corda.core.identity.AbstractParty;
+
+import java.time.Instant;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.template.contracts.GroupedContractVerifier.require;
+
+/**
+ * The command rules of {@link PaperHolding}. States are grouped by their issued program, so within a group every
+ * holding is interchangeable and only quantities and owners need checking.
+ */
+final class PaperHoldingRules {
+
+    private PaperHoldingRules() {
+    }
+
+    static class Issue implements CommandRule<PaperHolding.State> {
+
+        private Instant time;
+
+        @Override
+        public void begin(VerificationContext context) {
+            TimeWindow timeWindow = context.getTimeWindow();
+
+            if (timeWindow == null) {
+                throw new IllegalArgumentException("issuances must have a time window");
+            }
+
+            this.time = timeWindow.getUntilTime();
+        }
+
+        @Override
+        public void verifyGroup(VerificationContext context, List<PaperHolding.State> inputs, List<PaperHolding.State> outputs) {
+            PaperHolding.State output = outputs.isEmpty() ? null : outputs.get(0);
+
+            require("can't reissue an existing state", inputs.isEmpty());
+            require("output states are issued by a command signer", output != null && context.isSignedBy(output.getAmount().getToken().getIssuer().getParty().getOwningKey()));
+            require("output quantities are positive", allPositive(outputs));
+            require("the maturity date is not in the past", this.time != null && this.time.isBefore(output.getProgram().getMaturityDate()));
+        }
+    }
+
+    /**
+     * Any number of holdings in and out, for partial moves with change. Nothing may be created or destroyed.
+     */
+    static class Move implements CommandRule<PaperHolding.State> {
+        @Override
+        public void verifyGroup(VerificationContext context, List<PaperHolding.State> inputs, List<PaperHolding.State> outputs) {
+            require("there is something to move", !inputs.isEmpty());
+            require("the transaction is signed by the owner of every holding", signedByOwners(context, inputs));
+            require("output quantities are positive", allPositive(outputs));
+            require("the quantity is conserved", sum(inputs) == sum(outputs));
+        }
+    }
+
+    static class Split implements CommandRule<PaperHolding.State> {
+        @Override
+        public void verifyGroup(VerificationContext context, List<PaperHolding.State> inputs, List<PaperHolding.State> outputs) {
+            require("one holding is split", inputs.size() == 1);
+            require("it is split into several", outputs.size() > 1);
+            require("the owner doesn't change", sameOwner(inputs.get(0).getOwner(), outputs));
+            require("the transaction is signed by the owner of the holding", signedByOwners(context, inputs));
+            require("output quantities are positive", allPositive(outputs));
+            require("the quantity is conserved", sum(inputs) == sum(outputs));
+        }
+    }
+
+    static class Merge implements CommandRule<PaperHolding.State> {
+        @Override
+        public void verifyGroup(VerificationContext context, List<PaperHolding.State> inputs, List<PaperHolding.State> outputs) {
+            require("several holdings are merged", inputs.size() > 1);
+            require("they are merged into one", outputs.size() == 1);
+            require("the owner doesn't change", sameOwner(outputs.get(0).getOwner(), inputs));
+            require("the transaction is signed by the owner of the holdings", signedByOwners(context, inputs));
+            require("the quantity is conserved", sum(inputs) == sum(outputs));
+        }
+    }
+
+    /**
+     * Takes matured holdings off the ledger against their face value in cash, paid to each owner in the program's
+     * currency under the issuer's reference. The cash is checked the same way as for {@link PaperRules.Redeem}.
+     */
+    static class Redeem implements CommandRule<PaperHolding.State> {
+
+        private final Map<PaperRules.OwnerAndToken, long[]> owed = new HashMap<>();
+        private Instant time;
+
+        @Override
+        public void begin(VerificationContext context) {
+            TimeWindow timeWindow = context.getTimeWindow();
+
+            if (timeWindow == null) {
+                throw new IllegalArgumentException("redemptions must be timestamped");
+            }
+
+            this.time = timeWindow.getFromTime();
+        }
+
+        @Override
+        public void verifyGroup(VerificationContext context, List<PaperHolding.State> inputs, List<PaperHolding.State> outputs) {
+            boolean matured = true;
+
+            for (PaperHolding.State input : inputs) {
+                matured &= this.time != null && this.time.isAfter(input.getProgram().getMaturityDate());
+                PaperRules.addTo(this.owed, new PaperRules.OwnerAndToken(input.getOwner().getOwningKey(), payableIn(input)), input.getAmount().getQuantity());
+            }
+
+            require("there is something to redeem", !inputs.isEmpty());
+            require("the paper must have matured", matured);
+            require("the paper must be destroyed", outputs.isEmpty());
+            require("the transaction is signed by the owner of every holding", signedByOwners(context, inputs));
+        }
+
+        @Override
+        public void end(VerificationContext context) {
+            require("the received amount equals the face value", PaperRules.paidInFull(context, this.owed));
+        }
+    }
+
+    /**
+     * The cash a holding is redeemed for: the program's currency, issued under the same reference as the paper.
+     */
+    static Issued<Currency> payableIn(PaperHolding.State holding) {
+        return new Issued<>(holding.getAmount().getToken().getIssuer(), holding.getProgram().getCurrency());
+    }
+
+    private static long sum(List<PaperHolding.State> holdings) {
+        long total = 0;
+
+        for (PaperHolding.State holding : holdings) {
+            total = Math.addExact(total, holding.getAmount().getQuantity());
+        }
+
+        return total;
+    }
+
+    private static boolean allPositive(List<PaperHolding.State> holdings) {
+        boolean positive = true;
+
+        for (PaperHolding.State holding : holdings) {
+            positive &= holding.getAmount().getQuantity() > 0;
+        }
+
+        return positive;
+    }
+
+    private static boolean sameOwner(AbstractParty owner, List<PaperHolding.State> holdings) {
+        boolean same = true;
+
+        for (PaperHolding.State holding : holdings) {
+            same &= holding.getOwner().equals(owner);
+        }
+
+        return same;
+    }
+
+    private static boolean signedByOwners(VerificationContext context, List<PaperHolding.State> holdings) {
+        boolean signed = true;
+
+        for (PaperHolding.State holding : holdings) {
+            signed &= context.isSignedBy(holding.getOwner().getOwningKey());
+        }
+
+        return signed;
+    }
+}
@@ -0,0 +1,100 @@
+package com.template.contracts;
+
+import com.template.schemas.PaperHoldingSchemaV1;
+import net.corda.core.contracts.Amount;
+import net.corda.core.contracts.InsufficientBalanceException;
+import net.corda.core.contracts.Issued;
+import net.corda.core.contracts.StateAndRef;
+import net.corda.core.contracts.StateRef;
+import net.corda.core.identity.AbstractParty;
+import net.corda.core.identity.Party;
+import net.corda.core.node.ServiceHub;
+import net.corda.core.node.services.StatesNotAvailableException;
+import net.corda.core.node.services.Vault;
+import net.corda.core.node.services.vault.Builder;
+import net.corda.core.node.services.vault.PageSpecification;
+import net.corda.core.node.services.vault.QueryCriteria;
+import net.corda.core.utilities.NonEmptySet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+import static net.corda.core.node.services.vault.QueryCriteriaUtils.getField;
+
+/**
+ * Picks our holdings of one paper program to cover a partial move, the same way {@link RedemptionCoinSelector} picks
+ * cash: unlocked holdings on the transaction's notary, one that covers the amount if there is one, else the largest
+ * first, soft-locked under the transaction's lock id.
+ */
+public final class PaperHoldingSelector {
+
+    private static final Logger logger = LoggerFactory.getLogger(PaperHoldingSelector.class);
+    private static final int CANDIDATES = 200;
+    private static final int ATTEMPTS = 3;
+
+    private PaperHoldingSelector() {
+    }
+
+    /**
+     * Selects and soft-locks holdings of the amount's program that add up to at least the amount.
+     *
+     * @throws InsufficientBalanceException if the holdings not locked by other flows don't add up to the amount.
+     * @throws StatesNotAvailableException if other flows kept locking the chosen holdings first.
+     */
+    public static List<StateAndRef<PaperHolding.State>> select(ServiceHub services, UUID lockId, Party notary, Amount<Issued<PaperProgram>> target)
+            throws InsufficientBalanceException, StatesNotAvailableException {
+        StatesNotAvailableException lastConflict = null;
+
+        for (int attempt = 1; attempt <= ATTEMPTS; attempt++) {
+            List<StateAndRef<PaperHolding.State>> holdings = RedemptionCoinSelector.choose(candidates(services, lockId, notary, target), target);
+
+            try {
+                List<StateRef> refs = new ArrayList<>(holdings.size());
+                holdings.forEach(holding -> refs.add(holding.getRef()));
+                services.getVaultService().softLockReserve(lockId, NonEmptySet.copyOf(refs));
+                return holdings;
+            } catch (StatesNotAvailableException e) {
+                logger.debug("Holdings for {} were locked by another flow, attempt {} of {}", target, attempt, ATTEMPTS);
+                lastConflict = e;
+            }
+        }
+
+        throw lastConflict;
+    }
+
+    private static List<StateAndRef<PaperHolding.State>> candidates(ServiceHub services, UUID lockId, Party notary, Amount<Issued<PaperProgram>> target) {
+        Issued<PaperProgram> token = target.getToken();
+        List<AbstractParty> us = new ArrayList<>(services.getMyInfo().getLegalIdentities());
+
+        QueryCriteria criteria = new QueryCriteria.VaultQueryCriteria(
+                Vault.StateStatus.UNCONSUMED,
+                null,
+                null,
+                Collections.singletonList(notary),
+                new QueryCriteria.SoftLockingCondition(QueryCriteria.SoftLockingType.UNLOCKED_AND_SPECIFIED, Collections.singletonList(lockId))
+        ).and(new QueryCriteria.FungibleAssetQueryCriteria(
+                null,
+                us,
+                null,
+                Collections.singletonList(token.getIssuer().getParty()),
+                Collections.singletonList(token.getIssuer().getReference())
+        )).and(new QueryCriteria.VaultCustomQueryCriteria(
+                Builder.equal(getField("currency", PaperHoldingSchemaV1.PersistentPaperHolding.class), token.getProduct().getCurrency().getCurrencyCode())
+        )).and(new QueryCriteria.VaultCustomQueryCriteria(
+                Builder.equal(getField("maturity", PaperHoldingSchemaV1.PersistentPaperHolding.class), token.getProduct().getMaturityDate())
+        ));
+
+        List<StateAndRef<PaperHolding.State>> candidates = new ArrayList<>(services.getVaultService()
+                .queryBy(PaperHolding.State.class, criteria, new PageSpecification(1, CANDIDATES))
+                .getStates());
+
+        candidates.removeIf(holding -> !holding.getState().getData().getAmount().getToken().equals(token));
+        candidates.sort(Comparator.comparingLong(holding -> holding.getState().getData().getAmount().getQuantity()));
+        return candidates;
+    }
+}
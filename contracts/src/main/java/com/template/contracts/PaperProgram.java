@@ -0,0 +1,55 @@
+package com.template.contracts;
+
+import net.corda.core.serialization.CordaSerializable;
+
+import java.time.Instant;
+import java.util.Currency;
+import java.util.Objects;
+
+/**
+ * What makes one unit of commercial paper interchangeable with another: the currency it pays out in and the day it
+ * matures. Wrapped in an Issued, together with the issuer's reference, it is the token of a {@link PaperHolding}.
+ */
+@CordaSerializable
+public final class PaperProgram {
+
+    private final Currency currency;
+    private final Instant maturityDate;
+
+    public PaperProgram(Currency currency, Instant maturityDate) {
+        this.currency = currency;
+        this.maturityDate = maturityDate;
+    }
+
+    public Currency getCurrency() {
+        return this.currency;
+    }
+
+    public Instant getMaturityDate() {
+        return this.maturityDate;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+
+        if (!(o instanceof PaperProgram)) {
+            return false;
+        }
+
+        PaperProgram program = (PaperProgram) o;
+        return this.currency.equals(program.currency) && this.maturityDate.equals(program.maturityDate);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(this.currency, this.maturityDate);
+    }
+
+    @Override
+    public String toString() {
+        return this.currency.getCurrencyCode() + " maturing " + this.maturityDate;
+    }
+}
@@ -0,0 +1,218 @@
+package com.template.contracts;
+
+import net.corda.core.contracts.ContractState;
+import net.corda.core.contracts.Issued;
+import net.corda.core.contracts.TimeWindow;
+import net.corda.core.contracts.TransactionState;
+import net.corda.finance.contracts.asset.Cash;
+
+import java.security.PublicKey;
+import java.time.Instant;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.template.contracts.GroupedContractVerifier.require;
+
+/**
+ * The command rules shared by CommercialPaper and DummyContract. Register them with a {@link GroupedContractVerifier}.
+ */
+public final class PaperRules {
+
+    private PaperRules() {
+    }
+
+    public static class Move<S extends PaperState> implements CommandRule<S> {
+        @Override
+        public void verifyGroup(VerificationContext context, List<S> inputs, List<S> outputs) {
+            require("the transaction is signed by the owner of the CP", !inputs.isEmpty() && context.isSignedBy(inputs.get(0).getOwner().getOwningKey()));
+            // Don't need to check anything else, if outputs.size == 1 then the output is equal to the input (ignoring the owner field) due to the grouping.
+            require("the state is propagated", outputs.size() == 1);
+        }
+    }
+
+    public static class BulkMove<S extends PaperState> implements CommandRule<S> {
+        @Override
+        public void verifyGroup(VerificationContext context, List<S> inputs, List<S> outputs) {
+            boolean signedByOwners = true;
+
+            for (S input : inputs) {
+                signedByOwners &= context.isSignedBy(input.getOwner().getOwningKey());
+            }
+
+            require("the transaction is signed by the owner of every CP", signedByOwners);
+            // Identical papers share a group, so a group may carry several states, but none may appear or vanish.
+            require("the states are propagated", !inputs.isEmpty() && outputs.size() == inputs.size());
+        }
+    }
+
+    /**
+     * Redemption of the paper requires the movement of on-ledger cash. What each owner is owed is totalled across all
+     * groups, and checked in end() against a single pass over the cash outputs.
+     */
+    public static class Redeem<S extends PaperState> implements CommandRule<S> {
+
+        private final Map<OwnerAndToken, long[]> owed = new HashMap<>();
+        private Instant time;
+
+        @Override
+        public void begin(VerificationContext context) {
+            TimeWindow timeWindow = context.getTimeWindow();
+
+            if (timeWindow == null) {
+                throw new IllegalArgumentException("redemptions must be timestamped");
+            }
+
+            this.time = timeWindow.getFromTime();
+        }
+
+        @Override
+        public void verifyGroup(VerificationContext context, List<S> inputs, List<S> outputs) {
+            boolean matured = true;
+            boolean signedByOwners = true;
+
+            for (S input : inputs) {
+                matured &= this.time != null && this.time.isAfter(input.getMaturityDate());
+                signedByOwners &= context.isSignedBy(input.getOwner().getOwningKey());
+                addTo(this.owed, new OwnerAndToken(input.getOwner().getOwningKey(), input.getFaceValue().getToken()), input.getFaceValue().getQuantity());
+            }
+
+            require("the paper must have matured", matured);
+            require("the paper must be destroyed", outputs.isEmpty());
+            require("the transaction is signed by the owner of the CP", signedByOwners);
+        }
+
+        @Override
+        public void end(VerificationContext context) {
+            require("the received amount equals the face value", paidInFull(context, this.owed));
+        }
+    }
+
+    public static class Issue<S extends PaperState> implements CommandRule<S> {
+
+        private Instant time;
+
+        @Override
+        public void begin(VerificationContext context) {
+            TimeWindow timeWindow = context.getTimeWindow();
+
+            if (timeWindow == null) {
+                throw new IllegalArgumentException("issuances must have a time window");
+            }
+
+            this.time = timeWindow.getUntilTime();
+        }
+
+        @Override
+        public void verifyGroup(VerificationContext context, List<S> inputs, List<S> outputs) {
+            S output = outputs.isEmpty() ? null : outputs.get(0);
+
+            // Don't allow people to issue commercial paper under other entities' identities.
+            require("output states are issued by a command signer", output != null && context.isSignedBy(output.getIssuance().getParty().getOwningKey()));
+            require("output values sum to more than the inputs", output.getFaceValue().getQuantity() > 0);
+            require("the maturity date is not in the past", this.time != null && this.time.isBefore(output.getMaturityDate()));
+            // Don't allow an existing CP state to be replaced by this issuance.
+            require("can't reissue an existing state", inputs.isEmpty());
+        }
+    }
+
+    /**
+     * Destroys papers without any cash changing hands, so that the issuer can reissue them with no back-chain. The
+     * issuer has to agree as well as the owner, since the paper is its liability.
+     */
+    public static class Exit<S extends PaperState> implements CommandRule<S> {
+        @Override
+        public void verifyGroup(VerificationContext context, List<S> inputs, List<S> outputs) {
+            boolean signedByOwnersAndIssuer = true;
+
+            for (S input : inputs) {
+                signedByOwnersAndIssuer &= context.isSignedBy(input.getOwner().getOwningKey())
+                        && context.isSignedBy(input.getIssuance().getParty().getOwningKey());
+            }
+
+            require("the paper must be destroyed", !inputs.isEmpty() && outputs.isEmpty());
+            require("the transaction is signed by the owner and the issuer of the CP", signedByOwnersAndIssuer);
+        }
+    }
+
+    /**
+     * Whether the cash outputs pay every owner exactly what it is owed, in the issued currency it is owed in. Also used
+     * by {@link PaperHolding}'s redemptions.
+     */
+    static boolean paidInFull(VerificationContext context, Map<OwnerAndToken, long[]> owed) {
+        Map<OwnerAndToken, long[]> received = sumCashByOwner(context, owed);
+        boolean paid = true;
+
+        for (Map.Entry<OwnerAndToken, long[]> entry : owed.entrySet()) {
+            long[] total = received.get(entry.getKey());
+            paid &= total != null && total[0] == entry.getValue()[0];
+        }
+
+        return paid;
+    }
+
+    /**
+     * Totals the cash outputs by (owner, issued currency) in a single pass. Only owners in the owed map are counted,
+     * so change and unrelated payments cost a lookup and nothing else.
+     */
+    private static Map<OwnerAndToken, long[]> sumCashByOwner(VerificationContext context, Map<OwnerAndToken, long[]> owed) {
+        Map<OwnerAndToken, long[]> received = new HashMap<>(owed.size() * 2);
+
+        for (TransactionState<ContractState> output : context.getTransaction().getOutputs()) {
+            if (output.getData() instanceof Cash.State) {
+                Cash.State cash = (Cash.State) output.getData();
+                OwnerAndToken key = new OwnerAndToken(cash.getOwner().getOwningKey(), cash.getAmount().getToken());
+
+                if (owed.containsKey(key)) {
+                    addTo(received, key, cash.getAmount().getQuantity());
+                }
+            }
+        }
+
+        return received;
+    }
+
+    static void addTo(Map<OwnerAndToken, long[]> totals, OwnerAndToken key, long quantity) {
+        long[] total = totals.get(key);
+
+        if (total == null) {
+            totals.put(key, new long[] { quantity });
+        }
+        else {
+            total[0] = Math.addExact(total[0], quantity);
+        }
+    }
+
+    /**
+     * Key for the redemption cash totals: who gets paid, and in which issued currency.
+     */
+    static final class OwnerAndToken {
+        private final PublicKey owner;
+        private final Issued<Currency> token;
+
+        OwnerAndToken(PublicKey owner, Issued<Currency> token) {
+            this.owner = owner;
+            this.token = token;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+
+            if (!(o instanceof OwnerAndToken)) {
+                return false;
+            }
+
+            OwnerAndToken key = (OwnerAndToken) o;
+            return this.owner.equals(key.owner) && this.token.equals(key.token);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * this.owner.hashCode() + this.token.hashCode();
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.template.contracts;
+
+import net.corda.core.contracts.Amount;
+import net.corda.core.contracts.Issued;
+import net.corda.core.contracts.OwnableState;
+import net.corda.core.contracts.PartyAndReference;
+
+import java.time.Instant;
+import java.util.Currency;
+
+/**
+ * What the shared paper rules in {@link PaperRules} need to know about a state. Implemented by CommercialPaper.State
+ * and DummyContract.State.
+ */
+public interface PaperState extends OwnableState {
+
+    PartyAndReference getIssuance();
+
+    Amount<Issued<Currency>> getFaceValue();
+
+    Instant getMaturityDate();
+
+    PaperGroupingKey groupingKey();
+}
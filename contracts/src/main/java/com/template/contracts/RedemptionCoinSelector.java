@@ -0,0 +1,180 @@
+package com.template.contracts;
+
+import net.corda.core.contracts.Amount;
+import net.corda.core.contracts.FungibleAsset;
+import net.corda.core.contracts.InsufficientBalanceException;
+import net.corda.core.contracts.Issued;
+import net.corda.core.contracts.StateAndRef;
+import net.corda.core.contracts.StateRef;
+import net.corda.core.identity.AbstractParty;
+import net.corda.core.identity.Party;
+import net.corda.core.node.ServiceHub;
+import net.corda.core.node.services.StatesNotAvailableException;
+import net.corda.core.node.services.Vault;
+import net.corda.core.node.services.vault.Builder;
+import net.corda.core.node.services.vault.PageSpecification;
+import net.corda.core.node.services.vault.QueryCriteria;
+import net.corda.core.transactions.TransactionBuilder;
+import net.corda.core.utilities.NonEmptySet;
+import net.corda.finance.contracts.asset.Cash;
+import net.corda.finance.schemas.CashSchemaV1;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Currency;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static net.corda.core.node.services.vault.QueryCriteriaUtils.getField;
+
+/**
+ * Picks the cash for a redemption. It replaces CashUtils.generateSpend, which chose coins without regard to what
+ * other flows had in hand.
+ *
+ * Only coins of exactly the paper's issued currency, on the transaction's notary and not soft-locked by another flow
+ * are considered. From those it takes a coin of exactly the right amount if there is one, then the smallest coin that
+ * covers the amount, and only then several coins, largest first. The chosen coins are soft-locked under the
+ * transaction's lock id, which is the flow's id, so concurrent redemptions on the same node never pick the same coin.
+ *
+ * Coins already locked under the same id are candidates too, so that a flow can select again after building part of a
+ * transaction. Coins the transaction already spends must therefore be excluded by the caller, as
+ * {@link #generatePayment} does, or a second payment in the same transaction could pick the same coin.
+ *
+ * If another flow locks a chosen coin between the query and the reservation, the selection is run again straight
+ * away, a few times. Waiting longer than that is up to the flow, which can sleep without holding a thread.
+ */
+public final class RedemptionCoinSelector {
+
+    private static final Logger logger = LoggerFactory.getLogger(RedemptionCoinSelector.class);
+    private static final int CANDIDATES = 200;
+    private static final int ATTEMPTS = 3;
+
+    private RedemptionCoinSelector() {
+    }
+
+    /**
+     * Selects and soft-locks coins worth at least the target.
+     *
+     * @throws InsufficientBalanceException if the coins not locked by other flows don't add up to the target.
+     * @throws StatesNotAvailableException if other flows kept locking the chosen coins first.
+     */
+    public static List<StateAndRef<Cash.State>> select(ServiceHub services, UUID lockId, Party notary, Amount<Issued<Currency>> target)
+            throws InsufficientBalanceException, StatesNotAvailableException {
+        return select(services, lockId, notary, target, Collections.emptySet());
+    }
+
+    /**
+     * Selects and soft-locks coins worth at least the target, leaving out the excluded coins, which are usually the
+     * ones the transaction already spends.
+     */
+    public static List<StateAndRef<Cash.State>> select(ServiceHub services, UUID lockId, Party notary, Amount<Issued<Currency>> target, Collection<StateRef> excluded)
+            throws InsufficientBalanceException, StatesNotAvailableException {
+        StatesNotAvailableException lastConflict = null;
+        Set<StateRef> skip = new HashSet<>(excluded);
+
+        for (int attempt = 1; attempt <= ATTEMPTS; attempt++) {
+            List<StateAndRef<Cash.State>> coins = choose(candidates(services, lockId, notary, target, skip), target);
+
+            try {
+                List<StateRef> refs = new ArrayList<>(coins.size());
+                coins.forEach(coin -> refs.add(coin.getRef()));
+                services.getVaultService().softLockReserve(lockId, NonEmptySet.copyOf(refs));
+                return coins;
+            } catch (StatesNotAvailableException e) {
+                logger.debug("Coins for {} were locked by another flow, attempt {} of {}", target, attempt, ATTEMPTS);
+                lastConflict = e;
+            }
+        }
+
+        throw lastConflict;
+    }
+
+    /**
+     * Pays the amount to the payee out of coins chosen by {@link #select}, with any change going back to us, and adds
+     * the coins' owners to cashSigners for the caller's Cash Move command.
+     */
+    static void generatePayment(ServiceHub services, TransactionBuilder tx, AbstractParty payee, Amount<Issued<Currency>> amount, Set<PublicKey> cashSigners)
+            throws InsufficientBalanceException, StatesNotAvailableException {
+        long paid = 0;
+
+        // The coins of earlier payments in this transaction are locked under its id, so they have to be ruled out here.
+        for (StateAndRef<Cash.State> coin : select(services, tx.getLockId(), tx.getNotary(), amount, tx.inputStates())) {
+            tx.addInputState(coin);
+            paid = Math.addExact(paid, coin.getState().getData().getAmount().getQuantity());
+            cashSigners.add(coin.getState().getData().getOwner().getOwningKey());
+        }
+
+        tx.addOutputState(new Cash.State(amount, payee), Cash.PROGRAM_ID);
+
+        if (paid > amount.getQuantity()) {
+            Amount<Issued<Currency>> change = new Amount<>(paid - amount.getQuantity(), amount.getToken());
+            tx.addOutputState(new Cash.State(change, services.getMyInfo().getLegalIdentities().get(0)), Cash.PROGRAM_ID);
+        }
+    }
+
+    private static List<StateAndRef<Cash.State>> candidates(ServiceHub services, UUID lockId, Party notary, Amount<Issued<Currency>> target, Set<StateRef> excluded) {
+        Issued<Currency> token = target.getToken();
+        List<AbstractParty> us = new ArrayList<>(services.getMyInfo().getLegalIdentities());
+
+        QueryCriteria criteria = new QueryCriteria.VaultQueryCriteria(
+                Vault.StateStatus.UNCONSUMED,
+                null,
+                null,
+                Collections.singletonList(notary),
+                new QueryCriteria.SoftLockingCondition(QueryCriteria.SoftLockingType.UNLOCKED_AND_SPECIFIED, Collections.singletonList(lockId))
+        ).and(new QueryCriteria.FungibleAssetQueryCriteria(
+                null,
+                us,
+                null,
+                Collections.singletonList(token.getIssuer().getParty()),
+                Collections.singletonList(token.getIssuer().getReference())
+        )).and(new QueryCriteria.VaultCustomQueryCriteria(
+                Builder.equal(getField("currency", CashSchemaV1.PersistentCashState.class), token.getProduct().getCurrencyCode())
+        ));
+
+        List<StateAndRef<Cash.State>> candidates = new ArrayList<>(services.getVaultService()
+                .queryBy(Cash.State.class, criteria, new PageSpecification(1, CANDIDATES))
+                .getStates());
+
+        // The contract matches payments on the exact token, so anything the query let through that differs is no use,
+        // and neither is a coin that is already spent elsewhere in the transaction.
+        candidates.removeIf(coin -> !coin.getState().getData().getAmount().getToken().equals(token) || excluded.contains(coin.getRef()));
+        candidates.sort(Comparator.comparingLong(coin -> coin.getState().getData().getAmount().getQuantity()));
+        return candidates;
+    }
+
+    /**
+     * Chooses from candidates sorted smallest first: an exact coin, else the smallest coin that covers the target, else
+     * the largest coins until they cover it. Also used for {@link PaperHolding}s.
+     */
+    static <S extends FungibleAsset<?>> List<StateAndRef<S>> choose(List<StateAndRef<S>> candidates, Amount<?> target) throws InsufficientBalanceException {
+        long wanted = target.getQuantity();
+
+        for (StateAndRef<S> coin : candidates) {
+            if (coin.getState().getData().getAmount().getQuantity() >= wanted) {
+                return Collections.singletonList(coin);
+            }
+        }
+
+        List<StateAndRef<S>> chosen = new ArrayList<>();
+        long total = 0;
+
+        for (int i = candidates.size() - 1; i >= 0 && total < wanted; i--) {
+            chosen.add(candidates.get(i));
+            total += candidates.get(i).getState().getData().getAmount().getQuantity();
+        }
+
+        if (total < wanted) {
+            throw new InsufficientBalanceException(new Amount<>(wanted - total, target.getToken()));
+        }
+
+        return chosen;
+    }
+}
@@ -0,0 +1,43 @@
+package com.template.contracts;
+
+import net.corda.core.contracts.CommandData;
+import net.corda.core.contracts.CommandWithParties;
+import net.corda.core.contracts.TimeWindow;
+import net.corda.core.transactions.LedgerTransaction;
+
+import java.security.PublicKey;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Everything about the transaction that a {@link CommandRule} needs, worked out once per transaction rather than once
+ * per group.
+ */
+public final class VerificationContext {
+
+    private final LedgerTransaction tx;
+    private final CommandWithParties<? extends CommandData> command;
+    private final Set<PublicKey> signers;
+
+    VerificationContext(LedgerTransaction tx, CommandWithParties<? extends CommandData> command) {
+        this.tx = tx;
+        this.command = command;
+        this.signers = new HashSet<>(command.getSigners());
+    }
+
+    public LedgerTransaction getTransaction() {
+        return this.tx;
+    }
+
+    public CommandWithParties<? extends CommandData> getCommand() {
+        return this.command;
+    }
+
+    public TimeWindow getTimeWindow() {
+        return this.tx.getTimeWindow();
+    }
+
+    public boolean isSignedBy(PublicKey key) {
+        return this.signers.contains(key);
+    }
+}
@@ -0,0 +1,71 @@
+package com.template.schemas;
+
+import com.google.common.collect.ImmutableList;
+import net.corda.core.schemas.MappedSchema;
+import net.corda.core.schemas.PersistentState;
+import org.jetbrains.annotations.Nullable;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+/**
+ * An IOUState schema. Lender, borrower and value are indexed, so vault queries on any of them (and sorts by value)
+ * run in the database rather than over deserialised states.
+ */
+public class IOUSchemaV1 extends MappedSchema {
+
+    public IOUSchemaV1() {
+        super(IOUSchema.class, 1, ImmutableList.of(PersistentIOU.class));
+    }
+
+    @Nullable
+    @Override
+    public String getMigrationResource() {
+        return "iou.changelog-master";
+    }
+
+    @Entity
+    @Table(name = "iou_states", indexes = {
+            @Index(name = "iou_lender_idx", columnList = "lender"),
+            @Index(name = "iou_borrower_idx", columnList = "borrower"),
+            @Index(name = "iou_value_idx", columnList = "iou_value")
+    })
+    public static class PersistentIOU extends PersistentState {
+
+        @Column(name = "lender")
+        private final String lender;
+
+        @Column(name = "borrower")
+        private final String borrower;
+
+        @Column(name = "iou_value")
+        private final int value;
+
+        public PersistentIOU(String lender, String borrower, int value) {
+            this.lender = lender;
+            this.borrower = borrower;
+            this.value = value;
+        }
+
+        // Default constructor required by hibernate.
+        public PersistentIOU() {
+            this.lender = null;
+            this.borrower = null;
+            this.value = 0;
+        }
+
+        public String getLender() {
+            return this.lender;
+        }
+
+        public String getBorrower() {
+            return this.borrower;
+        }
+
+        public int getValue() {
+            return this.value;
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.template.schemas;
+
+/**
+ * The family of schemas for PaperHolding.State.
+ */
+public class PaperHoldingSchema {
+}
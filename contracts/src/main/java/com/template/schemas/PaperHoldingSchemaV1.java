@@ -0,0 +1,84 @@
+package com.template.schemas;
+
+import com.google.common.collect.ImmutableList;
+import com.template.contracts.PaperHolding;
+import net.corda.core.schemas.MappedSchema;
+import net.corda.core.schemas.PersistentState;
+import org.jetbrains.annotations.Nullable;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import java.time.Instant;
+
+import static net.corda.core.crypto.CryptoUtils.toStringShort;
+
+/**
+ * A schema for fungible paper holdings. Issuer, owner and quantity are already in the vault's fungible states table,
+ * so this adds the owner, currency and maturity, indexed for selecting holdings of one program and for finding what
+ * matures when.
+ */
+public class PaperHoldingSchemaV1 extends MappedSchema {
+
+    public PaperHoldingSchemaV1() {
+        super(PaperHoldingSchema.class, 1, ImmutableList.of(PersistentPaperHolding.class));
+    }
+
+    @Nullable
+    @Override
+    public String getMigrationResource() {
+        return "paper-holding.changelog-master";
+    }
+
+    @Entity
+    @Table(name = "cp_holdings", indexes = {
+            @Index(name = "cp_holding_owner_program_idx", columnList = "owner_key_hash, ccy_code, maturity_instant"),
+            @Index(name = "cp_holding_maturity_idx", columnList = "maturity_instant")
+    })
+    public static class PersistentPaperHolding extends PersistentState {
+
+        @Column(name = "owner_key_hash", length = 130)
+        private final String ownerKeyHash;
+
+        @Column(name = "ccy_code", length = 3)
+        private final String currency;
+
+        @Column(name = "maturity_instant")
+        private final Instant maturity;
+
+        @Column(name = "quantity")
+        private final long quantity;
+
+        public PersistentPaperHolding(PaperHolding.State state) {
+            this.ownerKeyHash = toStringShort(state.getOwner().getOwningKey());
+            this.currency = state.getProgram().getCurrency().getCurrencyCode();
+            this.maturity = state.getProgram().getMaturityDate();
+            this.quantity = state.getAmount().getQuantity();
+        }
+
+        // Default constructor required by hibernate.
+        public PersistentPaperHolding() {
+            this.ownerKeyHash = null;
+            this.currency = null;
+            this.maturity = null;
+            this.quantity = 0;
+        }
+
+        public String getOwnerKeyHash() {
+            return this.ownerKeyHash;
+        }
+
+        public String getCurrency() {
+            return this.currency;
+        }
+
+        public Instant getMaturity() {
+            return this.maturity;
+        }
+
+        public long getQuantity() {
+            return this.quantity;
+        }
+    }
+}
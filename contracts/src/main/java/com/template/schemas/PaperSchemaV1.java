@@ -0,0 +1,136 @@
+package com.template.schemas;
+
+import com.google.common.collect.ImmutableList;
+import com.template.contracts.PaperState;
+import net.corda.core.schemas.MappedSchema;
+import net.corda.core.schemas.PersistentState;
+import org.jetbrains.annotations.Nullable;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Index;
+import javax.persistence.MappedSuperclass;
+import javax.persistence.Table;
+import java.time.Instant;
+
+import static net.corda.core.crypto.CryptoUtils.toStringShort;
+
+/**
+ * A schema for commercial paper, shared by CommercialPaper.State and DummyContract.State, each in its own table.
+ *
+ * The owner/maturity index serves the redemption query ("matured and owned by me") as an indexed range scan. Issuer and
+ * face value are indexed for reporting.
+ */
+public class PaperSchemaV1 extends MappedSchema {
+
+    public PaperSchemaV1() {
+        super(PaperSchema.class, 1, ImmutableList.of(PersistentCommercialPaper.class, PersistentDummyPaper.class));
+    }
+
+    @Nullable
+    @Override
+    public String getMigrationResource() {
+        return "paper.changelog-master";
+    }
+
+    @MappedSuperclass
+    public static class PersistentPaper extends PersistentState {
+
+        @Column(name = "issuance_key_hash", length = 130)
+        private final String issuanceKeyHash;
+
+        @Column(name = "issuance_ref")
+        private final byte[] issuanceRef;
+
+        @Column(name = "owner_key_hash", length = 130)
+        private final String ownerKeyHash;
+
+        @Column(name = "maturity_instant")
+        private final Instant maturity;
+
+        @Column(name = "face_value")
+        private final long faceValue;
+
+        @Column(name = "ccy_code", length = 3)
+        private final String currency;
+
+        public PersistentPaper(PaperState state) {
+            this.issuanceKeyHash = toStringShort(state.getIssuance().getParty().getOwningKey());
+            this.issuanceRef = state.getIssuance().getReference().getBytes();
+            this.ownerKeyHash = toStringShort(state.getOwner().getOwningKey());
+            this.maturity = state.getMaturityDate();
+            this.faceValue = state.getFaceValue().getQuantity();
+            this.currency = state.getFaceValue().getToken().getProduct().getCurrencyCode();
+        }
+
+        // Default constructor required by hibernate.
+        public PersistentPaper() {
+            this.issuanceKeyHash = null;
+            this.issuanceRef = null;
+            this.ownerKeyHash = null;
+            this.maturity = null;
+            this.faceValue = 0;
+            this.currency = null;
+        }
+
+        public String getIssuanceKeyHash() {
+            return this.issuanceKeyHash;
+        }
+
+        public byte[] getIssuanceRef() {
+            return this.issuanceRef;
+        }
+
+        public String getOwnerKeyHash() {
+            return this.ownerKeyHash;
+        }
+
+        public Instant getMaturity() {
+            return this.maturity;
+        }
+
+        public long getFaceValue() {
+            return this.faceValue;
+        }
+
+        public String getCurrency() {
+            return this.currency;
+        }
+    }
+
+    @Entity
+    @Table(name = "cp_states", indexes = {
+            @Index(name = "cp_owner_maturity_idx", columnList = "owner_key_hash, maturity_instant"),
+            @Index(name = "cp_maturity_idx", columnList = "maturity_instant"),
+            @Index(name = "cp_issuance_idx", columnList = "issuance_key_hash"),
+            @Index(name = "cp_face_value_idx", columnList = "ccy_code, face_value")
+    })
+    public static class PersistentCommercialPaper extends PersistentPaper {
+
+        public PersistentCommercialPaper(PaperState state) {
+            super(state);
+        }
+
+        // Default constructor required by hibernate.
+        public PersistentCommercialPaper() {
+        }
+    }
+
+    @Entity
+    @Table(name = "dummy_paper_states", indexes = {
+            @Index(name = "dummy_owner_maturity_idx", columnList = "owner_key_hash, maturity_instant"),
+            @Index(name = "dummy_maturity_idx", columnList = "maturity_instant"),
+            @Index(name = "dummy_issuance_idx", columnList = "issuance_key_hash"),
+            @Index(name = "dummy_face_value_idx", columnList = "ccy_code, face_value")
+    })
+    public static class PersistentDummyPaper extends PersistentPaper {
+
+        public PersistentDummyPaper(PaperState state) {
+            super(state);
+        }
+
+        // Default constructor required by hibernate.
+        public PersistentDummyPaper() {
+        }
+    }
+}
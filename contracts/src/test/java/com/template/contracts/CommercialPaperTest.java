@@ -1,5 +1,7 @@
 package com.template.contracts;
 
+import com.google.common.collect.ImmutableList;
+import com.template.schemas.PaperSchemaV1;
 import kotlin.Unit;
 import net.corda.core.contracts.*;
 import net.corda.core.identity.AbstractParty;
@@ -20,11 +22,15 @@ import java.util.Currency;
 import java.util.Locale;
 
 import static com.template.contracts.CommercialPaper.CP_CONTRACT_ID;
+import static net.corda.core.crypto.CryptoUtils.toStringShort;
 import static net.corda.finance.Currencies.DOLLARS;
 import static net.corda.finance.Currencies.issuedBy;
 import static net.corda.testing.internal.InternalTestConstantsKt.TEST_TX_TIME;
 import static net.corda.testing.node.NodeTestUtils.ledger;
 import static net.corda.testing.node.NodeTestUtils.transaction;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
 
 /**
  * This doesn't seem to work inside Intellij, or with gradle test on the command line. From cordapp-template-java run:
@@ -68,6 +74,138 @@ public class CommercialPaperTest {
     public void generateRedeem() {
     }
 
+    @Test
+    public void groupingKeyIgnoresOwner() {
+        CommercialPaper.State paper = (CommercialPaper.State) getPaper();
+        CommercialPaper.State moved = paper.withOwner(this.miniCorp.getParty());
+
+        assertEquals(paper.groupingKey(), moved.groupingKey());
+        assertEquals(paper.withoutOwner().groupingKey(), moved.groupingKey());
+        assertSame(paper.groupingKey(), paper.groupingKey());
+    }
+
+    @Test
+    public void groupingKeyDistinguishesMaturity() {
+        CommercialPaper.State paper = (CommercialPaper.State) getPaper();
+        CommercialPaper.State later = new CommercialPaper.State(paper.getIssuance(), paper.getOwner(), paper.getFaceValue(), paper.getMaturityDate().plus(1, ChronoUnit.DAYS));
+
+        assertNotEquals(paper.groupingKey(), later.groupingKey());
+    }
+
+    @Test
+    public void cachedHashMatchesAFreshCopy() {
+        CommercialPaper.State paper = (CommercialPaper.State) getPaper();
+        int hash = paper.hashCode();
+        CommercialPaper.State copy = paper.copy();
+
+        assertEquals(hash, paper.hashCode());
+        assertEquals(hash, copy.hashCode());
+        assertEquals(paper, copy);
+        assertNotEquals(paper, paper.withOwner(this.miniCorp.getParty()));
+    }
+
+    @Test
+    public void bulkMove() {
+        CommercialPaper.State first = (CommercialPaper.State) getPaper();
+        CommercialPaper.State second = new CommercialPaper.State(first.getIssuance(), first.getOwner(), first.getFaceValue(), first.getMaturityDate().plus(1, ChronoUnit.DAYS));
+
+        transaction(this.ledgerServices, tx -> {
+            tx.attachments(CP_CONTRACT_ID);
+            tx.input(CP_CONTRACT_ID, first);
+            tx.input(CP_CONTRACT_ID, second);
+            tx.output(CP_CONTRACT_ID, first.withOwner(this.miniCorp.getParty()));
+
+            tx.tweak(tw -> {
+                tw.command(this.megaCorp.getPublicKey(), new CommercialPaper.Commands.BulkMove());
+                return tw.failsWith("the states are propagated");
+            });
+
+            tx.output(CP_CONTRACT_ID, second.withOwner(this.miniCorp.getParty()));
+
+            tx.tweak(tw -> {
+                tw.command(this.miniCorp.getPublicKey(), new CommercialPaper.Commands.BulkMove());
+                return tw.failsWith("the transaction is signed by the owner of every CP");
+            });
+
+            tx.command(this.megaCorp.getPublicKey(), new CommercialPaper.Commands.BulkMove());
+            return tx.verifies();
+        });
+    }
+
+    @Test
+    public void batchRedeem() {
+        CommercialPaper.State first = ((CommercialPaper.State) getPaper()).withOwner(this.miniCorp.getParty());
+        CommercialPaper.State second = new CommercialPaper.State(first.getIssuance(), first.getOwner(), first.getFaceValue(), first.getMaturityDate().plus(1, ChronoUnit.DAYS));
+        PartyAndReference issuer = this.megaCorp.ref((byte) 0);
+
+        transaction(this.ledgerServices, tx -> {
+            tx.attachments(CP_CONTRACT_ID, Cash.PROGRAM_ID);
+            tx.input(CP_CONTRACT_ID, first);
+            tx.input(CP_CONTRACT_ID, second);
+            tx.input(Cash.PROGRAM_ID, new Cash.State(issuedBy(DOLLARS(2000), issuer), this.megaCorp.getParty()));
+            tx.command(this.miniCorp.getPublicKey(), new CommercialPaper.Commands.Redeem());
+            tx.command(this.megaCorp.getPublicKey(), new Cash.Commands.Move());
+            tx.timeWindow(second.getMaturityDate().plus(1, ChronoUnit.DAYS));
+
+            tx.tweak(tw -> {
+                // Only one of the two papers is paid for, the rest goes back to the issuer as change.
+                tw.output(Cash.PROGRAM_ID, new Cash.State(issuedBy(DOLLARS(1000), issuer), this.miniCorp.getParty()));
+                tw.output(Cash.PROGRAM_ID, new Cash.State(issuedBy(DOLLARS(1000), issuer), this.megaCorp.getParty()));
+                return tw.failsWith("the received amount equals the face value");
+            });
+
+            tx.output(Cash.PROGRAM_ID, new Cash.State(issuedBy(DOLLARS(2000), issuer), this.miniCorp.getParty()));
+            return tx.verifies();
+        });
+    }
+
+    @Test
+    public void papersInOneMaturityWindowComeDueTogether() {
+        Instant windowStart = Instant.parse("2019-06-03T09:00:00Z");
+        Instant windowEnd = windowStart.plus(CommercialPaper.MATURITY_WINDOW);
+
+        assertEquals(windowEnd, CommercialPaper.maturityWindowEnd(windowStart));
+        assertEquals(windowEnd, CommercialPaper.maturityWindowEnd(windowStart.plusSeconds(1)));
+        assertEquals(windowEnd, CommercialPaper.maturityWindowEnd(windowEnd.minusMillis(1)));
+        assertEquals(windowEnd.plus(CommercialPaper.MATURITY_WINDOW), CommercialPaper.maturityWindowEnd(windowEnd));
+    }
+
+    @Test
+    public void exitNeedsTheOwnerAndTheIssuer() {
+        CommercialPaper.State paper = ((CommercialPaper.State) getPaper()).withOwner(this.miniCorp.getParty());
+
+        transaction(this.ledgerServices, tx -> {
+            tx.attachments(CP_CONTRACT_ID);
+            tx.input(CP_CONTRACT_ID, paper);
+
+            tx.tweak(tw -> {
+                tw.command(this.miniCorp.getPublicKey(), new CommercialPaper.Commands.Exit());
+                return tw.failsWith("the transaction is signed by the owner and the issuer of the CP");
+            });
+
+            tx.tweak(tw -> {
+                tw.output(CP_CONTRACT_ID, paper);
+                tw.command(ImmutableList.of(this.miniCorp.getPublicKey(), this.megaCorp.getPublicKey()), new CommercialPaper.Commands.Exit());
+                return tw.failsWith("the paper must be destroyed");
+            });
+
+            tx.command(ImmutableList.of(this.miniCorp.getPublicKey(), this.megaCorp.getPublicKey()), new CommercialPaper.Commands.Exit());
+            return tx.verifies();
+        });
+    }
+
+    @Test
+    public void mappedObjectCarriesRedemptionQueryColumns() {
+        CommercialPaper.State paper = ((CommercialPaper.State) getPaper()).withOwner(this.miniCorp.getParty());
+        PaperSchemaV1.PersistentPaper mapped = (PaperSchemaV1.PersistentPaper) paper.generateMappedObject(new PaperSchemaV1());
+
+        assertEquals(toStringShort(this.miniCorp.getPublicKey()), mapped.getOwnerKeyHash());
+        assertEquals(toStringShort(this.megaCorp.getPublicKey()), mapped.getIssuanceKeyHash());
+        assertEquals(paper.getMaturityDate(), mapped.getMaturity());
+        assertEquals(paper.getFaceValue().getQuantity(), mapped.getFaceValue());
+        assertEquals("USD", mapped.getCurrency());
+    }
+
     @Test
     public void emptyLedger() {
         ledger(this.ledgerServices, l -> {
@@ -1,13 +1,123 @@
 package com.template.contracts;
 
+import com.template.states.IOUState;
+import net.corda.core.identity.CordaX500Name;
+import net.corda.testing.core.TestIdentity;
 import net.corda.testing.node.MockServices;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.Collections;
+
+import static net.corda.testing.node.NodeTestUtils.transaction;
+
 public class ContractTests {
-    private final MockServices ledgerServices = new MockServices();
+    private final TestIdentity alice = new TestIdentity(new CordaX500Name("Alice", "London", "GB"));
+    private final TestIdentity bob = new TestIdentity(new CordaX500Name("Bob", "New York", "US"));
+    private final TestIdentity charlie = new TestIdentity(new CordaX500Name("Charlie", "Paris", "FR"));
+    private final MockServices ledgerServices = new MockServices(Collections.singletonList("com.template.contracts"), alice, bob);
 
     @Test
     public void dummyTest() {
 
     }
-}
\ No newline at end of file
+
+    @Test
+    public void batchCreate() {
+        transaction(this.ledgerServices, tx -> {
+            tx.output(IOUContract.ID, new IOUState(10, this.alice.getParty(), this.bob.getParty()));
+            tx.output(IOUContract.ID, new IOUState(20, this.alice.getParty(), this.bob.getParty()));
+
+            tx.tweak(tw -> {
+                tw.output(IOUContract.ID, new IOUState(30, this.alice.getParty(), this.charlie.getParty()));
+                tw.command(Arrays.asList(this.alice.getPublicKey(), this.bob.getPublicKey()), new IOUContract.BatchCreate());
+                return tw.failsWith("All IOUs in a batch must have the same lender and borrower.");
+            });
+
+            tx.tweak(tw -> {
+                tw.command(Arrays.asList(this.alice.getPublicKey(), this.bob.getPublicKey()), new IOUContract.Create());
+                return tw.failsWith("There must be one output state of type IOUState.");
+            });
+
+            tx.tweak(tw -> {
+                tw.command(this.alice.getPublicKey(), new IOUContract.BatchCreate());
+                return tw.failsWith("There must be two signers.");
+            });
+
+            tx.command(Arrays.asList(this.alice.getPublicKey(), this.bob.getPublicKey()), new IOUContract.BatchCreate());
+            return tx.verifies();
+        });
+    }
+
+    @Test
+    public void settle() {
+        transaction(this.ledgerServices, tx -> {
+            tx.input(IOUContract.ID, new IOUState(10, this.alice.getParty(), this.bob.getParty()));
+            tx.input(IOUContract.ID, new IOUState(20, this.alice.getParty(), this.bob.getParty()));
+
+            tx.tweak(tw -> {
+                tw.input(IOUContract.ID, new IOUState(30, this.bob.getParty(), this.alice.getParty()));
+                tw.command(Arrays.asList(this.alice.getPublicKey(), this.bob.getPublicKey()), new IOUContract.Settle());
+                return tw.failsWith("All settled IOUs must have the same lender and borrower.");
+            });
+
+            tx.tweak(tw -> {
+                tw.output(IOUContract.ID, new IOUState(5, this.alice.getParty(), this.bob.getParty()));
+                tw.command(Arrays.asList(this.alice.getPublicKey(), this.bob.getPublicKey()), new IOUContract.Settle());
+                return tw.failsWith("No IOUs may be created when settling.");
+            });
+
+            tx.tweak(tw -> {
+                tw.command(this.bob.getPublicKey(), new IOUContract.Settle());
+                return tw.failsWith("There must be two signers.");
+            });
+
+            tx.command(Arrays.asList(this.alice.getPublicKey(), this.bob.getPublicKey()), new IOUContract.Settle());
+            return tx.verifies();
+        });
+    }
+
+    @Test
+    public void net() {
+        transaction(this.ledgerServices, tx -> {
+            tx.input(IOUContract.ID, new IOUState(10, this.alice.getParty(), this.bob.getParty()));
+            tx.input(IOUContract.ID, new IOUState(20, this.alice.getParty(), this.bob.getParty()));
+            tx.input(IOUContract.ID, new IOUState(45, this.bob.getParty(), this.alice.getParty()));
+            tx.command(Arrays.asList(this.alice.getPublicKey(), this.bob.getPublicKey()), new IOUContract.Net());
+
+            tx.tweak(tw -> {
+                tw.input(IOUContract.ID, new IOUState(5, this.alice.getParty(), this.charlie.getParty()));
+                tw.output(IOUContract.ID, new IOUState(10, this.bob.getParty(), this.alice.getParty()));
+                return tw.failsWith("All netted IOUs must be between the same two parties.");
+            });
+
+            tx.tweak(tw -> {
+                tw.output(IOUContract.ID, new IOUState(15, this.alice.getParty(), this.bob.getParty()));
+                return tw.failsWith("The net IOU must be owed to the party that is owed on balance.");
+            });
+
+            tx.tweak(tw -> {
+                tw.output(IOUContract.ID, new IOUState(14, this.bob.getParty(), this.alice.getParty()));
+                return tw.failsWith("The net IOU's value must be the net exposure.");
+            });
+
+            tx.tweak(tw -> {
+                tw.output(IOUContract.ID, new IOUState(10, this.bob.getParty(), this.alice.getParty()));
+                tw.output(IOUContract.ID, new IOUState(5, this.bob.getParty(), this.alice.getParty()));
+                return tw.failsWith("There must be at most one output state and it must be of type IOUState.");
+            });
+
+            tx.tweak(tw -> {
+                tw.input(IOUContract.ID, new IOUState(15, this.alice.getParty(), this.bob.getParty()));
+                tw.tweak(cancelled -> {
+                    cancelled.output(IOUContract.ID, new IOUState(1, this.alice.getParty(), this.bob.getParty()));
+                    return cancelled.failsWith("No IOU may be created when the netted IOUs cancel out.");
+                });
+                return tw.verifies();
+            });
+
+            tx.output(IOUContract.ID, new IOUState(15, this.bob.getParty(), this.alice.getParty()));
+            return tx.verifies();
+        });
+    }
+}
@@ -0,0 +1,184 @@
+package com.template.contracts;
+
+import com.google.common.collect.ImmutableList;
+import net.corda.core.contracts.Amount;
+import net.corda.core.contracts.Issued;
+import net.corda.core.contracts.StateAndRef;
+import net.corda.core.contracts.StateRef;
+import net.corda.core.contracts.TransactionState;
+import net.corda.core.crypto.SecureHash;
+import net.corda.core.identity.CordaX500Name;
+import net.corda.finance.contracts.asset.Cash;
+import net.corda.testing.core.TestIdentity;
+import net.corda.testing.node.MockServices;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Currency;
+import java.util.List;
+import java.util.Locale;
+
+import static com.template.contracts.PaperHolding.PAPER_HOLDING_CONTRACT_ID;
+import static net.corda.testing.node.NodeTestUtils.transaction;
+import static org.junit.Assert.assertEquals;
+
+public class PaperHoldingTest {
+
+    private final TestIdentity megaCorp = new TestIdentity(new CordaX500Name("MegaCorp", "London", "GB"));
+    private final TestIdentity miniCorp = new TestIdentity(new CordaX500Name("MiniCorp", "London", "GB"));
+    private final TestIdentity notary = new TestIdentity(new CordaX500Name("Notary", "London", "GB"));
+    private final MockServices ledgerServices = new MockServices(Arrays.asList("net.corda.finance", "com.template.contracts"), megaCorp, miniCorp);
+    private final Instant maturity = Instant.now().plus(30, ChronoUnit.DAYS);
+    private final Issued<PaperProgram> program = new Issued<>(megaCorp.ref((byte) 1), new PaperProgram(Currency.getInstance(Locale.US), maturity));
+
+    private PaperHolding.State holding(long quantity, TestIdentity owner) {
+        return new PaperHolding.State(new Amount<>(quantity, this.program), owner.getParty());
+    }
+
+    @Test
+    public void issueNeedsTheIssuerBeforeMaturity() {
+        transaction(this.ledgerServices, tx -> {
+            tx.attachments(PAPER_HOLDING_CONTRACT_ID);
+            tx.output(PAPER_HOLDING_CONTRACT_ID, holding(10_000, this.miniCorp));
+
+            tx.tweak(tw -> {
+                tw.timeWindow(Instant.now());
+                tw.command(this.miniCorp.getPublicKey(), new PaperHolding.Commands.Issue());
+                return tw.failsWith("output states are issued by a command signer");
+            });
+
+            tx.tweak(tw -> {
+                tw.timeWindow(this.maturity.plus(1, ChronoUnit.DAYS));
+                tw.command(this.megaCorp.getPublicKey(), new PaperHolding.Commands.Issue());
+                return tw.failsWith("the maturity date is not in the past");
+            });
+
+            tx.timeWindow(Instant.now());
+            tx.command(this.megaCorp.getPublicKey(), new PaperHolding.Commands.Issue());
+            return tx.verifies();
+        });
+    }
+
+    @Test
+    public void partialMoveConservesTheQuantity() {
+        transaction(this.ledgerServices, tx -> {
+            tx.attachments(PAPER_HOLDING_CONTRACT_ID);
+            tx.input(PAPER_HOLDING_CONTRACT_ID, holding(6_000, this.megaCorp));
+            tx.input(PAPER_HOLDING_CONTRACT_ID, holding(4_000, this.megaCorp));
+            tx.output(PAPER_HOLDING_CONTRACT_ID, holding(7_500, this.miniCorp));
+            tx.command(this.megaCorp.getPublicKey(), new PaperHolding.Commands.Move());
+
+            tx.tweak(tw -> {
+                tw.output(PAPER_HOLDING_CONTRACT_ID, holding(3_000, this.megaCorp));
+                return tw.failsWith("the quantity is conserved");
+            });
+
+            tx.output(PAPER_HOLDING_CONTRACT_ID, holding(2_500, this.megaCorp));
+            return tx.verifies();
+        });
+    }
+
+    @Test
+    public void splitKeepsTheOwner() {
+        transaction(this.ledgerServices, tx -> {
+            tx.attachments(PAPER_HOLDING_CONTRACT_ID);
+            tx.input(PAPER_HOLDING_CONTRACT_ID, holding(10_000, this.megaCorp));
+            tx.output(PAPER_HOLDING_CONTRACT_ID, holding(4_000, this.megaCorp));
+            tx.command(this.megaCorp.getPublicKey(), new PaperHolding.Commands.Split());
+
+            tx.tweak(tw -> {
+                tw.output(PAPER_HOLDING_CONTRACT_ID, holding(6_000, this.miniCorp));
+                return tw.failsWith("the owner doesn't change");
+            });
+
+            tx.output(PAPER_HOLDING_CONTRACT_ID, holding(6_000, this.megaCorp));
+            return tx.verifies();
+        });
+    }
+
+    @Test
+    public void mergeMakesOneHolding() {
+        transaction(this.ledgerServices, tx -> {
+            tx.attachments(PAPER_HOLDING_CONTRACT_ID);
+            tx.input(PAPER_HOLDING_CONTRACT_ID, holding(4_000, this.megaCorp));
+            tx.input(PAPER_HOLDING_CONTRACT_ID, holding(6_000, this.megaCorp));
+            tx.command(this.megaCorp.getPublicKey(), new PaperHolding.Commands.Merge());
+
+            tx.tweak(tw -> {
+                tw.output(PAPER_HOLDING_CONTRACT_ID, holding(5_000, this.megaCorp));
+                tw.output(PAPER_HOLDING_CONTRACT_ID, holding(5_000, this.megaCorp));
+                return tw.failsWith("they are merged into one");
+            });
+
+            tx.output(PAPER_HOLDING_CONTRACT_ID, holding(10_000, this.megaCorp));
+            return tx.verifies();
+        });
+    }
+
+    @Test
+    public void otherProgramsAreGroupedApart() {
+        PaperHolding.State later = new PaperHolding.State(new Amount<>(10_000, new Issued<>(this.program.getIssuer(),
+                new PaperProgram(Currency.getInstance(Locale.US), this.maturity.plus(1, ChronoUnit.DAYS)))), this.megaCorp.getParty());
+
+        transaction(this.ledgerServices, tx -> {
+            tx.attachments(PAPER_HOLDING_CONTRACT_ID);
+            tx.input(PAPER_HOLDING_CONTRACT_ID, holding(10_000, this.megaCorp));
+            tx.output(PAPER_HOLDING_CONTRACT_ID, later.withNewOwnerAndAmount(later.getAmount(), this.miniCorp.getParty()));
+            tx.command(this.megaCorp.getPublicKey(), new PaperHolding.Commands.Move());
+            return tx.failsWith("the quantity is conserved");
+        });
+    }
+
+    @Test
+    public void redeemPaysTheFaceValueAtMaturity() {
+        Issued<Currency> dollars = new Issued<>(this.program.getIssuer(), Currency.getInstance(Locale.US));
+        Issued<Currency> otherDollars = new Issued<>(this.megaCorp.ref((byte) 2), Currency.getInstance(Locale.US));
+
+        transaction(this.ledgerServices, tx -> {
+            tx.attachments(PAPER_HOLDING_CONTRACT_ID, Cash.PROGRAM_ID);
+            tx.input(PAPER_HOLDING_CONTRACT_ID, holding(6_000, this.miniCorp));
+            tx.input(PAPER_HOLDING_CONTRACT_ID, holding(4_000, this.miniCorp));
+            tx.input(Cash.PROGRAM_ID, new Cash.State(new Amount<>(10_000, dollars), this.megaCorp.getParty()));
+            tx.input(Cash.PROGRAM_ID, new Cash.State(new Amount<>(10_000, otherDollars), this.megaCorp.getParty()));
+            tx.command(this.miniCorp.getPublicKey(), new PaperHolding.Commands.Redeem());
+            tx.command(this.megaCorp.getPublicKey(), new Cash.Commands.Move());
+
+            tx.tweak(tw -> {
+                tw.timeWindow(this.maturity.minus(1, ChronoUnit.DAYS));
+                tw.output(Cash.PROGRAM_ID, new Cash.State(new Amount<>(10_000, dollars), this.miniCorp.getParty()));
+                tw.output(Cash.PROGRAM_ID, new Cash.State(new Amount<>(10_000, otherDollars), this.megaCorp.getParty()));
+                return tw.failsWith("the paper must have matured");
+            });
+
+            tx.timeWindow(this.maturity.plus(1, ChronoUnit.DAYS));
+
+            tx.tweak(tw -> {
+                // Dollars, but not the ones the paper was issued against.
+                tw.output(Cash.PROGRAM_ID, new Cash.State(new Amount<>(10_000, otherDollars), this.miniCorp.getParty()));
+                tw.output(Cash.PROGRAM_ID, new Cash.State(new Amount<>(10_000, dollars), this.megaCorp.getParty()));
+                return tw.failsWith("the received amount equals the face value");
+            });
+
+            tx.output(Cash.PROGRAM_ID, new Cash.State(new Amount<>(10_000, dollars), this.miniCorp.getParty()));
+            tx.output(Cash.PROGRAM_ID, new Cash.State(new Amount<>(10_000, otherDollars), this.megaCorp.getParty()));
+            return tx.verifies();
+        });
+    }
+
+    @Test
+    public void selectionPrefersOneHoldingThatCovers() throws Exception {
+        List<StateAndRef<PaperHolding.State>> candidates = new ArrayList<>();
+
+        for (long quantity : ImmutableList.of(1_000L, 3_000L, 8_000L)) {
+            TransactionState<PaperHolding.State> state = new TransactionState<>(holding(quantity, this.megaCorp), PAPER_HOLDING_CONTRACT_ID, this.notary.getParty());
+            candidates.add(new StateAndRef<>(state, new StateRef(SecureHash.getZeroHash(), candidates.size())));
+        }
+
+        assertEquals(Collections.singletonList(candidates.get(1)), RedemptionCoinSelector.choose(candidates, new Amount<>(2_500, this.program)));
+        assertEquals(Arrays.asList(candidates.get(2), candidates.get(1)), RedemptionCoinSelector.choose(candidates, new Amount<>(10_000, this.program)));
+    }
+}
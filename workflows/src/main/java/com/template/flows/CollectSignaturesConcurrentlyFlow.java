@@ -0,0 +1,130 @@
+package com.template.flows;
+
+import co.paralleluniverse.fibers.Suspendable;
+import net.corda.core.crypto.SecureHash;
+import net.corda.core.crypto.TransactionSignature;
+import net.corda.core.flows.FlowException;
+import net.corda.core.flows.FlowLogic;
+import net.corda.core.flows.FlowSession;
+import net.corda.core.identity.Party;
+import net.corda.core.transactions.SignedTransaction;
+
+import java.security.GeneralSecurityException;
+import java.security.PublicKey;
+import java.security.SignatureException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Gathers counterparty signatures like CollectSignaturesFlow, but from all the counterparties at once. Every session
+ * is sent its transaction before any reply is waited for, so the whole round takes about as long as the slowest
+ * counterparty rather than the sum of all of them.
+ *
+ * Each session can be sent a different transaction, or several sessions the same one. The other side must run a
+ * {@link SignTransactionConcurrentlyFlow}. Unlike CollectSignaturesFlow nothing is resolved for the counterparties, so
+ * this is only for transactions whose inputs they already have, such as issuances.
+ */
+public class CollectSignaturesConcurrentlyFlow extends FlowLogic<CollectSignaturesConcurrentlyFlow.Result> {
+
+    private final Map<FlowSession, SignedTransaction> proposals;
+
+    public CollectSignaturesConcurrentlyFlow(Map<FlowSession, SignedTransaction> proposals) {
+        this.proposals = proposals;
+    }
+
+    /**
+     * The fully signed transactions, by id, and how long each counterparty took to answer.
+     */
+    public static class Result {
+
+        private final Map<SecureHash, SignedTransaction> transactions;
+        private final Map<Party, Long> millisPerCounterparty;
+
+        public Result(Map<SecureHash, SignedTransaction> transactions, Map<Party, Long> millisPerCounterparty) {
+            this.transactions = transactions;
+            this.millisPerCounterparty = millisPerCounterparty;
+        }
+
+        public Map<SecureHash, SignedTransaction> getTransactions() {
+            return this.transactions;
+        }
+
+        /**
+         * Milliseconds from sending the proposals until that counterparty's signatures were taken in. Replies are
+         * taken in session order, so a fast counterparty queued behind a slow one is reported at the slow one's time.
+         * Measured on the node's clock, which unlike System.nanoTime() still means something if the flow is restored
+         * from its checkpoint part way through.
+         */
+        public Map<Party, Long> getMillisPerCounterparty() {
+            return this.millisPerCounterparty;
+        }
+    }
+
+    @Suspendable
+    @Override
+    public Result call() throws FlowException {
+        long start = getServiceHub().getClock().millis();
+        Map<SecureHash, SignedTransaction> signed = new LinkedHashMap<>();
+
+        for (Map.Entry<FlowSession, SignedTransaction> proposal : this.proposals.entrySet()) {
+            proposal.getKey().send(proposal.getValue());
+            signed.putIfAbsent(proposal.getValue().getId(), proposal.getValue());
+        }
+
+        Map<Party, Long> millisPerCounterparty = new LinkedHashMap<>();
+
+        for (Map.Entry<FlowSession, SignedTransaction> proposal : this.proposals.entrySet()) {
+            FlowSession session = proposal.getKey();
+            SecureHash id = proposal.getValue().getId();
+            Set<PublicKey> requiredKeys = proposal.getValue().getTx().getRequiredSigningKeys();
+
+            List<TransactionSignature> signatures = receiveSignatures(session, id, requiredKeys);
+            millisPerCounterparty.put(session.getCounterparty(), getServiceHub().getClock().millis() - start);
+            signed.put(id, signed.get(id).withAdditionalSignatures(signatures));
+        }
+
+        for (SignedTransaction stx : signed.values()) {
+            try {
+                if (stx.getNotary() != null) {
+                    stx.verifySignaturesExcept(Collections.singletonList(stx.getNotary().getOwningKey()));
+                }
+                else {
+                    stx.verifyRequiredSignatures();
+                }
+            } catch (SignatureException e) {
+                throw new FlowException("Transaction " + stx.getId() + " is missing signatures.", e);
+            }
+        }
+
+        return new Result(signed, millisPerCounterparty);
+    }
+
+    @Suspendable
+    @SuppressWarnings("unchecked")
+    private List<TransactionSignature> receiveSignatures(FlowSession session, SecureHash id, Set<PublicKey> requiredKeys) throws FlowException {
+        return session.receive(List.class).unwrap(data -> {
+            for (Object element : data) {
+                if (!(element instanceof TransactionSignature)) {
+                    throw new FlowException(session.getCounterparty() + " sent something other than a signature.");
+                }
+
+                TransactionSignature signature = (TransactionSignature) element;
+
+                if (!requiredKeys.contains(signature.getBy())) {
+                    throw new FlowException(session.getCounterparty() + " signed with a key the transaction doesn't need.");
+                }
+
+                try {
+                    signature.verify(id);
+                } catch (GeneralSecurityException e) {
+                    throw new FlowException(session.getCounterparty() + " sent an invalid signature.", e);
+                }
+            }
+
+            return (List<TransactionSignature>) data;
+        });
+    }
+}
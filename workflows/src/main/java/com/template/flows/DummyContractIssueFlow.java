@@ -2,9 +2,14 @@ package com.template.flows;
 
 import co.paralleluniverse.fibers.Suspendable;
 import com.template.contracts.DummyContract;
+import com.template.services.AcceptancePolicyService;
+import com.template.services.FlowLatencyService;
+import com.template.services.FlowStep;
+import com.template.services.NotarySelector;
+import com.template.services.RequestDeduplicationService;
 import net.corda.core.contracts.Command;
-import net.corda.core.contracts.ContractState;
 import net.corda.core.crypto.SecureHash;
+import net.corda.core.crypto.TransactionSignature;
 import net.corda.core.flows.*;
 import net.corda.core.identity.AbstractParty;
 import net.corda.core.identity.Party;
@@ -12,27 +17,45 @@ import net.corda.core.transactions.SignedTransaction;
 import net.corda.core.transactions.TransactionBuilder;
 import net.corda.core.utilities.ProgressTracker;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import static com.template.contracts.DummyContract.Commands.Issue;
-import static net.corda.core.contracts.ContractsDSL.requireThat;
 
 
 public class DummyContractIssueFlow {
 
-    @InitiatingFlow
+    // Version 2 collects signatures through CollectSignaturesConcurrentlyFlow, which version 1 responders can't answer,
+    // so each side turns away a version 1 peer before anything is signed.
+    private static final int CONCURRENT_SIGNING_VERSION = 2;
+
+    @InitiatingFlow(version = CONCURRENT_SIGNING_VERSION)
     @StartableByRPC
+    @StartableByService
     public static class InitiatorFlow extends FlowLogic<SignedTransaction> {
 
+        private static final String NAME = "DummyContractIssueFlow";
+
         private final DummyContract.State state;
+        @Nullable
+        private final String requestId;
         private final ProgressTracker progressTracker = new ProgressTracker();
 
         public InitiatorFlow(DummyContract.State state) {
+            this(state, null);
+        }
+
+        // With a client request id, a retry of a request that has already been handled returns the original
+        // transaction instead of issuing again.
+        public InitiatorFlow(DummyContract.State state, @Nullable String requestId) {
             this.state = state;
+            this.requestId = requestId;
         }
 
         @Override
@@ -43,8 +66,34 @@ public class DummyContractIssueFlow {
         @Suspendable
         @Override
         public SignedTransaction call() throws FlowException {
+            if (this.requestId == null) {
+                return issue();
+            }
 
-            final Party notary = getServiceHub().getNetworkMapCache().getNotaryIdentities().get(0);
+            RequestDeduplicationService requests = getServiceHub().cordaService(RequestDeduplicationService.class);
+            SecureHash handled = requests.begin(this.requestId, NAME, getRunId().getUuid());
+
+            if (handled != null) {
+                return requests.handledTransaction(this.requestId, handled);
+            }
+
+            try {
+                SignedTransaction stx = issue();
+                requests.complete(this.requestId, NAME, getRunId().getUuid(), stx.getId());
+                return stx;
+            } finally {
+                requests.release(this.requestId, getRunId().getUuid());
+            }
+        }
+
+        @Suspendable
+        private SignedTransaction issue() throws FlowException {
+
+            final FlowLatencyService latency = getServiceHub().cordaService(FlowLatencyService.class);
+            final FlowLatencyService.Stamp flowStart = latency.now();
+            // Sticky by issuer, so the issuer's states can later be moved or upgraded together, and sit on the same notary
+            // as the issuer's own cash that redeems them.
+            final Party notary = getServiceHub().cordaService(NotarySelector.class).select(this.state.getIssuance().getParty());
 
             final Command<Issue> issueCommand = new Command<Issue>(new Issue(), this.state.getParticipants().stream().map(AbstractParty::getOwningKey).collect(Collectors.toList()));
 
@@ -52,16 +101,41 @@ public class DummyContractIssueFlow {
             txBuilder.addOutputState(this.state, DummyContract.DUMMY_CONTRACT_ID);
             txBuilder.setTimeWindow(Instant.now(), Duration.ofDays(2));
             txBuilder.addCommand(issueCommand);
+            FlowLatencyService.Stamp stepStart = latency.now();
             txBuilder.verify(getServiceHub());
+            stepStart = latency.record(NAME, FlowStep.VERIFY, stepStart);
             final SignedTransaction ptx = getServiceHub().signInitialTransaction(txBuilder);
+            stepStart = latency.record(NAME, FlowStep.SIGN, stepStart);
 
             List<Party> otherParties = this.state.getParticipants().stream().map(el -> (Party) el).collect(Collectors.toList());
             otherParties.remove(getOurIdentity());
 
             List<FlowSession> sessions = otherParties.stream().map(el -> initiateFlow(el)).collect(Collectors.toList());
-            SignedTransaction stx = subFlow(new CollectSignaturesFlow(ptx, sessions));
 
-            return subFlow(new FinalityFlow(stx, sessions));
+            for (FlowSession session : sessions) {
+                if (session.getCounterpartyFlowInfo().getFlowVersion() < CONCURRENT_SIGNING_VERSION) {
+                    throw new FlowException(session.getCounterparty() + " runs a DummyContractIssueFlow too old to sign with us.");
+                }
+            }
+
+            // Every participant is sent the transaction before any signature is waited for, so a syndicate of twenty
+            // signs in about the time of its slowest member rather than the sum of them all.
+            Map<FlowSession, SignedTransaction> proposals = new LinkedHashMap<>();
+            sessions.forEach(session -> proposals.put(session, ptx));
+            CollectSignaturesConcurrentlyFlow.Result signatures = subFlow(new CollectSignaturesConcurrentlyFlow(proposals));
+            SignedTransaction stx = sessions.isEmpty() ? ptx : signatures.getTransactions().get(ptx.getId());
+            stepStart = latency.record(NAME, FlowStep.COLLECT_SIGNATURES, stepStart);
+
+            // The time window means this needs notarising. Doing it here, rather than leaving it to FinalityFlow, times
+            // the notary on its own for the latency report.
+            List<TransactionSignature> notarySignatures = subFlow(new NotaryFlow.Client(stx));
+            stepStart = latency.record(NAME, FlowStep.NOTARISE, stepStart);
+
+            // Already notarised, so FinalityFlow only records the transaction and sends it to the participants.
+            SignedTransaction ftx = subFlow(new FinalityFlow(stx.withAdditionalSignatures(notarySignatures), sessions));
+            latency.record(NAME, FlowStep.RECORD, stepStart);
+            latency.record(NAME, FlowStep.TOTAL, flowStart);
+            return ftx;
         }
     }
 
@@ -69,7 +143,6 @@ public class DummyContractIssueFlow {
     public static class ResponderFlow extends FlowLogic<SignedTransaction> {
 
         private final FlowSession flowSession;
-        private SecureHash txWeJustSigned;
         private final ProgressTracker progressTracker = new ProgressTracker();
 
         public ResponderFlow(FlowSession flowSession) {
@@ -85,28 +158,24 @@ public class DummyContractIssueFlow {
         @Override
         public SignedTransaction call() throws FlowException {
 
-            class SignTxFlow extends SignTransactionFlow {
+            class SignTxFlow extends SignTransactionConcurrentlyFlow {
 
-                private SignTxFlow(FlowSession flowSession, ProgressTracker progressTracker) {
-                    super(flowSession, progressTracker);
+                private SignTxFlow(FlowSession flowSession) {
+                    super(flowSession);
                 }
 
                 @Override
                 protected void checkTransaction(@NotNull SignedTransaction stx) throws FlowException {
-                    requireThat(req -> {
-                        ContractState output = stx.getTx().getOutputs().get(0).getData();
-                        req.using("This must be a dummy contract transaction.", output instanceof DummyContract.State);
-                        return null;
-                    });
-
-                    txWeJustSigned = stx.getId();
+                    getServiceHub().cordaService(AcceptancePolicyService.class).check(AcceptancePolicyService.DUMMY_ISSUE, stx);
                 }
             }
 
-            this.flowSession.getCounterpartyFlowInfo().getFlowVersion();
-            SignTxFlow signTxFlow = new SignTxFlow(flowSession, SignTransactionFlow.Companion.tracker());
-            subFlow(signTxFlow);
-            return subFlow(new ReceiveFinalityFlow(flowSession, txWeJustSigned));
+            if (this.flowSession.getCounterpartyFlowInfo().getFlowVersion() < CONCURRENT_SIGNING_VERSION) {
+                throw new FlowException(this.flowSession.getCounterparty() + " runs a DummyContractIssueFlow too old to sign with us.");
+            }
+
+            SecureHash txWeJustSigned = subFlow(new SignTxFlow(this.flowSession)).getId();
+            return subFlow(new ReceiveFinalityFlow(this.flowSession, txWeJustSigned));
         }
     }
 
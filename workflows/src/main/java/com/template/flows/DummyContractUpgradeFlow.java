@@ -0,0 +1,90 @@
+package com.template.flows;
+
+import co.paralleluniverse.fibers.Suspendable;
+import com.template.contracts.DummyContract;
+import com.template.contracts.DummyContractV2;
+import com.template.services.BulkUpgradeReport;
+import com.template.services.DummyContractUpgradeService;
+import net.corda.core.contracts.StateAndRef;
+import net.corda.core.flows.ContractUpgradeFlow;
+import net.corda.core.flows.FlowException;
+import net.corda.core.flows.FlowLogic;
+import net.corda.core.flows.StartableByRPC;
+import net.corda.core.flows.StartableByService;
+import net.corda.core.utilities.ProgressTracker;
+
+
+/**
+ * Upgrades the DummyContract.States in the vault to DummyContractV2 in bulk. BulkUpgradeFlow starts the job,
+ * StatusFlow reports on it, and the work itself is done by {@link DummyContractUpgradeService}.
+ */
+public class DummyContractUpgradeFlow {
+
+    @StartableByRPC
+    public static class BulkUpgradeFlow extends FlowLogic<BulkUpgradeReport> {
+
+        private final int pageSize;
+        private final int maxInFlight;
+        private final ProgressTracker progressTracker = new ProgressTracker();
+
+        public BulkUpgradeFlow(int pageSize, int maxInFlight) {
+            this.pageSize = pageSize;
+            this.maxInFlight = maxInFlight;
+        }
+
+        @Override
+        public ProgressTracker getProgressTracker() {
+            return progressTracker;
+        }
+
+        @Suspendable
+        @Override
+        public BulkUpgradeReport call() throws FlowException {
+            return getServiceHub().cordaService(DummyContractUpgradeService.class).start(this.pageSize, this.maxInFlight);
+        }
+    }
+
+    @StartableByRPC
+    public static class StatusFlow extends FlowLogic<BulkUpgradeReport> {
+
+        private final ProgressTracker progressTracker = new ProgressTracker();
+
+        @Override
+        public ProgressTracker getProgressTracker() {
+            return progressTracker;
+        }
+
+        @Suspendable
+        @Override
+        public BulkUpgradeReport call() throws FlowException {
+            return getServiceHub().cordaService(DummyContractUpgradeService.class).report();
+        }
+    }
+
+    /**
+     * Upgrades a single state. Started by the service, one per state, so that many can run at once.
+     */
+    @StartableByService
+    public static class UpgradeStateFlow extends FlowLogic<Void> {
+
+        private final StateAndRef<DummyContract.State> state;
+        private final ProgressTracker progressTracker = new ProgressTracker();
+
+        public UpgradeStateFlow(StateAndRef<DummyContract.State> state) {
+            this.state = state;
+        }
+
+        @Override
+        public ProgressTracker getProgressTracker() {
+            return progressTracker;
+        }
+
+        @Suspendable
+        @Override
+        public Void call() throws FlowException {
+            subFlow(new ContractUpgradeFlow.Authorise(this.state, DummyContractV2.class));
+            subFlow(new ContractUpgradeFlow.Initiate<>(this.state, DummyContractV2.class));
+            return null;
+        }
+    }
+}
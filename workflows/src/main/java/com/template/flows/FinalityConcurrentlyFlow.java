@@ -0,0 +1,96 @@
+package com.template.flows;
+
+import co.paralleluniverse.fibers.Suspendable;
+import net.corda.core.crypto.SecureHash;
+import net.corda.core.crypto.TransactionSignature;
+import net.corda.core.flows.FlowException;
+import net.corda.core.flows.FlowLogic;
+import net.corda.core.flows.FlowSession;
+import net.corda.core.flows.NotaryFlow;
+import net.corda.core.identity.Party;
+import net.corda.core.transactions.SignedTransaction;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finalises transactions like FinalityFlow, but with all the counterparties at once. Each transaction is notarised if
+ * it needs to be and recorded here, then every session is sent its transaction before any acknowledgement is waited
+ * for, so the round takes about as long as the slowest counterparty rather than the sum of all of them.
+ *
+ * The other side must run a {@link ReceiveFinalityConcurrentlyFlow}. As with {@link CollectSignaturesConcurrentlyFlow}
+ * nothing is resolved for the counterparties, so this is only for transactions whose inputs they already have.
+ */
+public class FinalityConcurrentlyFlow extends FlowLogic<FinalityConcurrentlyFlow.Result> {
+
+    private final Map<FlowSession, SignedTransaction> transactions;
+
+    public FinalityConcurrentlyFlow(Map<FlowSession, SignedTransaction> transactions) {
+        this.transactions = transactions;
+    }
+
+    /**
+     * The finalised transactions, by id, and how long each counterparty took to record its own.
+     */
+    public static class Result {
+
+        private final Map<SecureHash, SignedTransaction> transactions;
+        private final Map<Party, Long> millisPerCounterparty;
+
+        public Result(Map<SecureHash, SignedTransaction> transactions, Map<Party, Long> millisPerCounterparty) {
+            this.transactions = transactions;
+            this.millisPerCounterparty = millisPerCounterparty;
+        }
+
+        public Map<SecureHash, SignedTransaction> getTransactions() {
+            return this.transactions;
+        }
+
+        /**
+         * Milliseconds from sending the transactions until that counterparty said it had recorded its transaction,
+         * taken in session order as in {@link CollectSignaturesConcurrentlyFlow.Result#getMillisPerCounterparty}.
+         */
+        public Map<Party, Long> getMillisPerCounterparty() {
+            return this.millisPerCounterparty;
+        }
+    }
+
+    @Suspendable
+    @Override
+    public Result call() throws FlowException {
+        Map<SecureHash, SignedTransaction> finalised = new LinkedHashMap<>();
+
+        for (SignedTransaction stx : this.transactions.values()) {
+            if (!finalised.containsKey(stx.getId())) {
+                finalised.put(stx.getId(), needsNotarising(stx) ? stx.withAdditionalSignatures(subFlow(new NotaryFlow.Client(stx))) : stx);
+            }
+        }
+
+        getServiceHub().recordTransactions(finalised.values());
+        long start = getServiceHub().getClock().millis();
+
+        for (Map.Entry<FlowSession, SignedTransaction> transaction : this.transactions.entrySet()) {
+            transaction.getKey().send(finalised.get(transaction.getValue().getId()));
+        }
+
+        Map<Party, Long> millisPerCounterparty = new LinkedHashMap<>();
+
+        for (FlowSession session : this.transactions.keySet()) {
+            session.receive(Boolean.class).unwrap(recorded -> recorded);
+            millisPerCounterparty.put(session.getCounterparty(), getServiceHub().getClock().millis() - start);
+        }
+
+        return new Result(finalised, millisPerCounterparty);
+    }
+
+    private static boolean needsNotarising(SignedTransaction stx) {
+        if (stx.getNotary() == null) {
+            return false;
+        }
+
+        boolean spendsOrTimed = !stx.getInputs().isEmpty() || !stx.getReferences().isEmpty() || stx.getTx().getTimeWindow() != null;
+        List<TransactionSignature> signatures = stx.getSigs();
+        return spendsOrTimed && signatures.stream().noneMatch(signature -> signature.getBy().equals(stx.getNotary().getOwningKey()));
+    }
+}
@@ -0,0 +1,29 @@
+package com.template.flows;
+
+import co.paralleluniverse.fibers.Suspendable;
+import com.template.services.FlowLatencyReport;
+import com.template.services.FlowLatencyService;
+import net.corda.core.flows.FlowException;
+import net.corda.core.flows.FlowLogic;
+import net.corda.core.flows.StartableByRPC;
+import net.corda.core.utilities.ProgressTracker;
+
+/**
+ * Returns this node's flow latency percentiles from {@link FlowLatencyService}.
+ */
+@StartableByRPC
+public class FlowLatencyStatsFlow extends FlowLogic<FlowLatencyReport> {
+
+    private final ProgressTracker progressTracker = new ProgressTracker();
+
+    @Override
+    public ProgressTracker getProgressTracker() {
+        return progressTracker;
+    }
+
+    @Suspendable
+    @Override
+    public FlowLatencyReport call() throws FlowException {
+        return getServiceHub().cordaService(FlowLatencyService.class).report();
+    }
+}
@@ -0,0 +1,39 @@
+package com.template.flows;
+
+import co.paralleluniverse.fibers.Suspendable;
+import com.template.services.RequestDeduplicationService;
+import net.corda.core.flows.FlowException;
+import net.corda.core.flows.FlowLogic;
+import net.corda.core.flows.StartableByService;
+import net.corda.core.utilities.ProgressTracker;
+
+import java.util.UUID;
+
+/**
+ * Removes the in-flight row of a request whose run failed, so that the client can try it again. Started by
+ * {@link RequestDeduplicationService}, since the failed run's own database work is rolled back with it.
+ */
+@StartableByService
+public class ForgetRequestFlow extends FlowLogic<Void> {
+
+    private final String requestId;
+    private final UUID runId;
+    private final ProgressTracker progressTracker = new ProgressTracker();
+
+    public ForgetRequestFlow(String requestId, UUID runId) {
+        this.requestId = requestId;
+        this.runId = runId;
+    }
+
+    @Override
+    public ProgressTracker getProgressTracker() {
+        return progressTracker;
+    }
+
+    @Suspendable
+    @Override
+    public Void call() throws FlowException {
+        getServiceHub().cordaService(RequestDeduplicationService.class).forget(this.requestId, this.runId);
+        return null;
+    }
+}
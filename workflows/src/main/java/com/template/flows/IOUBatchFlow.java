@@ -0,0 +1,151 @@
+package com.template.flows;
+
+import co.paralleluniverse.fibers.Suspendable;
+import com.template.contracts.IOUContract;
+import com.template.services.NotarySelector;
+import com.template.states.IOUState;
+import net.corda.core.contracts.Command;
+import net.corda.core.crypto.SecureHash;
+import net.corda.core.flows.*;
+import net.corda.core.identity.Party;
+import net.corda.core.serialization.CordaSerializable;
+import net.corda.core.transactions.SignedTransaction;
+import net.corda.core.transactions.TransactionBuilder;
+import net.corda.core.utilities.ProgressTracker;
+
+import java.security.PublicKey;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// ******************
+// * Initiator flow *
+// ******************
+
+/**
+ * Issues IOUs to many counterparties from a single flow: one transaction per counterparty holding all of its values,
+ * with every counterparty asked to sign at once rather than one after another.
+ *
+ * Finalising is concurrent in the same way: every transaction is recorded here and sent to its counterparty before
+ * any of them is waited for, through {@link FinalityConcurrentlyFlow}. So the whole batch costs about two round trips
+ * to the slowest counterparty, however many there are.
+ */
+@InitiatingFlow
+@StartableByRPC
+public class IOUBatchFlow extends FlowLogic<IOUBatchFlow.Result> {
+    private final Map<Party, List<Integer>> iouValues;
+
+    private final ProgressTracker.Step BUILDING = new ProgressTracker.Step("Building one transaction per counterparty.");
+    private final ProgressTracker.Step COLLECTING = new ProgressTracker.Step("Collecting the counterparties' signatures.");
+    private final ProgressTracker.Step FINALISING = new ProgressTracker.Step("Finalising the transactions with every counterparty.");
+
+    private final ProgressTracker progressTracker = new ProgressTracker(BUILDING, COLLECTING, FINALISING);
+
+    public IOUBatchFlow(Map<Party, List<Integer>> iouValues) {
+        this.iouValues = iouValues;
+    }
+
+    @Override
+    public ProgressTracker getProgressTracker() {
+        return this.progressTracker;
+    }
+
+    /**
+     * The transaction issued to each counterparty, the time until each one had signed and recorded its transaction,
+     * and the time for the whole batch.
+     */
+    @CordaSerializable
+    public static class Result {
+        private final long totalMillis;
+        private final Map<Party, Long> millisPerCounterparty;
+        private final Map<Party, SecureHash> transactionIds;
+
+        public Result(long totalMillis, Map<Party, Long> millisPerCounterparty, Map<Party, SecureHash> transactionIds) {
+            this.totalMillis = totalMillis;
+            this.millisPerCounterparty = millisPerCounterparty;
+            this.transactionIds = transactionIds;
+        }
+
+        public long getTotalMillis() {
+            return this.totalMillis;
+        }
+
+        /**
+         * Milliseconds from the start of the flow until that counterparty had recorded its transaction, so signing and
+         * finality together. Replies are taken in the order the counterparties were given in each round, so a fast
+         * counterparty queued behind a slow one is reported at the slow one's time.
+         */
+        public Map<Party, Long> getMillisPerCounterparty() {
+            return this.millisPerCounterparty;
+        }
+
+        public Map<Party, SecureHash> getTransactionIds() {
+            return this.transactionIds;
+        }
+
+        @Override
+        public String toString() {
+            return "IOUBatchFlow.Result(totalMillis=" + this.totalMillis + ", millisPerCounterparty=" + this.millisPerCounterparty + ")";
+        }
+    }
+
+    @Suspendable
+    @Override
+    public Result call() throws FlowException {
+        long start = getServiceHub().getClock().millis();
+
+        if (this.iouValues.isEmpty()) {
+            throw new FlowException("There must be at least one counterparty.");
+        }
+
+        this.progressTracker.setCurrentStep(BUILDING);
+        NotarySelector notarySelector = getServiceHub().cordaService(NotarySelector.class);
+        Map<FlowSession, SignedTransaction> proposals = new LinkedHashMap<>();
+        Map<Party, SecureHash> transactionIds = new LinkedHashMap<>();
+
+        for (Map.Entry<Party, List<Integer>> counterparty : this.iouValues.entrySet()) {
+            Party otherParty = counterparty.getKey();
+            List<Integer> values = counterparty.getValue();
+
+            if (values.isEmpty()) {
+                throw new FlowException("There are no IOU values for " + otherParty + ".");
+            }
+
+            if (otherParty.equals(getOurIdentity())) {
+                throw new FlowException("We can't issue IOUs to ourselves.");
+            }
+
+            // Sticky by the pair, like IOUFlow, so these IOUs share a notary with every other IOU between us.
+            Party notary = notarySelector.select(NotarySelector.pairKey(getOurIdentity(), otherParty));
+            List<PublicKey> requiredSigners = Arrays.asList(getOurIdentity().getOwningKey(), otherParty.getOwningKey());
+            IOUContract.Commands commandData = values.size() == 1 ? new IOUContract.Create() : new IOUContract.BatchCreate();
+            TransactionBuilder txBuilder = new TransactionBuilder(notary).addCommand(new Command<>(commandData, requiredSigners));
+
+            for (Integer value : values) {
+                txBuilder.addOutputState(new IOUState(value, getOurIdentity(), otherParty), IOUContract.ID);
+            }
+
+            txBuilder.verify(getServiceHub());
+            SignedTransaction signedTx = getServiceHub().signInitialTransaction(txBuilder);
+
+            proposals.put(initiateFlow(otherParty), signedTx);
+            transactionIds.put(otherParty, signedTx.getId());
+        }
+
+        this.progressTracker.setCurrentStep(COLLECTING);
+        CollectSignaturesConcurrentlyFlow.Result signatures = subFlow(new CollectSignaturesConcurrentlyFlow(proposals));
+
+        this.progressTracker.setCurrentStep(FINALISING);
+        Map<FlowSession, SignedTransaction> signed = new LinkedHashMap<>();
+        proposals.forEach((session, proposal) -> signed.put(session, signatures.getTransactions().get(proposal.getId())));
+        long signedAfter = getServiceHub().getClock().millis() - start;
+        FinalityConcurrentlyFlow.Result finality = subFlow(new FinalityConcurrentlyFlow(signed));
+
+        Map<Party, Long> millisPerCounterparty = new LinkedHashMap<>();
+        finality.getMillisPerCounterparty().forEach((party, millis) -> millisPerCounterparty.put(party, signedAfter + millis));
+
+        long totalMillis = getServiceHub().getClock().millis() - start;
+        return new Result(totalMillis, millisPerCounterparty, transactionIds);
+    }
+}
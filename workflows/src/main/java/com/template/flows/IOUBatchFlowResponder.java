@@ -0,0 +1,53 @@
+package com.template.flows;
+
+import co.paralleluniverse.fibers.Suspendable;
+import com.template.services.AcceptancePolicyService;
+import com.template.states.IOUState;
+import net.corda.core.crypto.SecureHash;
+import net.corda.core.flows.*;
+import net.corda.core.transactions.SignedTransaction;
+import org.jetbrains.annotations.NotNull;
+
+import static net.corda.core.contracts.ContractsDSL.requireThat;
+
+// ******************
+// * Responder flow *
+// ******************
+@InitiatedBy(IOUBatchFlow.class)
+public class IOUBatchFlowResponder extends FlowLogic<SignedTransaction> {
+    private final FlowSession otherPartySession;
+
+    public IOUBatchFlowResponder(FlowSession otherPartySession) {
+        this.otherPartySession = otherPartySession;
+    }
+
+    @Suspendable
+    @Override
+    public SignedTransaction call() throws FlowException {
+
+        class SignTxFlow extends SignTransactionConcurrentlyFlow {
+
+            private SignTxFlow(@NotNull FlowSession otherPartySession) {
+                super(otherPartySession);
+            }
+
+            @Override
+            protected void checkTransaction(@NotNull SignedTransaction stx) throws FlowException {
+                getServiceHub().cordaService(AcceptancePolicyService.class).check(AcceptancePolicyService.IOU, stx);
+
+                requireThat(require -> {
+                    require.using("This must be an issuance.", stx.getInputs().isEmpty());
+
+                    for (IOUState iou : stx.getTx().outputsOfType(IOUState.class)) {
+                        require.using("The IOU must be from the party that sent it.", iou.getLender().equals(otherPartySession.getCounterparty()));
+                    }
+
+                    return null;
+                });
+            }
+        }
+
+        SecureHash expectedTxId = subFlow(new SignTxFlow(this.otherPartySession)).getId();
+        return subFlow(new ReceiveFinalityConcurrentlyFlow(this.otherPartySession, expectedTxId));
+    }
+}
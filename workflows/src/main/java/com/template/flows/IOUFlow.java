@@ -2,16 +2,23 @@ package com.template.flows;
 
 import co.paralleluniverse.fibers.Suspendable;
 import com.template.contracts.IOUContract;
+import com.template.services.FlowLatencyService;
+import com.template.services.FlowStep;
+import com.template.services.NotarySelector;
+import com.template.services.RequestDeduplicationService;
 import com.template.states.IOUState;
 import net.corda.core.contracts.Command;
+import net.corda.core.crypto.SecureHash;
 import net.corda.core.flows.*;
 import net.corda.core.identity.Party;
 import net.corda.core.transactions.SignedTransaction;
 import net.corda.core.transactions.TransactionBuilder;
 import net.corda.core.utilities.ProgressTracker;
+import org.jetbrains.annotations.Nullable;
 
 import java.security.PublicKey;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 // ******************
@@ -19,15 +26,32 @@ import java.util.List;
 // ******************
 @InitiatingFlow
 @StartableByRPC
-public class IOUFlow extends FlowLogic<Void> {
-    private final Integer iouValue;
+@StartableByService
+public class IOUFlow extends FlowLogic<SignedTransaction> {
+    private static final String NAME = "IOUFlow";
+
+    private final List<Integer> iouValues;
     private final Party otherParty;
+    @Nullable
+    private final String requestId;
 
     private final ProgressTracker progressTracker = new ProgressTracker();
 
     public IOUFlow(Integer iouValue, Party otherParty) {
-        this.iouValue = iouValue;
+        this(Collections.singletonList(iouValue), otherParty);
+    }
+
+    // Issues one IOU per value, all in a single transaction, so the whole list costs one round of signing and notarisation.
+    public IOUFlow(List<Integer> iouValues, Party otherParty) {
+        this(iouValues, otherParty, null);
+    }
+
+    // With a client request id, a retry of a request that has already been handled returns the original transaction
+    // instead of issuing the IOUs again.
+    public IOUFlow(List<Integer> iouValues, Party otherParty, @Nullable String requestId) {
+        this.iouValues = iouValues;
         this.otherParty = otherParty;
+        this.requestId = requestId;
     }
 
     @Override
@@ -37,35 +61,71 @@ public class IOUFlow extends FlowLogic<Void> {
 
     @Suspendable
     @Override
-    public Void call() throws FlowException {
+    public SignedTransaction call() throws FlowException {
+        if (this.requestId == null) {
+            return issue();
+        }
+
+        RequestDeduplicationService requests = getServiceHub().cordaService(RequestDeduplicationService.class);
+        SecureHash handled = requests.begin(this.requestId, NAME, getRunId().getUuid());
+
+        if (handled != null) {
+            return requests.handledTransaction(this.requestId, handled);
+        }
+
+        try {
+            SignedTransaction stx = issue();
+            requests.complete(this.requestId, NAME, getRunId().getUuid(), stx.getId());
+            return stx;
+        } finally {
+            requests.release(this.requestId, getRunId().getUuid());
+        }
+    }
+
+    @Suspendable
+    private SignedTransaction issue() throws FlowException {
         // Initiator flow logic goes here.
+        FlowLatencyService latency = getServiceHub().cordaService(FlowLatencyService.class);
+        FlowLatencyService.Stamp flowStart = latency.now();
 
-        // We retrieve the notary identity from the network map.
-        Party notary = getServiceHub().getNetworkMapCache().getNotaryIdentities().get(0);
+        // We pick a notary by the pair of us, so all the IOUs between us sit on one notary whichever of us lent, and can
+        // be netted together.
+        Party notary = getServiceHub().cordaService(NotarySelector.class)
+                .select(NotarySelector.pairKey(getOurIdentity(), this.otherParty));
 
         // We create the transaction components.
-        IOUState outputState = new IOUState(this.iouValue, getOurIdentity(), this.otherParty);
         List<PublicKey> requiredSigners = Arrays.asList(getOurIdentity().getOwningKey(), otherParty.getOwningKey());
-        Command command = new Command<>(new IOUContract.Create(), requiredSigners);
+        IOUContract.Commands commandData = this.iouValues.size() == 1 ? new IOUContract.Create() : new IOUContract.BatchCreate();
+        Command command = new Command<>(commandData, requiredSigners);
 
         // We create a transaction builder and add the components.
-        TransactionBuilder txBuilder = new TransactionBuilder(notary).addOutputState(outputState, IOUContract.ID).addCommand(command);
+        TransactionBuilder txBuilder = new TransactionBuilder(notary).addCommand(command);
+
+        for (Integer iouValue : this.iouValues) {
+            txBuilder.addOutputState(new IOUState(iouValue, getOurIdentity(), this.otherParty), IOUContract.ID);
+        }
 
         // Verifying the transaction.
+        FlowLatencyService.Stamp stepStart = latency.now();
         txBuilder.verify(getServiceHub());
+        stepStart = latency.record(NAME, FlowStep.VERIFY, stepStart);
 
         // Signing the transaction.
         SignedTransaction signedTx = getServiceHub().signInitialTransaction(txBuilder);
+        stepStart = latency.record(NAME, FlowStep.SIGN, stepStart);
 
         // Creating a session with the other party.
         FlowSession otherPartySession = initiateFlow(this.otherParty);
 
         // Obtaining the counterparty's signature.
         SignedTransaction fullySignedTx = subFlow(new CollectSignaturesFlow(signedTx, Arrays.asList(otherPartySession), CollectSignaturesFlow.tracker()));
+        stepStart = latency.record(NAME, FlowStep.COLLECT_SIGNATURES, stepStart);
 
-        // Finalising the transaction.
-        subFlow(new FinalityFlow(fullySignedTx, otherPartySession));
+        // Finalising the transaction. An IOU issuance isn't notarised, so this is all recording.
+        SignedTransaction finalTx = subFlow(new FinalityFlow(fullySignedTx, otherPartySession));
+        latency.record(NAME, FlowStep.RECORD, stepStart);
+        latency.record(NAME, FlowStep.TOTAL, flowStart);
 
-        return null;
+        return finalTx;
     }
 }
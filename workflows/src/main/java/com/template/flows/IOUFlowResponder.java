@@ -1,15 +1,12 @@
 package com.template.flows;
 
 import co.paralleluniverse.fibers.Suspendable;
-import com.template.states.IOUState;
-import net.corda.core.contracts.ContractState;
+import com.template.services.AcceptancePolicyService;
 import net.corda.core.crypto.SecureHash;
 import net.corda.core.flows.*;
 import net.corda.core.transactions.SignedTransaction;
 import org.jetbrains.annotations.NotNull;
 
-import static net.corda.core.contracts.ContractsDSL.requireThat;
-
 // ******************
 // * Responder flow *
 // ******************
@@ -33,13 +30,8 @@ public class IOUFlowResponder extends FlowLogic<Void> {
 
             @Override
             protected void checkTransaction(@NotNull SignedTransaction stx) throws FlowException {
-                requireThat(require -> {
-                    ContractState output = stx.getTx().getOutputs().get(0).getData();
-                    require.using("This must be an IOU transaction.", output instanceof IOUState);
-                    IOUState iou = (IOUState) output;
-                    require.using("The IOU's value can't be too high.", iou.getValue() < 100);
-                    return null;
-                });
+                // Every output must pass this deployment's IOU rules, which by default allow IOUs under 100.
+                getServiceHub().cordaService(AcceptancePolicyService.class).check(AcceptancePolicyService.IOU, stx);
             }
         }
 
@@ -0,0 +1,235 @@
+package com.template.flows;
+
+import co.paralleluniverse.fibers.Suspendable;
+import com.template.contracts.IOUContract;
+import com.template.schemas.IOUSchemaV1;
+import com.template.states.IOUState;
+import net.corda.core.contracts.StateAndRef;
+import net.corda.core.contracts.StateRef;
+import net.corda.core.crypto.SecureHash;
+import net.corda.core.flows.*;
+import net.corda.core.identity.Party;
+import net.corda.core.node.services.StatesNotAvailableException;
+import net.corda.core.node.services.Vault;
+import net.corda.core.node.services.vault.Builder;
+import net.corda.core.node.services.vault.PageSpecification;
+import net.corda.core.node.services.vault.QueryCriteria;
+import net.corda.core.node.services.vault.Sort;
+import net.corda.core.node.services.vault.SortAttribute;
+import net.corda.core.serialization.CordaSerializable;
+import net.corda.core.transactions.SignedTransaction;
+import net.corda.core.transactions.TransactionBuilder;
+import net.corda.core.utilities.NonEmptySet;
+import net.corda.core.utilities.ProgressTracker;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static net.corda.core.contracts.ContractsDSL.requireThat;
+import static net.corda.core.node.services.vault.QueryCriteriaUtils.getField;
+
+/**
+ * Nets all the IOUs between us and one counterparty, in either direction, down to a single IOU for what is owed on
+ * balance.
+ *
+ * The IOUs are netted a batch at a time, at most batchSize inputs per transaction. The oldest IOUs go first and each
+ * batch's net IOU joins the queue behind them, so every transaction takes batchSize - 1 IOUs off the ledger and the
+ * last one leaves one IOU, or none if everything cancels out. All the batches go over one session, with the
+ * counterparty told before each whether another one is coming.
+ *
+ * Each batch is soft-locked as it is picked, so two netting runs on one node never pick the same IOUs. The locks are
+ * only in our vault: if the counterparty nets with us at the same time, from its side, the notary lets only one of
+ * the two spend an IOU.
+ *
+ * A transaction can only spend states from one notary, so IOUs are netted per notary. IOUFlow keeps all the IOUs
+ * between two parties on one notary, so a pair only ends up with one IOU on each of several notaries if the set of
+ * notaries changed while they were trading.
+ */
+public class IOUNettingFlow {
+
+    @InitiatingFlow
+    @StartableByRPC
+    public static class Initiator extends FlowLogic<Result> {
+
+        // How many times a batch is picked again after another flow locked part of it first.
+        private static final int ATTEMPTS = 3;
+
+        private final Party otherParty;
+        private final int batchSize;
+        private final ProgressTracker progressTracker = new ProgressTracker();
+
+        public Initiator(Party otherParty, int batchSize) {
+            this.otherParty = otherParty;
+            this.batchSize = batchSize;
+        }
+
+        @Override
+        public ProgressTracker getProgressTracker() {
+            return progressTracker;
+        }
+
+        @Suspendable
+        @Override
+        public Result call() throws FlowException {
+            if (this.batchSize < 2) {
+                throw new FlowException("A netting batch must hold at least two IOUs.");
+            }
+
+            if (this.otherParty.equals(getOurIdentity())) {
+                throw new FlowException("IOUs can only be netted with another party.");
+            }
+
+            FlowSession session = initiateFlow(this.otherParty);
+            List<SecureHash> transactionIds = new ArrayList<>();
+            int netted = 0;
+
+            for (Party notary : getServiceHub().getNetworkMapCache().getNotaryIdentities()) {
+                while (true) {
+                    TransactionBuilder txBuilder = new TransactionBuilder(notary);
+                    List<StateAndRef<IOUState>> batch = reserveBatch(notary, txBuilder.getLockId());
+
+                    // One IOU, or none, is already as far as this notary's IOUs will go.
+                    if (batch.size() < 2) {
+                        break;
+                    }
+
+                    session.send(true);
+                    transactionIds.add(net(txBuilder, batch, session).getId());
+                    netted += batch.size();
+                }
+            }
+
+            session.send(false);
+            getLogger().info("Netted {} IOUs with {} in {} transactions", netted, this.otherParty, transactionIds.size());
+            return new Result(netted, transactionIds);
+        }
+
+        @Suspendable
+        private SignedTransaction net(TransactionBuilder txBuilder, List<StateAndRef<IOUState>> batch, FlowSession session) throws FlowException {
+            new IOUContract().generateNet(txBuilder, batch);
+            txBuilder.verify(getServiceHub());
+
+            SignedTransaction ptx = getServiceHub().signInitialTransaction(txBuilder);
+            SignedTransaction stx = subFlow(new CollectSignaturesFlow(ptx, Collections.singletonList(session)));
+            return subFlow(new FinalityFlow(stx, session));
+        }
+
+        /**
+         * The next batch, soft-locked under lockId so that another netting run on this node can't pick the same IOUs.
+         * If another run locks some of them between the query and the reservation, the query is run again, a few
+         * times, since the next query leaves out what that run took.
+         */
+        private List<StateAndRef<IOUState>> reserveBatch(Party notary, UUID lockId) throws StatesNotAvailableException {
+            StatesNotAvailableException lastConflict = null;
+
+            for (int attempt = 1; attempt <= ATTEMPTS; attempt++) {
+                List<StateAndRef<IOUState>> batch = nextBatch(notary);
+
+                if (batch.size() < 2) {
+                    return batch;
+                }
+
+                try {
+                    List<StateRef> refs = new ArrayList<>(batch.size());
+                    batch.forEach(iou -> refs.add(iou.getRef()));
+                    getServiceHub().getVaultService().softLockReserve(lockId, NonEmptySet.copyOf(refs));
+                    return batch;
+                } catch (StatesNotAvailableException e) {
+                    getLogger().debug("IOUs for netting with {} were locked by another flow, attempt {} of {}", this.otherParty, attempt, ATTEMPTS);
+                    lastConflict = e;
+                }
+            }
+
+            throw lastConflict;
+        }
+
+        private List<StateAndRef<IOUState>> nextBatch(Party notary) {
+            String us = getOurIdentity().getName().toString();
+            String them = this.otherParty.getName().toString();
+
+            QueryCriteria weLent = new QueryCriteria.VaultCustomQueryCriteria(Builder.equal(getField("lender", IOUSchemaV1.PersistentIOU.class), us))
+                    .and(new QueryCriteria.VaultCustomQueryCriteria(Builder.equal(getField("borrower", IOUSchemaV1.PersistentIOU.class), them)));
+            QueryCriteria theyLent = new QueryCriteria.VaultCustomQueryCriteria(Builder.equal(getField("lender", IOUSchemaV1.PersistentIOU.class), them))
+                    .and(new QueryCriteria.VaultCustomQueryCriteria(Builder.equal(getField("borrower", IOUSchemaV1.PersistentIOU.class), us)));
+            QueryCriteria criteria = new QueryCriteria.VaultQueryCriteria(
+                    Vault.StateStatus.UNCONSUMED,
+                    null,
+                    null,
+                    Collections.singletonList(notary),
+                    new QueryCriteria.SoftLockingCondition(QueryCriteria.SoftLockingType.UNLOCKED_ONLY, Collections.emptyList())
+            ).and(weLent.or(theyLent));
+            Sort oldestFirst = new Sort(Collections.singletonList(
+                    new Sort.SortColumn(new SortAttribute.Standard(Sort.VaultStateAttribute.RECORDED_TIME), Sort.Direction.ASC)
+            ));
+
+            return getServiceHub().getVaultService()
+                    .queryBy(IOUState.class, criteria, new PageSpecification(1, this.batchSize), oldestFirst)
+                    .getStates();
+        }
+    }
+
+    @InitiatedBy(IOUNettingFlow.Initiator.class)
+    public static class Responder extends FlowLogic<Void> {
+
+        private final FlowSession otherPartySession;
+
+        public Responder(FlowSession otherPartySession) {
+            this.otherPartySession = otherPartySession;
+        }
+
+        @Suspendable
+        @Override
+        public Void call() throws FlowException {
+
+            class SignTxFlow extends SignTransactionFlow {
+
+                private SignTxFlow(@NotNull FlowSession otherPartySession) {
+                    super(otherPartySession);
+                }
+
+                @Override
+                protected void checkTransaction(@NotNull SignedTransaction stx) throws FlowException {
+                    // The contract makes sure nothing owed is lost or gained, so it is enough that this is only netting.
+                    // The net IOU isn't held to the acceptance policy, since it stands for IOUs we already accepted.
+                    requireThat(require -> {
+                        require.using("This must be a netting.",
+                                stx.getTx().getCommands().stream().allMatch(command -> command.getValue() instanceof IOUContract.Net));
+                        return null;
+                    });
+                }
+            }
+
+            while (this.otherPartySession.receive(Boolean.class).unwrap(more -> more)) {
+                SecureHash expectedTxId = subFlow(new SignTxFlow(this.otherPartySession)).getId();
+                subFlow(new ReceiveFinalityFlow(this.otherPartySession, expectedTxId));
+            }
+
+            return null;
+        }
+    }
+
+    /**
+     * How many IOUs were netted and the transactions that did it, oldest first.
+     */
+    @CordaSerializable
+    public static class Result {
+        private final int netted;
+        private final List<SecureHash> transactionIds;
+
+        public Result(int netted, List<SecureHash> transactionIds) {
+            this.netted = netted;
+            this.transactionIds = transactionIds;
+        }
+
+        public int getNetted() {
+            return this.netted;
+        }
+
+        public List<SecureHash> getTransactionIds() {
+            return this.transactionIds;
+        }
+    }
+}
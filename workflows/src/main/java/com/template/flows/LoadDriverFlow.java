@@ -0,0 +1,57 @@
+package com.template.flows;
+
+import co.paralleluniverse.fibers.Suspendable;
+import com.template.services.LoadGeneratorService;
+import com.template.services.LoadReport;
+import com.template.services.LoadSpec;
+import net.corda.core.flows.FlowException;
+import net.corda.core.flows.FlowLogic;
+import net.corda.core.flows.StartableByRPC;
+import net.corda.core.utilities.ProgressTracker;
+
+
+/**
+ * Drives load from this node with {@link LoadGeneratorService}. StartLoadFlow starts a run and ReportFlow reports on it,
+ * while it runs and after it has finished.
+ */
+public class LoadDriverFlow {
+
+    @StartableByRPC
+    public static class StartLoadFlow extends FlowLogic<LoadReport> {
+
+        private final LoadSpec spec;
+        private final ProgressTracker progressTracker = new ProgressTracker();
+
+        public StartLoadFlow(LoadSpec spec) {
+            this.spec = spec;
+        }
+
+        @Override
+        public ProgressTracker getProgressTracker() {
+            return progressTracker;
+        }
+
+        @Suspendable
+        @Override
+        public LoadReport call() throws FlowException {
+            return getServiceHub().cordaService(LoadGeneratorService.class).start(this.spec);
+        }
+    }
+
+    @StartableByRPC
+    public static class ReportFlow extends FlowLogic<LoadReport> {
+
+        private final ProgressTracker progressTracker = new ProgressTracker();
+
+        @Override
+        public ProgressTracker getProgressTracker() {
+            return progressTracker;
+        }
+
+        @Suspendable
+        @Override
+        public LoadReport call() throws FlowException {
+            return getServiceHub().cordaService(LoadGeneratorService.class).report();
+        }
+    }
+}
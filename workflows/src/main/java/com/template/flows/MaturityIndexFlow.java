@@ -0,0 +1,90 @@
+package com.template.flows;
+
+import co.paralleluniverse.fibers.Suspendable;
+import com.template.services.MaturityIndexService;
+import com.template.services.PaperPosition;
+import net.corda.core.flows.FlowException;
+import net.corda.core.flows.FlowLogic;
+import net.corda.core.flows.StartableByRPC;
+import net.corda.core.identity.Party;
+import net.corda.core.utilities.ProgressTracker;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.LocalDate;
+import java.util.List;
+
+
+/**
+ * Answers maturity questions from {@link MaturityIndexService}'s in-memory index, without querying the vault.
+ */
+public class MaturityIndexFlow {
+
+    /**
+     * The papers maturing between two days, inclusive, in UTC. Only the owner's papers if an owner is given.
+     */
+    @StartableByRPC
+    public static class MaturingFlow extends FlowLogic<List<PaperPosition>> {
+
+        private final LocalDate from;
+        private final LocalDate to;
+        @Nullable
+        private final Party owner;
+        private final ProgressTracker progressTracker = new ProgressTracker();
+
+        public MaturingFlow(LocalDate from, LocalDate to, @Nullable Party owner) {
+            this.from = from;
+            this.to = to;
+            this.owner = owner;
+        }
+
+        @Override
+        public ProgressTracker getProgressTracker() {
+            return progressTracker;
+        }
+
+        @Suspendable
+        @Override
+        public List<PaperPosition> call() throws FlowException {
+            MaturityIndexService service = readyIndex(getServiceHub().cordaService(MaturityIndexService.class));
+
+            return this.owner == null
+                    ? service.getIndex().maturingBetween(this.from, this.to)
+                    : service.getIndex().maturingBetween(this.from, this.to, this.owner);
+        }
+    }
+
+    /**
+     * The largest unredeemed papers in a currency, largest first.
+     */
+    @StartableByRPC
+    public static class LargestFlow extends FlowLogic<List<PaperPosition>> {
+
+        private final String currencyCode;
+        private final int count;
+        private final ProgressTracker progressTracker = new ProgressTracker();
+
+        public LargestFlow(String currencyCode, int count) {
+            this.currencyCode = currencyCode;
+            this.count = count;
+        }
+
+        @Override
+        public ProgressTracker getProgressTracker() {
+            return progressTracker;
+        }
+
+        @Suspendable
+        @Override
+        public List<PaperPosition> call() throws FlowException {
+            return readyIndex(getServiceHub().cordaService(MaturityIndexService.class)).getIndex().largest(this.currencyCode, this.count);
+        }
+    }
+
+    private static MaturityIndexService readyIndex(MaturityIndexService service) throws FlowException {
+        if (!service.isReady()) {
+            throw new FlowException("The maturity index is still being built, try again shortly.");
+        }
+
+        return service;
+    }
+}
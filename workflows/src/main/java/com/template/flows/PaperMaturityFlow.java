@@ -0,0 +1,177 @@
+package com.template.flows;
+
+import co.paralleluniverse.fibers.Suspendable;
+import com.template.contracts.CommercialPaper;
+import com.template.schemas.PaperSchemaV1;
+import com.template.services.MaturityProcessingService;
+import net.corda.core.contracts.StateAndRef;
+import net.corda.core.contracts.StateRef;
+import net.corda.core.flows.FlowException;
+import net.corda.core.flows.FlowLogic;
+import net.corda.core.flows.SchedulableFlow;
+import net.corda.core.identity.AbstractParty;
+import net.corda.core.node.services.Vault;
+import net.corda.core.node.services.vault.Builder;
+import net.corda.core.node.services.vault.PageSpecification;
+import net.corda.core.node.services.vault.QueryCriteria;
+import net.corda.core.node.services.vault.Sort;
+import net.corda.core.node.services.vault.SortAttribute;
+import net.corda.core.utilities.ProgressTracker;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static net.corda.core.crypto.CryptoUtils.toStringShort;
+import static net.corda.core.node.services.vault.QueryCriteriaUtils.getField;
+
+/**
+ * Scheduled by every CommercialPaper.State for the end of its maturity window. On the issuer's node it redeems every
+ * matured paper the issuer has in its vault, in batches of up to maturity.batchSize papers of one owner per transaction
+ * through {@link RedeemPaperFlow}. A batch that fails is left for a later pass, and later rounds of this pass look past
+ * it. Anywhere else it does nothing.
+ *
+ * The issuer only sees papers it has recorded, so papers must be issued with the issuer keeping a copy, as an observer,
+ * for them to be redeemed automatically.
+ */
+@SchedulableFlow
+public class PaperMaturityFlow extends FlowLogic<Void> {
+
+    // How many matured papers one round picks up. Any beyond that are picked up by the next round.
+    private static final int PAPERS_PER_ROUND = 1_000;
+
+    private final StateRef paper;
+    private final ProgressTracker progressTracker = new ProgressTracker();
+
+    public PaperMaturityFlow(StateRef paper) {
+        this.paper = paper;
+    }
+
+    @Override
+    public ProgressTracker getProgressTracker() {
+        return progressTracker;
+    }
+
+    @Suspendable
+    @Override
+    public Void call() throws FlowException {
+        MaturityProcessingService maturity = getServiceHub().cordaService(MaturityProcessingService.class);
+        CommercialPaper.State state = getServiceHub().<CommercialPaper.State>toStateAndRef(this.paper).getState().getData();
+
+        if (!maturity.isAutoRedeem() || !getOurIdentity().getOwningKey().equals(state.getIssuance().getParty().getOwningKey())) {
+            return null;
+        }
+
+        if (!maturity.startPass(getRunId().getUuid())) {
+            return null;
+        }
+
+        Set<StateRef> failed = new HashSet<>();
+        boolean ended = false;
+
+        try {
+            // Rounds until one finds nothing new to redeem, and all over again if another maturity flow came due.
+            while (!ended) {
+                boolean foundAny = true;
+
+                while (foundAny) {
+                    foundAny = redeemMatured(maturity.getBatchSize(), failed);
+                }
+
+                ended = maturity.endPass();
+            }
+        } catch (RuntimeException e) {
+            // Ending normally rather than failing, so that giving up the pass is committed and not rolled back.
+            getLogger().warn("The maturity pass failed, leaving the rest for the next one", e);
+        } finally {
+            // Whatever cut the pass short, it mustn't keep every later maturity flow from running one.
+            if (!ended) {
+                maturity.abandonPass();
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * One round: redeems the matured papers found, in batches, and reports whether there were any.
+     */
+    @Suspendable
+    private boolean redeemMatured(int batchSize, Set<StateRef> failed) {
+        List<StateAndRef<CommercialPaper.State>> matured = matured(failed);
+
+        if (matured.isEmpty()) {
+            return false;
+        }
+
+        // A transaction has one notary, so batches don't mix them. Nor do they mix owners: one bad owner, or one payment
+        // that can't be made, then holds up only that owner's papers.
+        Map<List<AbstractParty>, List<StateAndRef<CommercialPaper.State>>> byNotaryAndOwner = new LinkedHashMap<>();
+
+        for (StateAndRef<CommercialPaper.State> paper : matured) {
+            List<AbstractParty> key = Arrays.asList(paper.getState().getNotary(), paper.getState().getData().getOwner());
+            byNotaryAndOwner.computeIfAbsent(key, notaryAndOwner -> new ArrayList<>()).add(paper);
+        }
+
+        for (List<StateAndRef<CommercialPaper.State>> papers : byNotaryAndOwner.values()) {
+            for (int from = 0; from < papers.size(); from += batchSize) {
+                List<StateAndRef<CommercialPaper.State>> batch = new ArrayList<>(papers.subList(from, Math.min(papers.size(), from + batchSize)));
+
+                // Building the transaction can fail with an unchecked exception as well, and that is no reason to
+                // give up on the other batches either.
+                try {
+                    subFlow(new RedeemPaperFlow.Initiator(batch));
+                } catch (FlowException | RuntimeException e) {
+                    getLogger().warn("Couldn't redeem a batch of {} matured papers, leaving them for now", batch.size(), e);
+                    batch.forEach(paper -> failed.add(paper.getRef()));
+                }
+            }
+        }
+
+        getLogger().info("Redeemed matured papers, {} found, {} left over after failures", matured.size(), failed.size());
+        return true;
+    }
+
+    /**
+     * Up to PAPERS_PER_ROUND matured papers, not counting the ones that have already failed in this pass. Failed
+     * papers stay unconsumed, so there can be pages of them ahead of the papers still to try, and those pages are
+     * read past.
+     */
+    private List<StateAndRef<CommercialPaper.State>> matured(Set<StateRef> failed) {
+        QueryCriteria criteria = new QueryCriteria.VaultQueryCriteria(Vault.StateStatus.UNCONSUMED)
+                .and(new QueryCriteria.VaultCustomQueryCriteria(Builder.equal(
+                        getField("issuanceKeyHash", PaperSchemaV1.PersistentCommercialPaper.class), toStringShort(getOurIdentity().getOwningKey()))))
+                .and(new QueryCriteria.VaultCustomQueryCriteria(Builder.lessThan(
+                        getField("maturity", PaperSchemaV1.PersistentCommercialPaper.class), getServiceHub().getClock().instant())));
+
+        // Pages in a fixed order, so that none are skipped or read twice.
+        Sort byRef = new Sort(Collections.singleton(new Sort.SortColumn(
+                new SortAttribute.Standard(Sort.CommonStateAttribute.STATE_REF), Sort.Direction.ASC)));
+        List<StateAndRef<CommercialPaper.State>> matured = new ArrayList<>();
+        long seen = 0;
+
+        for (int page = 1; matured.size() < PAPERS_PER_ROUND; page++) {
+            Vault.Page<CommercialPaper.State> results = getServiceHub().getVaultService()
+                    .queryBy(CommercialPaper.State.class, criteria, new PageSpecification(page, PAPERS_PER_ROUND), byRef);
+
+            for (StateAndRef<CommercialPaper.State> paper : results.getStates()) {
+                if (!failed.contains(paper.getRef()) && matured.size() < PAPERS_PER_ROUND) {
+                    matured.add(paper);
+                }
+            }
+
+            seen += results.getStates().size();
+
+            if (results.getStates().isEmpty() || seen >= results.getTotalStatesAvailable()) {
+                break;
+            }
+        }
+
+        return matured;
+    }
+}
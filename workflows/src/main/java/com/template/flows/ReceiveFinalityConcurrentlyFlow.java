@@ -0,0 +1,47 @@
+package com.template.flows;
+
+import co.paralleluniverse.fibers.Suspendable;
+import net.corda.core.crypto.SecureHash;
+import net.corda.core.flows.FlowException;
+import net.corda.core.flows.FlowLogic;
+import net.corda.core.flows.FlowSession;
+import net.corda.core.transactions.SignedTransaction;
+
+import java.security.SignatureException;
+
+/**
+ * The counterparty side of {@link FinalityConcurrentlyFlow}, and its equivalent of ReceiveFinalityFlow.
+ *
+ * It receives the finalised transaction, makes sure it is the one we signed and that it is fully signed and valid
+ * against the ledger this node already holds, records it and tells the other side.
+ */
+public class ReceiveFinalityConcurrentlyFlow extends FlowLogic<SignedTransaction> {
+
+    private final FlowSession otherPartySession;
+    private final SecureHash expectedTxId;
+
+    public ReceiveFinalityConcurrentlyFlow(FlowSession otherPartySession, SecureHash expectedTxId) {
+        this.otherPartySession = otherPartySession;
+        this.expectedTxId = expectedTxId;
+    }
+
+    @Suspendable
+    @Override
+    public SignedTransaction call() throws FlowException {
+        SignedTransaction stx = this.otherPartySession.receive(SignedTransaction.class).unwrap(data -> data);
+
+        if (!stx.getId().equals(this.expectedTxId)) {
+            throw new FlowException("Expected transaction " + this.expectedTxId + " to be finalised, not " + stx.getId() + ".");
+        }
+
+        try {
+            stx.verify(getServiceHub(), true);
+        } catch (SignatureException e) {
+            throw new FlowException("Transaction " + stx.getId() + " is missing signatures.", e);
+        }
+
+        getServiceHub().recordTransactions(stx);
+        this.otherPartySession.send(true);
+        return stx;
+    }
+}
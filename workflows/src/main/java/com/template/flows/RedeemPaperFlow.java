@@ -0,0 +1,155 @@
+package com.template.flows;
+
+import co.paralleluniverse.fibers.Suspendable;
+import com.template.contracts.CommercialPaper;
+import net.corda.core.contracts.InsufficientBalanceException;
+import net.corda.core.contracts.StateAndRef;
+import net.corda.core.contracts.TimeWindow;
+import net.corda.core.crypto.SecureHash;
+import net.corda.core.flows.*;
+import net.corda.core.identity.AbstractParty;
+import net.corda.core.identity.Party;
+import net.corda.core.node.services.StatesNotAvailableException;
+import net.corda.core.transactions.SignedTransaction;
+import net.corda.core.transactions.TransactionBuilder;
+import net.corda.core.utilities.ProgressTracker;
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static net.corda.core.contracts.ContractsDSL.requireThat;
+
+/**
+ * Redeems matured commercial paper: the issuer pays each owner the face value out of its own cash and the papers are
+ * destroyed.
+ *
+ * Many redemptions can run at once against the same cash. Coins are soft-locked per flow when they are chosen, and if
+ * there is no unlocked cash to choose, or another flow won the race for it, the whole attempt is dropped, its locks
+ * are released and it is tried again after a randomised, growing pause.
+ */
+public class RedeemPaperFlow {
+
+    @InitiatingFlow
+    @StartableByRPC
+    public static class Initiator extends FlowLogic<SignedTransaction> {
+
+        private static final int MAX_ATTEMPTS = 10;
+        private static final long BASE_BACKOFF_MILLIS = 100;
+        private static final long MAX_BACKOFF_MILLIS = 5_000;
+
+        private final List<StateAndRef<CommercialPaper.State>> papers;
+        private final ProgressTracker progressTracker = new ProgressTracker();
+
+        public Initiator(List<StateAndRef<CommercialPaper.State>> papers) {
+            this.papers = papers;
+        }
+
+        @Override
+        public ProgressTracker getProgressTracker() {
+            return progressTracker;
+        }
+
+        @Suspendable
+        @Override
+        public SignedTransaction call() throws FlowException {
+            if (this.papers.isEmpty()) {
+                throw new FlowException("There are no papers to redeem.");
+            }
+
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    return redeem();
+                } catch (InsufficientBalanceException | StatesNotAvailableException e) {
+                    // Everything we locked this time goes back, so other redemptions can use it while we wait.
+                    getServiceHub().getVaultService().softLockRelease(getRunId().getUuid(), null);
+
+                    if (attempt == MAX_ATTEMPTS) {
+                        throw e;
+                    }
+
+                    long ceiling = Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << (attempt - 1));
+                    long pause = ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling / 2 + 1);
+                    getLogger().debug("No cash free for redemption, attempt {} of {}, trying again in {} ms", attempt, MAX_ATTEMPTS, pause);
+                    sleep(Duration.ofMillis(pause));
+                }
+            }
+        }
+
+        @Suspendable
+        private SignedTransaction redeem() throws FlowException {
+            Party notary = this.papers.get(0).getState().getNotary();
+            // Locks taken while building are held under the flow's id, so they last until the flow ends or we let go.
+            TransactionBuilder txBuilder = new TransactionBuilder(notary, getRunId().getUuid());
+            new CommercialPaper().generateRedeem(txBuilder, this.papers, getServiceHub());
+            txBuilder.setTimeWindow(TimeWindow.fromOnly(Instant.now()));
+            txBuilder.verify(getServiceHub());
+
+            SignedTransaction ptx = getServiceHub().signInitialTransaction(txBuilder);
+
+            Set<Party> owners = new LinkedHashSet<>();
+
+            for (StateAndRef<CommercialPaper.State> paper : this.papers) {
+                AbstractParty owner = paper.getState().getData().getOwner();
+                Party party = getServiceHub().getIdentityService().wellKnownPartyFromAnonymous(owner);
+
+                if (party == null) {
+                    throw new FlowException("Can't find the owner of " + paper.getRef() + ".");
+                }
+
+                owners.add(party);
+            }
+
+            owners.remove(getOurIdentity());
+
+            List<FlowSession> sessions = new ArrayList<>();
+
+            for (Party owner : owners) {
+                sessions.add(initiateFlow(owner));
+            }
+
+            SignedTransaction stx = subFlow(new CollectSignaturesFlow(ptx, sessions));
+            return subFlow(new FinalityFlow(stx, sessions));
+        }
+    }
+
+    @InitiatedBy(RedeemPaperFlow.Initiator.class)
+    public static class Responder extends FlowLogic<SignedTransaction> {
+
+        private final FlowSession otherPartySession;
+
+        public Responder(FlowSession otherPartySession) {
+            this.otherPartySession = otherPartySession;
+        }
+
+        @Suspendable
+        @Override
+        public SignedTransaction call() throws FlowException {
+
+            class SignTxFlow extends SignTransactionFlow {
+
+                private SignTxFlow(@NotNull FlowSession otherPartySession) {
+                    super(otherPartySession);
+                }
+
+                @Override
+                protected void checkTransaction(@NotNull SignedTransaction stx) throws FlowException {
+                    // The contract makes sure every owner is paid in full, so it is enough that this really is a redemption.
+                    requireThat(require -> {
+                        require.using("This must be a redemption.",
+                                stx.getTx().getCommands().stream().anyMatch(command -> command.getValue() instanceof CommercialPaper.Commands.Redeem));
+                        return null;
+                    });
+                }
+            }
+
+            SecureHash expectedTxId = subFlow(new SignTxFlow(this.otherPartySession)).getId();
+            return subFlow(new ReceiveFinalityFlow(this.otherPartySession, expectedTxId));
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.template.flows;
+
+import co.paralleluniverse.fibers.Suspendable;
+import com.template.contracts.CommercialPaper;
+import com.template.services.BackChainSnippingService;
+import net.corda.core.contracts.ContractState;
+import net.corda.core.contracts.StateAndRef;
+import net.corda.core.contracts.StateRef;
+import net.corda.core.contracts.TimeWindow;
+import net.corda.core.crypto.SecureHash;
+import net.corda.core.flows.*;
+import net.corda.core.identity.Party;
+import net.corda.core.node.ServiceHub;
+import net.corda.core.node.StatesToRecord;
+import net.corda.core.transactions.SignedTransaction;
+import net.corda.core.transactions.TransactionBuilder;
+import net.corda.core.utilities.ProgressTracker;
+import org.jetbrains.annotations.NotNull;
+
+import java.security.PublicKey;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+
+import static net.corda.core.contracts.ContractsDSL.requireThat;
+
+/**
+ * Swaps a commercial paper for an identical one with no history, so that whoever it is moved to next doesn't have to
+ * resolve and verify every trade it has ever been through.
+ *
+ * The owner asks the paper's issuer for it. Both sign an exit of the paper and a fresh issue of a copy to the same
+ * owner before either is notarised. The issuer then notarises and records the exit, and the reissue only if that
+ * worked, before sending either to the owner. If anything goes wrong before the exit is notarised, the owner keeps the
+ * old paper. If the owner spends the old paper in the meantime, the exit is rejected and there is no reissue. And if
+ * the owner drops out once both are signed, the issuer still notarises both, so it never owes on two papers.
+ *
+ * Issuance, face value and maturity carry over unchanged, and the issuer, who has to trust its own liabilities, is
+ * the only party that verifies the old chain.
+ */
+public class ReissuePaperFlow {
+
+    @InitiatingFlow
+    @StartableByRPC
+    public static class Initiator extends FlowLogic<SignedTransaction> {
+
+        private final StateAndRef<CommercialPaper.State> paper;
+        private final ProgressTracker progressTracker = new ProgressTracker();
+
+        public Initiator(StateAndRef<CommercialPaper.State> paper) {
+            this.paper = paper;
+        }
+
+        @Override
+        public ProgressTracker getProgressTracker() {
+            return progressTracker;
+        }
+
+        @Suspendable
+        @Override
+        public SignedTransaction call() throws FlowException {
+            CommercialPaper.State state = this.paper.getState().getData();
+
+            if (!isOurKey(getServiceHub(), state.getOwner().getOwningKey())) {
+                throw new FlowException("Only the owner of " + this.paper.getRef() + " can ask for it to be reissued.");
+            }
+
+            Party issuer = getServiceHub().getIdentityService().wellKnownPartyFromAnonymous(state.getIssuance().getParty());
+
+            if (issuer == null) {
+                throw new FlowException("Can't find the issuer of " + this.paper.getRef() + ".");
+            }
+
+            if (issuer.equals(getOurIdentity())) {
+                throw new FlowException("We issued " + this.paper.getRef() + ", redeem it instead.");
+            }
+
+            FlowSession session = initiateFlow(issuer);
+            List<FlowSession> sessions = Collections.singletonList(session);
+
+            TransactionBuilder exitBuilder = new TransactionBuilder(this.paper.getState().getNotary());
+            new CommercialPaper().generateExit(exitBuilder, this.paper);
+            exitBuilder.verify(getServiceHub());
+
+            // Signed by both of us but not notarised, so the paper is still ours until the reissue is signed as well.
+            SignedTransaction ptx = getServiceHub().signInitialTransaction(exitBuilder);
+            SignedTransaction exit = subFlow(new CollectSignaturesFlow(ptx, sessions));
+
+            class SignReissueFlow extends SignTransactionFlow {
+
+                private SignReissueFlow(@NotNull FlowSession otherPartySession) {
+                    super(otherPartySession);
+                }
+
+                @Override
+                protected void checkTransaction(@NotNull SignedTransaction stx) throws FlowException {
+                    requireThat(require -> {
+                        require.using("The reissue must have no inputs.", stx.getTx().getInputs().isEmpty());
+                        require.using("The reissue must be the paper being exited, unchanged.",
+                                stx.getTx().getOutputStates().equals(Collections.singletonList(state)));
+                        return null;
+                    });
+                }
+            }
+
+            SecureHash expectedTxId = subFlow(new SignReissueFlow(session)).getId();
+
+            // The issuer notarises both before sending either, so by now the old paper has gone and the new one is ours.
+            SignedTransaction reissue = subFlow(new ReceiveFinalityFlow(session, expectedTxId));
+            subFlow(new ReceiveFinalityFlow(session, exit.getId()));
+            return reissue;
+        }
+    }
+
+    /**
+     * Reissues a paper only if its chain is longer than {@link BackChainSnippingService} allows. Started by the service
+     * for every paper that lands in the vault.
+     */
+    @StartableByService
+    public static class IfTooDeep extends FlowLogic<SignedTransaction> {
+
+        private final StateAndRef<CommercialPaper.State> paper;
+        private final ProgressTracker progressTracker = new ProgressTracker();
+
+        public IfTooDeep(StateAndRef<CommercialPaper.State> paper) {
+            this.paper = paper;
+        }
+
+        @Override
+        public ProgressTracker getProgressTracker() {
+            return progressTracker;
+        }
+
+        @Suspendable
+        @Override
+        public SignedTransaction call() throws FlowException {
+            CommercialPaper.State state = this.paper.getState().getData();
+            BackChainSnippingService snipping = getServiceHub().cordaService(BackChainSnippingService.class);
+
+            // Papers we don't hold, or issued ourselves, aren't ours to reissue.
+            if (!isOurKey(getServiceHub(), state.getOwner().getOwningKey()) || isOurKey(getServiceHub(), state.getIssuance().getParty().getOwningKey())) {
+                return null;
+            }
+
+            int depth = BackChainSnippingService.chainDepth(getServiceHub(), this.paper.getRef(), state.groupingKey(), snipping.getMaxDepth() + 1);
+
+            if (depth <= snipping.getMaxDepth()) {
+                return null;
+            }
+
+            getLogger().info("Reissuing {}, its chain is over {} transactions deep", this.paper.getRef(), snipping.getMaxDepth());
+            return subFlow(new Initiator(this.paper));
+        }
+    }
+
+    @InitiatedBy(ReissuePaperFlow.Initiator.class)
+    public static class Responder extends FlowLogic<SignedTransaction> {
+
+        private final FlowSession otherPartySession;
+
+        public Responder(FlowSession otherPartySession) {
+            this.otherPartySession = otherPartySession;
+        }
+
+        @Suspendable
+        @Override
+        public SignedTransaction call() throws FlowException {
+
+            class SignExitFlow extends SignTransactionFlow {
+
+                private SignExitFlow(@NotNull FlowSession otherPartySession) {
+                    super(otherPartySession);
+                }
+
+                @Override
+                protected void checkTransaction(@NotNull SignedTransaction stx) throws FlowException {
+                    List<StateRef> inputs = stx.getTx().getInputs();
+                    ContractState input = inputs.size() == 1 ? getServiceHub().toStateAndRef(inputs.get(0)).getState().getData() : null;
+                    boolean ourPaper = input instanceof CommercialPaper.State
+                            && isOurKey(getServiceHub(), ((CommercialPaper.State) input).getIssuance().getParty().getOwningKey());
+
+                    requireThat(require -> {
+                        require.using("This must be an exit.",
+                                stx.getTx().getCommands().stream().anyMatch(command -> command.getValue() instanceof CommercialPaper.Commands.Exit));
+                        require.using("Only one paper, issued by us, can be exited at a time.", ourPaper);
+                        require.using("Nothing may be issued in its place.", stx.getTx().getOutputs().isEmpty());
+                        return null;
+                    });
+                }
+            }
+
+            // The exit comes back fully signed, but isn't notarised until the owner has signed the reissue below.
+            SignedTransaction exit = subFlow(new SignExitFlow(this.otherPartySession));
+            StateAndRef<CommercialPaper.State> exited = getServiceHub().toStateAndRef(exit.getTx().getInputs().get(0));
+
+            // A fresh issuance, so the new paper's chain starts here. It stays with the notary the old one had.
+            TransactionBuilder txBuilder = new TransactionBuilder(exited.getState().getNotary());
+            new CommercialPaper().generateReissue(txBuilder, exited.getState().getData());
+            txBuilder.setTimeWindow(TimeWindow.withTolerance(Instant.now(), Duration.ofSeconds(30)));
+            txBuilder.verify(getServiceHub());
+
+            List<FlowSession> sessions = Collections.singletonList(this.otherPartySession);
+            SignedTransaction ptx = getServiceHub().signInitialTransaction(txBuilder);
+            SignedTransaction stx = subFlow(new CollectSignaturesFlow(ptx, sessions));
+
+            // Both are notarised and recorded here before the owner is sent either, so nothing the owner does from now on
+            // can leave both papers on the ledger. The exit goes first: if the owner has spent the paper, it fails here.
+            SignedTransaction notarisedExit = notariseAndRecord(exit);
+            SignedTransaction reissue = notariseAndRecord(stx);
+
+            try {
+                // Already notarised, so these only record and send.
+                subFlow(new FinalityFlow(reissue, sessions));
+                subFlow(new FinalityFlow(notarisedExit, sessions));
+            } catch (FlowException | UnexpectedFlowEndException e) {
+                getLogger().warn("The owner of {} dropped out before its reissue {} reached it, it is recorded here", exited.getRef(), reissue.getId(), e);
+            }
+
+            return reissue;
+        }
+
+        /**
+         * Notarises the transaction and records it, keeping every state in it, as the issuer does with its papers so that
+         * it can redeem them at maturity.
+         */
+        @Suspendable
+        private SignedTransaction notariseAndRecord(SignedTransaction stx) throws FlowException {
+            SignedTransaction notarised = stx.withAdditionalSignatures(subFlow(new NotaryFlow.Client(stx)));
+            getServiceHub().recordTransactions(StatesToRecord.ALL_VISIBLE, Collections.singletonList(notarised));
+            return notarised;
+        }
+    }
+
+    private static boolean isOurKey(ServiceHub services, PublicKey key) {
+        return services.getKeyManagementService().filterMyKeys(Collections.singletonList(key)).iterator().hasNext();
+    }
+}
@@ -6,30 +6,37 @@ import net.corda.core.flows.FlowException;
 import net.corda.core.flows.FlowLogic;
 import net.corda.core.flows.InitiatingFlow;
 import net.corda.core.flows.StartableByRPC;
-import net.corda.core.identity.Party;
-import net.corda.core.transactions.CoreTransaction;
-import net.corda.core.transactions.LedgerTransaction;
-import net.corda.core.utilities.OpaqueBytes;
 import net.corda.core.utilities.ProgressTracker;
 import net.corda.finance.contracts.asset.Cash;
-import net.corda.finance.flows.AbstractCashFlow;
-import net.corda.finance.flows.CashIssueFlow;
+import org.jetbrains.annotations.Nullable;
 
-import java.security.SignatureException;
 import java.util.Currency;
 
 // ******************
 // * Initiator flow *
 // ******************
+
+/**
+ * Issues cash to ourselves as a single coin. {@link SelfIssueSplitCashFlow} issues it as several.
+ */
 @InitiatingFlow
 @StartableByRPC
 public class SelfIssueCashFlow extends FlowLogic<Cash.State> {
 
     private final ProgressTracker progressTracker = new ProgressTracker();
-    private Amount<Currency> amount;
+    private final Amount<Currency> amount;
+    @Nullable
+    private final String requestId;
 
     public SelfIssueCashFlow(Amount<Currency> amount) {
+        this(amount, null);
+    }
+
+    // With a client request id, a retry of a request that has already been handled returns the cash from the original
+    // transaction instead of issuing it again.
+    public SelfIssueCashFlow(Amount<Currency> amount, @Nullable String requestId) {
         this.amount = amount;
+        this.requestId = requestId;
     }
 
     @Override
@@ -40,23 +47,6 @@ public class SelfIssueCashFlow extends FlowLogic<Cash.State> {
     @Suspendable
     @Override
     public Cash.State call() throws FlowException {
-
-        this.progressTracker.setCurrentStep(new ProgressTracker.Step("Gathering the required inputs."));
-        OpaqueBytes issueRef = OpaqueBytes.of((byte) 0);
-        Party notary = getServiceHub().getNetworkMapCache().getNotaryIdentities().get(0);
-
-        this.progressTracker.setCurrentStep(new ProgressTracker.Step("Issuing cash."));
-        AbstractCashFlow.Result cashIssueSubflowResult = subFlow(new CashIssueFlow(this.amount, issueRef, notary));
-
-        this.progressTracker.setCurrentStep((new ProgressTracker.Step("Returning the newly issued cash state.")));
-
-        LedgerTransaction cashIssueTx = null;
-        try {
-            cashIssueTx = cashIssueSubflowResult.getStx().toLedgerTransaction(getServiceHub());
-        } catch (SignatureException e) {
-            e.printStackTrace();
-        }
-
-        return cashIssueTx.outputsOfType(Cash.State.class).get(0);
+        return subFlow(new SelfIssueSplitCashFlow("SelfIssueCashFlow", this.amount, 1, this.requestId)).get(0);
     }
 }
@@ -0,0 +1,145 @@
+package com.template.flows;
+
+import co.paralleluniverse.fibers.Suspendable;
+import com.template.services.FlowLatencyService;
+import com.template.services.FlowStep;
+import com.template.services.NotarySelector;
+import com.template.services.RequestDeduplicationService;
+import net.corda.core.contracts.Amount;
+import net.corda.core.contracts.Issued;
+import net.corda.core.contracts.PartyAndReference;
+import net.corda.core.crypto.SecureHash;
+import net.corda.core.flows.FinalityFlow;
+import net.corda.core.flows.FlowException;
+import net.corda.core.flows.FlowLogic;
+import net.corda.core.flows.InitiatingFlow;
+import net.corda.core.flows.StartableByRPC;
+import net.corda.core.identity.Party;
+import net.corda.core.transactions.SignedTransaction;
+import net.corda.core.transactions.TransactionBuilder;
+import net.corda.core.utilities.OpaqueBytes;
+import net.corda.core.utilities.ProgressTracker;
+import net.corda.finance.contracts.asset.Cash;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.Currency;
+import java.util.List;
+
+// ******************
+// * Initiator flow *
+// ******************
+
+/**
+ * Issues cash to ourselves, split into the given number of coins of as near equal size as possible.
+ *
+ * Coin selection soft-locks whole coins, so concurrent spenders working against one big coin queue behind each other.
+ * Issuing the float as many coins up front lets them run side by side. {@link SelfIssueCashFlow} issues a single coin
+ * through this flow.
+ */
+@InitiatingFlow
+@StartableByRPC
+public class SelfIssueSplitCashFlow extends FlowLogic<List<Cash.State>> {
+
+    private final ProgressTracker.Step GATHERING = new ProgressTracker.Step("Gathering the required inputs.");
+    private final ProgressTracker.Step ISSUING = new ProgressTracker.Step("Issuing cash.");
+    private final ProgressTracker.Step RETURNING = new ProgressTracker.Step("Returning the newly issued cash states.");
+
+    private final ProgressTracker progressTracker = new ProgressTracker(GATHERING, ISSUING, RETURNING);
+    // Under which flow the request ids and latencies are recorded.
+    private final String name;
+    private final Amount<Currency> amount;
+    private final int coins;
+    @Nullable
+    private final String requestId;
+
+    public SelfIssueSplitCashFlow(Amount<Currency> amount, int coins) {
+        this(amount, coins, null);
+    }
+
+    // With a client request id, a retry of a request that has already been handled returns the cash from the original
+    // transaction instead of issuing it again.
+    public SelfIssueSplitCashFlow(Amount<Currency> amount, int coins, @Nullable String requestId) {
+        this("SelfIssueSplitCashFlow", amount, coins, requestId);
+    }
+
+    SelfIssueSplitCashFlow(String name, Amount<Currency> amount, int coins, @Nullable String requestId) {
+        this.name = name;
+        this.amount = amount;
+        this.coins = coins;
+        this.requestId = requestId;
+    }
+
+    @Override
+    public ProgressTracker getProgressTracker() {
+        return progressTracker;
+    }
+
+    @Suspendable
+    @Override
+    public List<Cash.State> call() throws FlowException {
+        if (this.requestId == null) {
+            return issue().getTx().outputsOfType(Cash.State.class);
+        }
+
+        RequestDeduplicationService requests = getServiceHub().cordaService(RequestDeduplicationService.class);
+        SecureHash handled = requests.begin(this.requestId, this.name, getRunId().getUuid());
+
+        if (handled != null) {
+            return requests.handledTransaction(this.requestId, handled).getTx().outputsOfType(Cash.State.class);
+        }
+
+        try {
+            SignedTransaction stx = issue();
+            requests.complete(this.requestId, this.name, getRunId().getUuid(), stx.getId());
+            return stx.getTx().outputsOfType(Cash.State.class);
+        } finally {
+            requests.release(this.requestId, getRunId().getUuid());
+        }
+    }
+
+    @Suspendable
+    private SignedTransaction issue() throws FlowException {
+
+        if (this.coins < 1 || this.coins > this.amount.getQuantity()) {
+            throw new FlowException("Can't split " + this.amount + " into " + this.coins + " coins.");
+        }
+
+        FlowLatencyService latency = getServiceHub().cordaService(FlowLatencyService.class);
+        FlowLatencyService.Stamp flowStart = latency.now();
+
+        this.progressTracker.setCurrentStep(GATHERING);
+        OpaqueBytes issueRef = OpaqueBytes.of((byte) 0);
+        // Always the same notary for our own cash, so that coins can be spent together.
+        Party notary = getServiceHub().cordaService(NotarySelector.class).select(getOurIdentity());
+
+        this.progressTracker.setCurrentStep(ISSUING);
+        PartyAndReference issuer = getOurIdentity().ref(issueRef);
+        TransactionBuilder txBuilder = new TransactionBuilder(notary);
+        long share = this.amount.getQuantity() / this.coins;
+        long remainder = this.amount.getQuantity() % this.coins;
+
+        for (int i = 0; i < this.coins; i++) {
+            // The remainder goes a unit at a time onto the first coins, so no coin is more than one unit off the others.
+            long quantity = share + (i < remainder ? 1 : 0);
+            Amount<Issued<Currency>> coin = new Amount<>(quantity, new Issued<>(issuer, this.amount.getToken()));
+            txBuilder.addOutputState(new Cash.State(coin, getOurIdentity()), Cash.PROGRAM_ID);
+        }
+
+        txBuilder.addCommand(new Cash.Commands.Issue(), getOurIdentity().getOwningKey());
+        FlowLatencyService.Stamp stepStart = latency.now();
+        txBuilder.verify(getServiceHub());
+        stepStart = latency.record(this.name, FlowStep.VERIFY, stepStart);
+        SignedTransaction signedTx = getServiceHub().signInitialTransaction(txBuilder);
+        stepStart = latency.record(this.name, FlowStep.SIGN, stepStart);
+        // No inputs and no time window, so this only records the transaction; there is nobody else to send it to.
+        SignedTransaction finalTx = subFlow(new FinalityFlow(signedTx, Collections.emptyList()));
+        latency.record(this.name, FlowStep.RECORD, stepStart);
+        latency.record(this.name, FlowStep.TOTAL, flowStart);
+
+        this.progressTracker.setCurrentStep(RETURNING);
+
+        // The caller reads the outputs straight off the WireTransaction. Nothing needs resolving to get at them.
+        return finalTx;
+    }
+}
@@ -0,0 +1,64 @@
+package com.template.flows;
+
+import co.paralleluniverse.fibers.Suspendable;
+import net.corda.core.crypto.TransactionSignature;
+import net.corda.core.flows.FlowException;
+import net.corda.core.flows.FlowLogic;
+import net.corda.core.flows.FlowSession;
+import net.corda.core.transactions.SignedTransaction;
+import org.jetbrains.annotations.NotNull;
+
+import java.security.PublicKey;
+import java.security.SignatureException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The counterparty side of {@link CollectSignaturesConcurrentlyFlow}, and its equivalent of SignTransactionFlow.
+ *
+ * It receives a transaction, lets the subclass check it, verifies it against the ledger this node already holds, then
+ * signs with every one of our keys the transaction needs and sends the signatures back.
+ */
+public abstract class SignTransactionConcurrentlyFlow extends FlowLogic<SignedTransaction> {
+
+    private final FlowSession otherPartySession;
+
+    protected SignTransactionConcurrentlyFlow(FlowSession otherPartySession) {
+        this.otherPartySession = otherPartySession;
+    }
+
+    @Suspendable
+    @Override
+    public SignedTransaction call() throws FlowException {
+        SignedTransaction stx = this.otherPartySession.receive(SignedTransaction.class).unwrap(data -> data);
+
+        // The subclass's checks only read the transaction, so they go first and turn proposals away before the
+        // contracts are run.
+        checkTransaction(stx);
+
+        try {
+            stx.verify(getServiceHub(), false);
+        } catch (SignatureException e) {
+            throw new FlowException("Transaction " + stx.getId() + " has an invalid signature.", e);
+        }
+
+        List<TransactionSignature> signatures = new ArrayList<>();
+
+        for (PublicKey key : getServiceHub().getKeyManagementService().filterMyKeys(stx.getTx().getRequiredSigningKeys())) {
+            signatures.add(getServiceHub().createSignature(stx, key));
+        }
+
+        if (signatures.isEmpty()) {
+            throw new FlowException("Transaction " + stx.getId() + " doesn't need our signature.");
+        }
+
+        this.otherPartySession.send(signatures);
+        return stx;
+    }
+
+    /**
+     * Throws if this node shouldn't sign the transaction. This is called before the contracts are run, so it should
+     * stick to cheap checks of what the transaction contains.
+     */
+    protected abstract void checkTransaction(@NotNull SignedTransaction stx) throws FlowException;
+}
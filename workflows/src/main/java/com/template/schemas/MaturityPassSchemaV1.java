@@ -0,0 +1,71 @@
+package com.template.schemas;
+
+import com.google.common.collect.ImmutableList;
+import net.corda.core.schemas.MappedSchema;
+import org.jetbrains.annotations.Nullable;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.time.Instant;
+
+/**
+ * The maturity pass table: at most one row, holding the flow run that is redeeming matured papers. Like the
+ * idempotency table it is node bookkeeping, so the entity is a plain JPA entity rather than a PersistentState.
+ */
+public class MaturityPassSchemaV1 extends MappedSchema {
+
+    public MaturityPassSchemaV1() {
+        super(MaturityPassSchema.class, 1, ImmutableList.of(PersistentPass.class));
+    }
+
+    @Nullable
+    @Override
+    public String getMigrationResource() {
+        return "maturity-pass.changelog-master";
+    }
+
+    @Entity
+    @Table(name = "maturity_pass")
+    public static class PersistentPass {
+
+        // There is only ever the one pass, so the key is a constant.
+        public static final String PASS_ID = "maturity";
+
+        @Id
+        @Column(name = "pass_id", length = 16, nullable = false)
+        private final String passId;
+
+        @Column(name = "run_id", length = 36, nullable = false)
+        private final String runId;
+
+        @Column(name = "started_at", nullable = false)
+        private final Instant startedAt;
+
+        public PersistentPass(String runId, Instant startedAt) {
+            this.passId = PASS_ID;
+            this.runId = runId;
+            this.startedAt = startedAt;
+        }
+
+        // Default constructor required by hibernate.
+        public PersistentPass() {
+            this.passId = null;
+            this.runId = null;
+            this.startedAt = null;
+        }
+
+        public String getPassId() {
+            return this.passId;
+        }
+
+        public String getRunId() {
+            return this.runId;
+        }
+
+        public Instant getStartedAt() {
+            return this.startedAt;
+        }
+    }
+}
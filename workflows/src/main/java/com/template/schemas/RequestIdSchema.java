@@ -0,0 +1,7 @@
+package com.template.schemas;
+
+/**
+ * The family of schemas for the client request ids that issuing flows have already handled.
+ */
+public class RequestIdSchema {
+}
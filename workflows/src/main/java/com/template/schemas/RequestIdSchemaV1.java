@@ -0,0 +1,89 @@
+package com.template.schemas;
+
+import com.google.common.collect.ImmutableList;
+import net.corda.core.schemas.MappedSchema;
+import org.jetbrains.annotations.Nullable;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.time.Instant;
+
+/**
+ * The idempotency table: one row per client request id, holding the flow run that handles it and, once it has
+ * completed, the transaction it produced. It is node bookkeeping, not ledger data, so the entity is a plain JPA entity
+ * rather than a PersistentState.
+ */
+public class RequestIdSchemaV1 extends MappedSchema {
+
+    public RequestIdSchemaV1() {
+        super(RequestIdSchema.class, 1, ImmutableList.of(PersistentRequest.class));
+    }
+
+    @Nullable
+    @Override
+    public String getMigrationResource() {
+        return "request-id.changelog-master";
+    }
+
+    @Entity
+    @Table(name = "handled_requests")
+    public static class PersistentRequest {
+
+        @Id
+        @Column(name = "request_id", length = 128, nullable = false)
+        private final String requestId;
+
+        @Column(name = "flow_name", nullable = false)
+        private final String flowName;
+
+        @Column(name = "run_id", length = 36)
+        private final String runId;
+
+        // Null while the request is in flight.
+        @Column(name = "transaction_id", length = 64)
+        private final String transactionId;
+
+        @Column(name = "handled_at", nullable = false)
+        private final Instant handledAt;
+
+        public PersistentRequest(String requestId, String flowName, String runId, @Nullable String transactionId, Instant handledAt) {
+            this.requestId = requestId;
+            this.flowName = flowName;
+            this.runId = runId;
+            this.transactionId = transactionId;
+            this.handledAt = handledAt;
+        }
+
+        // Default constructor required by hibernate.
+        public PersistentRequest() {
+            this.requestId = null;
+            this.flowName = null;
+            this.runId = null;
+            this.transactionId = null;
+            this.handledAt = null;
+        }
+
+        public String getRequestId() {
+            return this.requestId;
+        }
+
+        public String getFlowName() {
+            return this.flowName;
+        }
+
+        public String getRunId() {
+            return this.runId;
+        }
+
+        @Nullable
+        public String getTransactionId() {
+            return this.transactionId;
+        }
+
+        public Instant getHandledAt() {
+            return this.handledAt;
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package com.template.services;
+
+import net.corda.core.contracts.ContractState;
+import net.corda.core.cordapp.CordappConfig;
+import net.corda.core.flows.FlowException;
+import net.corda.core.node.AppServiceHub;
+import net.corda.core.node.services.CordaService;
+import net.corda.core.serialization.SingletonSerializeAsToken;
+import net.corda.core.transactions.SignedTransaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The rules responder flows use to decide whether to sign a proposal, read from the CorDapp config so that they can
+ * differ between deployments without changing the flows.
+ *
+ * Each policy is a list of rules under "acceptance.&lt;policy&gt;" in the config. A rule is either a state class on its
+ * own, which allows outputs of that type, or a state class, a property, an operator and a value:
+ *
+ * <pre>
+ * acceptance {
+ *     iou = ["com.template.states.IOUState value &lt; 100"]
+ *     dummyIssue = ["com.template.contracts.DummyContract$State"]
+ * }
+ * </pre>
+ *
+ * The operators are &lt;, &lt;=, &gt;, &gt;=, == and !=. A property must be a number, compared as a number, or a
+ * String, compared as text. Every output of a proposal must be of a type the policy mentions and must pass all of that
+ * type's rules, and a getter that throws counts as the rule not holding. A policy missing from the config falls back
+ * to the built-in rules above, but a policy that is there and can't be read, or a rule that doesn't parse, stops the
+ * node from starting.
+ *
+ * Rules are parsed, and their classes and getters looked up, once when the node starts. Checking a proposal is then a
+ * map lookup and a getter call per output per rule.
+ */
+@CordaService
+public class AcceptancePolicyService extends SingletonSerializeAsToken {
+
+    public static final String IOU = "iou";
+    public static final String DUMMY_ISSUE = "dummyIssue";
+
+    private static final Logger logger = LoggerFactory.getLogger(AcceptancePolicyService.class);
+    private static final String CONFIG_PREFIX = "acceptance.";
+    private static final Map<String, List<String>> DEFAULTS = new HashMap<>();
+
+    static {
+        DEFAULTS.put(IOU, Collections.singletonList("com.template.states.IOUState value < 100"));
+        DEFAULTS.put(DUMMY_ISSUE, Collections.singletonList("com.template.contracts.DummyContract$State"));
+    }
+
+    private final Map<String, Map<Class<?>, List<Rule>>> policies = new HashMap<>();
+
+    public AcceptancePolicyService(AppServiceHub serviceHub) {
+        CordappConfig config = serviceHub.getAppContext().getConfig();
+
+        for (Map.Entry<String, List<String>> policy : DEFAULTS.entrySet()) {
+            List<String> rules = configuredRules(config, policy.getKey());
+            this.policies.put(policy.getKey(), compile(rules != null ? rules : policy.getValue()));
+        }
+    }
+
+    /**
+     * Throws unless every output of the transaction is allowed by the named policy. Only the outputs are looked at,
+     * so nothing is resolved and this is cheap enough to run before the contracts are.
+     */
+    public void check(String policy, SignedTransaction stx) throws FlowException {
+        Map<Class<?>, List<Rule>> rules = this.policies.get(policy);
+
+        if (rules == null) {
+            throw new IllegalArgumentException("There is no acceptance policy called " + policy + ".");
+        }
+
+        List<ContractState> outputs = stx.getTx().getOutputStates();
+
+        if (outputs.isEmpty()) {
+            throw new FlowException("Rejected by " + policy + ": the transaction has no outputs.");
+        }
+
+        for (ContractState output : outputs) {
+            List<Rule> typeRules = rules.get(output.getClass());
+
+            if (typeRules == null) {
+                throw new FlowException("Rejected by " + policy + ": " + output.getClass().getName() + " outputs aren't accepted.");
+            }
+
+            for (Rule rule : typeRules) {
+                if (!rule.test(output)) {
+                    throw new FlowException("Rejected by " + policy + ": " + rule + " doesn't hold.");
+                }
+            }
+        }
+    }
+
+    /**
+     * The configured rules for a policy, or null if it isn't configured. A policy that is configured but isn't a list
+     * of strings is an error, like a rule that doesn't parse, rather than a reason to fall back to the built-in rules.
+     */
+    private static List<String> configuredRules(CordappConfig config, String policy) {
+        String key = CONFIG_PREFIX + policy;
+
+        if (!config.exists(key)) {
+            return null;
+        }
+
+        Object value = config.get(key);
+
+        if (!(value instanceof List)) {
+            throw new IllegalArgumentException(key + " in the CorDapp config should be a list of acceptance rules.");
+        }
+
+        List<String> rules = new ArrayList<>();
+
+        for (Object rule : (List<?>) value) {
+            if (!(rule instanceof String)) {
+                throw new IllegalArgumentException(key + " in the CorDapp config has a rule that isn't a string: " + rule + ".");
+            }
+
+            rules.add((String) rule);
+        }
+
+        logger.info("Using {} acceptance rules from the CorDapp config for {}", rules.size(), policy);
+        return rules;
+    }
+
+    /**
+     * Turns rules into a lookup from state class to the rules for that class. A rule that doesn't parse stops the node
+     * from starting, rather than letting a responder sign what it was configured to refuse.
+     */
+    static Map<Class<?>, List<Rule>> compile(List<String> rules) {
+        Map<Class<?>, List<Rule>> compiled = new HashMap<>();
+
+        for (String text : rules) {
+            String[] parts = text.trim().split("\\s+");
+            Class<?> type = stateClass(parts[0], text);
+            List<Rule> typeRules = compiled.computeIfAbsent(type, key -> new ArrayList<>());
+
+            if (parts.length == 1) {
+                continue;
+            }
+
+            if (parts.length != 4) {
+                throw new IllegalArgumentException("Acceptance rule '" + text + "' should be '<class> <property> <operator> <value>'.");
+            }
+
+            typeRules.add(new Rule(text, getter(type, parts[1], text), Operator.of(parts[2], text), parts[3]));
+        }
+
+        return compiled;
+    }
+
+    private static Class<?> stateClass(String name, String rule) {
+        try {
+            Class<?> type = Class.forName(name, true, AcceptancePolicyService.class.getClassLoader());
+
+            if (!ContractState.class.isAssignableFrom(type)) {
+                throw new IllegalArgumentException("Acceptance rule '" + rule + "' names " + name + ", which isn't a ContractState.");
+            }
+
+            return type;
+        } catch (ClassNotFoundException e) {
+            throw new IllegalArgumentException("Acceptance rule '" + rule + "' names an unknown class " + name + ".", e);
+        }
+    }
+
+    private static Method getter(Class<?> type, String property, String rule) {
+        String name = "get" + Character.toUpperCase(property.charAt(0)) + property.substring(1);
+
+        try {
+            return type.getMethod(name);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalArgumentException("Acceptance rule '" + rule + "' names a property " + property + " that " + type.getName() + " doesn't have.", e);
+        }
+    }
+
+    enum Operator {
+        LT("<"), LE("<="), GT(">"), GE(">="), EQ("=="), NE("!=");
+
+        private final String symbol;
+
+        Operator(String symbol) {
+            this.symbol = symbol;
+        }
+
+        static Operator of(String symbol, String rule) {
+            for (Operator operator : values()) {
+                if (operator.symbol.equals(symbol)) {
+                    return operator;
+                }
+            }
+
+            throw new IllegalArgumentException("Acceptance rule '" + rule + "' has an unknown operator " + symbol + ".");
+        }
+
+        boolean holds(int comparison) {
+            switch (this) {
+                case LT: return comparison < 0;
+                case LE: return comparison <= 0;
+                case GT: return comparison > 0;
+                case GE: return comparison >= 0;
+                case EQ: return comparison == 0;
+                default: return comparison != 0;
+            }
+        }
+    }
+
+    /**
+     * One compiled "property operator value" rule, on a number or a String property. A numeric property needs a
+     * numeric value, which is parsed once here.
+     */
+    static final class Rule {
+
+        private final String text;
+        private final Method getter;
+        private final Operator operator;
+        private final String value;
+        private final BigDecimal number;
+
+        Rule(String text, Method getter, Operator operator, String value) {
+            this.text = text;
+            this.getter = getter;
+            this.operator = operator;
+            this.value = value;
+            this.number = parseNumber(value);
+
+            Class<?> type = getter.getReturnType();
+
+            if (isNumeric(type)) {
+                if (this.number == null) {
+                    throw new IllegalArgumentException("Acceptance rule '" + text + "' compares a number with " + value + ", which isn't one.");
+                }
+            }
+            else if (type != String.class) {
+                throw new IllegalArgumentException("Acceptance rule '" + text + "' names a property of type " + type.getName() + ", but only numbers and strings can be compared.");
+            }
+        }
+
+        /**
+         * False if the property is null or its getter throws, so a state the rule can't be checked against is refused.
+         */
+        boolean test(ContractState state) {
+            Object actual;
+
+            try {
+                actual = this.getter.invoke(state);
+            } catch (IllegalAccessException | InvocationTargetException e) {
+                return false;
+            }
+
+            if (actual == null) {
+                return false;
+            }
+
+            if (actual instanceof Number) {
+                BigDecimal actualNumber = actual instanceof Long || actual instanceof Integer || actual instanceof Short || actual instanceof Byte
+                        ? BigDecimal.valueOf(((Number) actual).longValue())
+                        : parseNumber(actual.toString());
+                // NaN and the infinities don't parse, and are refused like a getter that throws.
+                return actualNumber != null && this.operator.holds(actualNumber.compareTo(this.number));
+            }
+
+            return this.operator.holds(((String) actual).compareTo(this.value));
+        }
+
+        private static boolean isNumeric(Class<?> type) {
+            return Number.class.isAssignableFrom(type)
+                    || type == int.class || type == long.class || type == short.class || type == byte.class
+                    || type == double.class || type == float.class;
+        }
+
+        private static BigDecimal parseNumber(String value) {
+            try {
+                return new BigDecimal(value);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return this.text;
+        }
+    }
+}
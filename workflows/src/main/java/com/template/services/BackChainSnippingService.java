@@ -0,0 +1,121 @@
+package com.template.services;
+
+import com.template.contracts.CommercialPaper;
+import com.template.contracts.PaperGroupingKey;
+import com.template.contracts.PaperState;
+import com.template.flows.ReissuePaperFlow;
+import net.corda.core.contracts.ContractState;
+import net.corda.core.contracts.StateAndRef;
+import net.corda.core.contracts.StateRef;
+import net.corda.core.cordapp.CordappConfig;
+import net.corda.core.node.AppServiceHub;
+import net.corda.core.node.ServiceHub;
+import net.corda.core.node.services.CordaService;
+import net.corda.core.serialization.SingletonSerializeAsToken;
+import net.corda.core.transactions.SignedTransaction;
+import net.corda.core.transactions.WireTransaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Keeps the back-chains of the commercial paper we hold short. Every paper that lands in the vault is checked by a
+ * {@link ReissuePaperFlow.IfTooDeep}, which has the issuer reissue it once its chain is longer than the CorDapp config
+ * key "reissue.maxChainDepth" (100 if not set, 0 turns the policy off).
+ *
+ * The depth counted is the paper's own lineage, one transaction per move back to its issuance. The full back-chain a
+ * new owner resolves also takes in the cash and other states those transactions used, but it grows with the lineage.
+ */
+@CordaService
+public class BackChainSnippingService extends SingletonSerializeAsToken {
+
+    private static final Logger logger = LoggerFactory.getLogger(BackChainSnippingService.class);
+    private static final String MAX_DEPTH_CONFIG_KEY = "reissue.maxChainDepth";
+    private static final int DEFAULT_MAX_DEPTH = 100;
+
+    private final AppServiceHub serviceHub;
+    private final int maxDepth;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "back-chain-snipping");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public BackChainSnippingService(AppServiceHub serviceHub) {
+        this.serviceHub = serviceHub;
+        this.maxDepth = configuredMaxDepth(serviceHub);
+
+        if (this.maxDepth > 0) {
+            serviceHub.getVaultService().getUpdates().subscribe(update -> {
+                for (StateAndRef<ContractState> produced : update.getProduced()) {
+                    if (produced.getState().getData() instanceof CommercialPaper.State) {
+                        check(produced);
+                    }
+                }
+            });
+        }
+    }
+
+    public int getMaxDepth() {
+        return this.maxDepth;
+    }
+
+    /**
+     * How many transactions deep the paper at ref is, following its lineage back to its issuance, counting no further
+     * than limit. Transactions we don't have, and contract upgrades, end the walk.
+     */
+    public static int chainDepth(ServiceHub services, StateRef ref, PaperGroupingKey key, int limit) {
+        SignedTransaction stx = services.getValidatedTransactions().getTransaction(ref.getTxhash());
+        int depth = 0;
+
+        while (stx != null && depth < limit) {
+            depth++;
+            SignedTransaction parent = null;
+
+            for (StateRef input : stx.getInputs()) {
+                SignedTransaction candidate = services.getValidatedTransactions().getTransaction(input.getTxhash());
+
+                if (candidate != null && candidate.getCoreTransaction() instanceof WireTransaction) {
+                    ContractState state = candidate.getTx().getOutputs().get(input.getIndex()).getData();
+
+                    if (state instanceof PaperState && ((PaperState) state).groupingKey().equals(key)) {
+                        parent = candidate;
+                        break;
+                    }
+                }
+            }
+
+            stx = parent;
+        }
+
+        return depth;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void check(StateAndRef<ContractState> paper) {
+        // Not on the thread that publishes vault updates, which may be a flow's.
+        this.executor.execute(() -> {
+            try {
+                this.serviceHub.startFlow(new ReissuePaperFlow.IfTooDeep((StateAndRef<CommercialPaper.State>) (StateAndRef<?>) paper));
+            } catch (RuntimeException e) {
+                logger.warn("Couldn't check the chain depth of " + paper.getRef(), e);
+            }
+        });
+    }
+
+    private static int configuredMaxDepth(AppServiceHub serviceHub) {
+        try {
+            CordappConfig config = serviceHub.getAppContext().getConfig();
+
+            if (config.exists(MAX_DEPTH_CONFIG_KEY)) {
+                return config.getInt(MAX_DEPTH_CONFIG_KEY);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Couldn't read " + MAX_DEPTH_CONFIG_KEY + " from the CorDapp config, using " + DEFAULT_MAX_DEPTH, e);
+        }
+
+        return DEFAULT_MAX_DEPTH;
+    }
+}
@@ -0,0 +1,88 @@
+package com.template.services;
+
+import net.corda.core.serialization.CordaSerializable;
+
+import java.util.List;
+
+/**
+ * Progress of a bulk contract upgrade, one entry per batch.
+ */
+@CordaSerializable
+public class BulkUpgradeReport {
+
+    private final boolean running;
+    private final List<Batch> batches;
+
+    public BulkUpgradeReport(boolean running, List<Batch> batches) {
+        this.running = running;
+        this.batches = batches;
+    }
+
+    public boolean isRunning() {
+        return this.running;
+    }
+
+    public List<Batch> getBatches() {
+        return this.batches;
+    }
+
+    public long totalUpgraded() {
+        return this.batches.stream().mapToLong(Batch::getUpgraded).sum();
+    }
+
+    public long totalFailed() {
+        return this.batches.stream().mapToLong(Batch::getFailed).sum();
+    }
+
+    @Override
+    public String toString() {
+        return "BulkUpgradeReport(running=" + this.running + ", upgraded=" + totalUpgraded() + ", failed=" + totalFailed() + ", batches=" + this.batches + ")";
+    }
+
+    @CordaSerializable
+    public static class Batch {
+
+        private final int number;
+        private final int upgraded;
+        private final int failed;
+        private final long elapsedMillis;
+        private final List<String> errors;
+
+        public Batch(int number, int upgraded, int failed, long elapsedMillis, List<String> errors) {
+            this.number = number;
+            this.upgraded = upgraded;
+            this.failed = failed;
+            this.elapsedMillis = elapsedMillis;
+            this.errors = errors;
+        }
+
+        public int getNumber() {
+            return this.number;
+        }
+
+        public int getUpgraded() {
+            return this.upgraded;
+        }
+
+        public int getFailed() {
+            return this.failed;
+        }
+
+        public long getElapsedMillis() {
+            return this.elapsedMillis;
+        }
+
+        public List<String> getErrors() {
+            return this.errors;
+        }
+
+        public double statesPerSecond() {
+            return this.elapsedMillis == 0 ? 0 : (this.upgraded + this.failed) * 1000.0 / this.elapsedMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Batch(%d: upgraded=%d, failed=%d, %.1f states/s)", this.number, this.upgraded, this.failed, statesPerSecond());
+        }
+    }
+}
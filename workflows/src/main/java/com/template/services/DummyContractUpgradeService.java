@@ -0,0 +1,172 @@
+package com.template.services;
+
+import com.template.contracts.DummyContract;
+import com.template.flows.DummyContractUpgradeFlow;
+import net.corda.core.concurrent.CordaFuture;
+import net.corda.core.contracts.StateAndRef;
+import net.corda.core.contracts.StateRef;
+import net.corda.core.node.AppServiceHub;
+import net.corda.core.node.services.CordaService;
+import net.corda.core.node.services.Vault;
+import net.corda.core.node.services.vault.PageSpecification;
+import net.corda.core.node.services.vault.QueryCriteria;
+import net.corda.core.node.services.vault.Sort;
+import net.corda.core.node.services.vault.SortAttribute;
+import net.corda.core.serialization.SingletonSerializeAsToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Drives the upgrade of every DummyContract.State in the vault to DummyContractV2.
+ *
+ * The vault is read a page at a time and each state in the page is upgraded by its own
+ * {@link DummyContractUpgradeFlow.UpgradeStateFlow}, with at most maxInFlight of those running at once. The work runs on
+ * this service's own thread so the RPC flow that starts it returns straight away.
+ *
+ * The job is resumable because the vault is the work queue: an upgraded state is consumed and drops out of the next
+ * query, so starting the job again after a restart only picks up the states that are left. Upgrade flows that were in
+ * flight are checkpointed and finish on their own.
+ */
+@CordaService
+public class DummyContractUpgradeService extends SingletonSerializeAsToken {
+
+    private static final Logger logger = LoggerFactory.getLogger(DummyContractUpgradeService.class);
+    private static final int MAX_ERRORS_PER_BATCH = 10;
+
+    private final AppServiceHub serviceHub;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "dummy-contract-upgrade");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private boolean running;
+    private List<BulkUpgradeReport.Batch> batches = Collections.emptyList();
+
+    public DummyContractUpgradeService(AppServiceHub serviceHub) {
+        this.serviceHub = serviceHub;
+    }
+
+    /**
+     * Starts an upgrade job unless one is already running, and returns the current report either way.
+     */
+    public synchronized BulkUpgradeReport start(int pageSize, int maxInFlight) {
+        if (pageSize <= 0 || maxInFlight <= 0) {
+            throw new IllegalArgumentException("pageSize and maxInFlight must be positive.");
+        }
+
+        if (!this.running) {
+            this.running = true;
+            this.batches = new ArrayList<>();
+            this.executor.execute(() -> run(pageSize, maxInFlight));
+        }
+
+        return report();
+    }
+
+    public synchronized BulkUpgradeReport report() {
+        return new BulkUpgradeReport(this.running, new ArrayList<>(this.batches));
+    }
+
+    private void run(int pageSize, int maxInFlight) {
+        QueryCriteria unconsumed = new QueryCriteria.VaultQueryCriteria(Vault.StateStatus.UNCONSUMED);
+        // A stable order, so that failed states stay where they are and a page of nothing but failures can be skipped.
+        Sort oldestFirst = new Sort(Collections.singletonList(
+                new Sort.SortColumn(new SortAttribute.Standard(Sort.VaultStateAttribute.RECORDED_TIME), Sort.Direction.ASC)
+        ));
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        // States that failed stay unconsumed, so they are skipped rather than retried forever within one job.
+        Set<StateRef> failed = new HashSet<>();
+        int pageNumber = 1;
+        int batchNumber = 0;
+
+        try {
+            while (true) {
+                List<StateAndRef<DummyContract.State>> page = this.serviceHub.getVaultService()
+                        .queryBy(DummyContract.State.class, unconsumed, new PageSpecification(pageNumber, pageSize), oldestFirst)
+                        .getStates();
+
+                if (page.isEmpty()) {
+                    break;
+                }
+
+                List<StateAndRef<DummyContract.State>> todo = new ArrayList<>(page.size());
+
+                for (StateAndRef<DummyContract.State> state : page) {
+                    if (!failed.contains(state.getRef())) {
+                        todo.add(state);
+                    }
+                }
+
+                // Only failures left on this page, so move past it. Otherwise the upgraded states fall out of the
+                // query and the same page number brings in the next ones.
+                if (todo.isEmpty()) {
+                    pageNumber++;
+                    continue;
+                }
+
+                BulkUpgradeReport.Batch batch = upgrade(++batchNumber, todo, inFlight, failed);
+                logger.info("Upgraded {}", batch);
+
+                synchronized (this) {
+                    this.batches.add(batch);
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.error("Bulk upgrade stopped", e);
+        } finally {
+            synchronized (this) {
+                this.running = false;
+            }
+        }
+    }
+
+    private BulkUpgradeReport.Batch upgrade(int number, List<StateAndRef<DummyContract.State>> states, Semaphore inFlight, Set<StateRef> failed) {
+        long start = System.nanoTime();
+        List<CordaFuture<Void>> results = new ArrayList<>(states.size());
+
+        for (StateAndRef<DummyContract.State> state : states) {
+            inFlight.acquireUninterruptibly();
+
+            try {
+                CordaFuture<Void> result = this.serviceHub.startFlow(new DummyContractUpgradeFlow.UpgradeStateFlow(state)).getReturnValue();
+                result.then(done -> {
+                    inFlight.release();
+                    return null;
+                });
+                results.add(result);
+            } catch (RuntimeException e) {
+                inFlight.release();
+                throw e;
+            }
+        }
+
+        int upgraded = 0;
+        List<String> errors = new ArrayList<>();
+
+        for (int i = 0; i < results.size(); i++) {
+            try {
+                results.get(i).get();
+                upgraded++;
+            } catch (Exception e) {
+                failed.add(states.get(i).getRef());
+
+                if (errors.size() < MAX_ERRORS_PER_BATCH) {
+                    errors.add(states.get(i).getRef() + ": " + e.getMessage());
+                }
+            }
+        }
+
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        return new BulkUpgradeReport.Batch(number, upgraded, states.size() - upgraded, elapsedMillis, errors);
+    }
+}
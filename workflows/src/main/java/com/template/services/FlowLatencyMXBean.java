@@ -0,0 +1,16 @@
+package com.template.services;
+
+/**
+ * The JMX view of {@link FlowLatencyService}, registered as com.template:type=FlowLatency,node=&lt;legal name&gt;.
+ */
+public interface FlowLatencyMXBean {
+
+    /**
+     * One line per flow and step with the count and the p50, p90, p99 and max latencies in milliseconds.
+     */
+    String[] getSummary();
+
+    double percentileMillis(String flow, String step, double percentile);
+
+    void reset();
+}
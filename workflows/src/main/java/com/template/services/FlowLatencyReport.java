@@ -0,0 +1,88 @@
+package com.template.services;
+
+import net.corda.core.serialization.CordaSerializable;
+
+import java.util.List;
+
+/**
+ * Latency percentiles per flow and step, in milliseconds, as returned by the stats flow.
+ */
+@CordaSerializable
+public class FlowLatencyReport {
+
+    private final List<Row> rows;
+
+    public FlowLatencyReport(List<Row> rows) {
+        this.rows = rows;
+    }
+
+    public List<Row> getRows() {
+        return this.rows;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder("FlowLatencyReport");
+
+        for (Row row : this.rows) {
+            text.append(System.lineSeparator()).append("  ").append(row);
+        }
+
+        return text.toString();
+    }
+
+    @CordaSerializable
+    public static class Row {
+
+        private final String flow;
+        private final FlowStep step;
+        private final long count;
+        private final double p50;
+        private final double p90;
+        private final double p99;
+        private final double max;
+
+        public Row(String flow, FlowStep step, long count, double p50, double p90, double p99, double max) {
+            this.flow = flow;
+            this.step = step;
+            this.count = count;
+            this.p50 = p50;
+            this.p90 = p90;
+            this.p99 = p99;
+            this.max = max;
+        }
+
+        public String getFlow() {
+            return this.flow;
+        }
+
+        public FlowStep getStep() {
+            return this.step;
+        }
+
+        public long getCount() {
+            return this.count;
+        }
+
+        public double getP50() {
+            return this.p50;
+        }
+
+        public double getP90() {
+            return this.p90;
+        }
+
+        public double getP99() {
+            return this.p99;
+        }
+
+        public double getMax() {
+            return this.max;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s %s: n=%d p50=%.2fms p90=%.2fms p99=%.2fms max=%.2fms", this.flow, this.step, this.count, this.p50, this.p90, this.p99, this.max);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.template.services;
+
+import net.corda.core.node.AppServiceHub;
+import net.corda.core.node.services.CordaService;
+import net.corda.core.serialization.SingletonSerializeAsToken;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency histograms per flow and per step, so that a slow flow can be pinned on our own vault, the counterparty or
+ * the notary.
+ *
+ * Flows time themselves by chaining calls to {@link #record(String, FlowStep, Stamp)}: each call records the time since
+ * the previous one and returns a {@link Stamp} for now, which starts the next step. The histograms cover the life of
+ * the node and are read with FlowLatencyStatsFlow over RPC or with the FlowLatencyMXBean over JMX. They are HdrHistogram
+ * ConcurrentHistograms, as the load driver uses, so recording is lock-free.
+ *
+ * A stamp is kept in the flow across suspensions, so a flow restored from its checkpoint after a restart, or on
+ * another JVM, can hold one from an earlier run. System.nanoTime() means nothing across runs, so a step that started
+ * in another run isn't recorded.
+ */
+@CordaService
+public class FlowLatencyService extends SingletonSerializeAsToken implements FlowLatencyMXBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(FlowLatencyService.class);
+    // Microseconds, up to an hour, to two significant digits. A slower step is recorded as an hour.
+    private static final long HIGHEST_MICROS = TimeUnit.HOURS.toMicros(1);
+    private static final int SIGNIFICANT_DIGITS = 2;
+
+    private final Map<String, Map<FlowStep, Histogram>> histograms = new ConcurrentSkipListMap<>();
+    // Identifies this run of the node, and so which stamps can be compared with System.nanoTime().
+    private final long run = new SecureRandom().nextLong();
+
+    public FlowLatencyService(AppServiceHub serviceHub) {
+        try {
+            String node = serviceHub.getMyInfo().getLegalIdentities().get(0).getName().toString();
+            ObjectName name = new ObjectName("com.template:type=FlowLatency,node=" + ObjectName.quote(node));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+        } catch (JMException e) {
+            // Several nodes in one JVM, as in tests, or a locked-down MBean server. The RPC flow still works.
+            logger.warn("Flow latency isn't available over JMX", e);
+        }
+    }
+
+    /**
+     * The time now, to start a flow or a step.
+     */
+    public Stamp now() {
+        return new Stamp(this.run, System.nanoTime());
+    }
+
+    /**
+     * Records the time since stepStart against the step, unless the step started in an earlier run, and returns the
+     * time now.
+     */
+    public Stamp record(String flow, FlowStep step, Stamp stepStart) {
+        Stamp now = now();
+
+        if (now.sameRunAs(stepStart)) {
+            histogram(flow, step).recordValue(Math.max(0, Math.min(HIGHEST_MICROS, now.nanosSince(stepStart) / 1_000)));
+        }
+
+        return now;
+    }
+
+    public FlowLatencyReport report() {
+        List<FlowLatencyReport.Row> rows = new ArrayList<>();
+
+        for (Map.Entry<String, Map<FlowStep, Histogram>> flow : this.histograms.entrySet()) {
+            for (FlowStep step : FlowStep.values()) {
+                Histogram histogram = flow.getValue().get(step);
+
+                if (histogram == null) {
+                    continue;
+                }
+
+                // A copy, so that the row is consistent while other flows keep recording.
+                Histogram snapshot = histogram.copy();
+                rows.add(new FlowLatencyReport.Row(flow.getKey(), step, snapshot.getTotalCount(),
+                        millis(snapshot, 50), millis(snapshot, 90), millis(snapshot, 99), snapshot.getMaxValue() / 1_000.0));
+            }
+        }
+
+        return new FlowLatencyReport(rows);
+    }
+
+    @Override
+    public String[] getSummary() {
+        return report().getRows().stream().map(FlowLatencyReport.Row::toString).toArray(String[]::new);
+    }
+
+    @Override
+    public double percentileMillis(String flow, String step, double percentile) {
+        Map<FlowStep, Histogram> steps = this.histograms.get(flow);
+        Histogram histogram = steps == null ? null : steps.get(FlowStep.valueOf(step));
+        return histogram == null ? 0 : millis(histogram, percentile);
+    }
+
+    @Override
+    public void reset() {
+        this.histograms.clear();
+    }
+
+    /**
+     * A point in time in one run of the node.
+     */
+    public static final class Stamp {
+
+        private final long run;
+        private final long nanos;
+
+        private Stamp(long run, long nanos) {
+            this.run = run;
+            this.nanos = nanos;
+        }
+
+        public boolean sameRunAs(Stamp other) {
+            return this.run == other.run;
+        }
+
+        /**
+         * Only meaningful if both stamps are from the same run.
+         */
+        public long nanosSince(Stamp earlier) {
+            return this.nanos - earlier.nanos;
+        }
+    }
+
+    private Histogram histogram(String flow, FlowStep step) {
+        return this.histograms
+                .computeIfAbsent(flow, key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(step, key -> new ConcurrentHistogram(HIGHEST_MICROS, SIGNIFICANT_DIGITS));
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1_000.0;
+    }
+}
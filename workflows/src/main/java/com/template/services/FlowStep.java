@@ -0,0 +1,12 @@
+package com.template.services;
+
+import net.corda.core.serialization.CordaSerializable;
+
+/**
+ * The stages of a flow that {@link FlowLatencyService} times. A flow records only the steps it actually goes through;
+ * an issuance with no time window, for instance, is never notarised.
+ */
+@CordaSerializable
+public enum FlowStep {
+    VERIFY, SIGN, COLLECT_SIGNATURES, NOTARISE, RECORD, TOTAL
+}
@@ -0,0 +1,187 @@
+package com.template.services;
+
+import com.template.contracts.DummyContract;
+import com.template.flows.DummyContractIssueFlow;
+import com.template.flows.IOUFlow;
+import net.corda.core.contracts.Amount;
+import net.corda.core.contracts.Issued;
+import net.corda.core.contracts.PartyAndReference;
+import net.corda.core.flows.FlowLogic;
+import net.corda.core.identity.Party;
+import net.corda.core.node.AppServiceHub;
+import net.corda.core.node.services.CordaService;
+import net.corda.core.serialization.SingletonSerializeAsToken;
+import net.corda.core.utilities.OpaqueBytes;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Currency;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Puts sustained load on this node for capacity planning: it keeps a fixed number of IOUFlows or
+ * DummyContractIssueFlows in flight for a fixed time and records how long each one takes, start to finish.
+ *
+ * Like the bulk upgrade, the run happens on this service's own thread so that the RPC flow that starts it returns
+ * at once; progress and the final figures are read with {@link #report()}. Only one run goes at a time.
+ */
+@CordaService
+public class LoadGeneratorService extends SingletonSerializeAsToken {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoadGeneratorService.class);
+    private static final Currency USD = Currency.getInstance(Locale.US);
+    // Microseconds, up to an hour, to three significant digits.
+    private static final long HIGHEST_MICROS = TimeUnit.HOURS.toMicros(1);
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final AppServiceHub serviceHub;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "load-generator");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private LoadSpec spec;
+    private boolean running;
+    private long startNanos;
+    private long endNanos;
+    private Histogram histogram = new ConcurrentHistogram(HIGHEST_MICROS, SIGNIFICANT_DIGITS);
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    public LoadGeneratorService(AppServiceHub serviceHub) {
+        this.serviceHub = serviceHub;
+    }
+
+    /**
+     * Starts a run unless one is already going, and returns the current report either way.
+     */
+    public synchronized LoadReport start(LoadSpec spec) {
+        if (spec.getConcurrency() <= 0 || spec.getDurationSeconds() <= 0) {
+            throw new IllegalArgumentException("concurrency and durationSeconds must be positive.");
+        }
+
+        if (spec.getKind() == LoadSpec.Kind.IOU && spec.getCounterparties().isEmpty()) {
+            throw new IllegalArgumentException("IOU load needs at least one counterparty.");
+        }
+
+        if (!this.running) {
+            this.spec = spec;
+            this.running = true;
+            this.histogram = new ConcurrentHistogram(HIGHEST_MICROS, SIGNIFICANT_DIGITS);
+            this.completed.set(0);
+            this.failed.set(0);
+            this.startNanos = System.nanoTime();
+            this.endNanos = 0;
+            this.executor.execute(() -> run(spec));
+        }
+
+        return report();
+    }
+
+    public synchronized LoadReport report() {
+        if (this.spec == null) {
+            throw new IllegalStateException("No load has been run on this node.");
+        }
+
+        long elapsed = ((this.running ? System.nanoTime() : this.endNanos) - this.startNanos) / 1_000_000;
+        Histogram snapshot = this.histogram.copy();
+
+        ByteArrayOutputStream text = new ByteArrayOutputStream();
+        snapshot.outputPercentileDistribution(new PrintStream(text, true), 1000.0);
+
+        ByteBuffer encoded = ByteBuffer.allocate(snapshot.getNeededByteBufferCapacity());
+        byte[] bytes = Arrays.copyOf(encoded.array(), snapshot.encodeIntoCompressedByteBuffer(encoded));
+
+        return new LoadReport(this.spec, this.running, this.completed.get(), this.failed.get(), elapsed,
+                new String(text.toByteArray(), StandardCharsets.UTF_8), Base64.getEncoder().encodeToString(bytes));
+    }
+
+    private void run(LoadSpec spec) {
+        Semaphore slots = new Semaphore(spec.getConcurrency());
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(spec.getDurationSeconds());
+        Histogram histogram = this.histogram;
+        int started = 0;
+
+        try {
+            while (System.nanoTime() < deadline) {
+                if (!slots.tryAcquire(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                    break;
+                }
+
+                long flowStart = System.nanoTime();
+
+                try {
+                    this.serviceHub.startFlow(flow(spec, started++)).getReturnValue().then(result -> {
+                        try {
+                            result.get();
+                            histogram.recordValue(Math.min(HIGHEST_MICROS, (System.nanoTime() - flowStart) / 1_000));
+                            this.completed.incrementAndGet();
+                        } catch (Exception e) {
+                            this.failed.incrementAndGet();
+                            logger.debug("Load flow failed", e);
+                        } finally {
+                            slots.release();
+                        }
+
+                        return null;
+                    });
+                } catch (RuntimeException e) {
+                    slots.release();
+                    throw e;
+                }
+            }
+
+            // Let the flows still in flight finish, so that they are counted, but don't wait on a stuck one forever.
+            if (!slots.tryAcquire(spec.getConcurrency(), 5, TimeUnit.MINUTES)) {
+                logger.warn("Load run ended with flows still in flight");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            logger.error("Load run stopped", e);
+        } finally {
+            synchronized (this) {
+                this.running = false;
+                this.endNanos = System.nanoTime();
+            }
+
+            logger.info("Finished {}", report());
+        }
+    }
+
+    private FlowLogic<?> flow(LoadSpec spec, int sequence) {
+        Party us = this.serviceHub.getMyInfo().getLegalIdentities().get(0);
+
+        switch (spec.getKind()) {
+            case IOU:
+                Party counterparty = spec.getCounterparties().get(sequence % spec.getCounterparties().size());
+                // Under the default acceptance limit of 100.
+                int value = ThreadLocalRandom.current().nextInt(1, 100);
+                return new IOUFlow(value, counterparty);
+            case DUMMY_ISSUE:
+                PartyAndReference issuance = us.ref(OpaqueBytes.of((byte) 1));
+                Amount<Issued<Currency>> faceValue = new Amount<>(100_000L, new Issued<>(issuance, USD));
+                DummyContract.State state = new DummyContract.State(issuance, us, faceValue, Instant.now().plus(30, ChronoUnit.DAYS));
+                return new DummyContractIssueFlow.InitiatorFlow(state);
+            default:
+                throw new IllegalArgumentException("Unknown load kind " + spec.getKind());
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.template.services;
+
+import net.corda.core.serialization.CordaSerializable;
+import org.HdrHistogram.Histogram;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.zip.DataFormatException;
+
+/**
+ * The outcome of a load run so far: throughput, latency percentiles in milliseconds, and the full latency histogram
+ * in microseconds, both as HdrHistogram's percentile distribution text and in its compressed encoding so that runs on
+ * several nodes can be added together.
+ */
+@CordaSerializable
+public class LoadReport {
+
+    private final LoadSpec spec;
+    private final boolean running;
+    private final long completed;
+    private final long failed;
+    private final long elapsedMillis;
+    private final String percentileDistribution;
+    private final String encodedHistogram;
+
+    public LoadReport(LoadSpec spec, boolean running, long completed, long failed, long elapsedMillis, String percentileDistribution, String encodedHistogram) {
+        this.spec = spec;
+        this.running = running;
+        this.completed = completed;
+        this.failed = failed;
+        this.elapsedMillis = elapsedMillis;
+        this.percentileDistribution = percentileDistribution;
+        this.encodedHistogram = encodedHistogram;
+    }
+
+    public LoadSpec getSpec() {
+        return this.spec;
+    }
+
+    public boolean isRunning() {
+        return this.running;
+    }
+
+    public long getCompleted() {
+        return this.completed;
+    }
+
+    public long getFailed() {
+        return this.failed;
+    }
+
+    public long getElapsedMillis() {
+        return this.elapsedMillis;
+    }
+
+    /**
+     * Histogram.outputPercentileDistribution, scaled to milliseconds, as written to .hgrm files.
+     */
+    public String getPercentileDistribution() {
+        return this.percentileDistribution;
+    }
+
+    /**
+     * Base64 of Histogram.encodeIntoCompressedByteBuffer, in microseconds.
+     */
+    public String getEncodedHistogram() {
+        return this.encodedHistogram;
+    }
+
+    public double transactionsPerSecond() {
+        return this.elapsedMillis == 0 ? 0 : this.completed * 1000.0 / this.elapsedMillis;
+    }
+
+    public Histogram histogram() {
+        try {
+            return Histogram.decodeFromCompressedByteBuffer(ByteBuffer.wrap(Base64.getDecoder().decode(this.encodedHistogram)), 0);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("The histogram in this report is corrupt.", e);
+        }
+    }
+
+    public double percentileMillis(double percentile) {
+        return histogram().getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("LoadReport(%s, running=%s, completed=%d, failed=%d, %.1f tx/s, p50=%.1fms p99=%.1fms p999=%.1fms)",
+                this.spec.getKind(), this.running, this.completed, this.failed, transactionsPerSecond(),
+                percentileMillis(50), percentileMillis(99), percentileMillis(99.9));
+    }
+}
@@ -0,0 +1,59 @@
+package com.template.services;
+
+import net.corda.core.identity.Party;
+import net.corda.core.serialization.CordaSerializable;
+
+import java.util.List;
+
+/**
+ * What the load driver should run: which flow, against whom, how many at once and for how long.
+ */
+@CordaSerializable
+public class LoadSpec {
+
+    @CordaSerializable
+    public enum Kind {
+        /**
+         * IOUFlow, one IOU per flow, against each counterparty in turn.
+         */
+        IOU,
+        /**
+         * DummyContractIssueFlow, paper issued to and owned by this node, so there are no counterparties but every
+         * flow is notarised.
+         */
+        DUMMY_ISSUE
+    }
+
+    private final Kind kind;
+    private final List<Party> counterparties;
+    private final int concurrency;
+    private final long durationSeconds;
+
+    public LoadSpec(Kind kind, List<Party> counterparties, int concurrency, long durationSeconds) {
+        this.kind = kind;
+        this.counterparties = counterparties;
+        this.concurrency = concurrency;
+        this.durationSeconds = durationSeconds;
+    }
+
+    public Kind getKind() {
+        return this.kind;
+    }
+
+    public List<Party> getCounterparties() {
+        return this.counterparties;
+    }
+
+    public int getConcurrency() {
+        return this.concurrency;
+    }
+
+    public long getDurationSeconds() {
+        return this.durationSeconds;
+    }
+
+    @Override
+    public String toString() {
+        return "LoadSpec(" + this.kind + ", " + this.concurrency + " concurrent for " + this.durationSeconds + "s against " + this.counterparties + ")";
+    }
+}
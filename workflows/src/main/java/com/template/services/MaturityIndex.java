@@ -0,0 +1,183 @@
+package com.template.services;
+
+import com.template.contracts.PaperState;
+import net.corda.core.contracts.StateRef;
+import net.corda.core.identity.AbstractParty;
+
+import java.security.PublicKey;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Unredeemed papers bucketed by maturity day and owner, kept up to date one state at a time.
+ *
+ * A bucket's key is a single long, the UTC epoch day shifted left with the owner's id in the low bits, so the buckets
+ * sort by day first and a range of days is one contiguous slice of the map. Owners are given ids as they are first
+ * seen. Each currency also keeps its papers sorted largest first, for the largest-positions query.
+ *
+ * Writes are serialised, reads take no locks and see every completed write.
+ */
+public class MaturityIndex {
+
+    private static final int OWNER_BITS = 24;
+    private static final long MAX_OWNERS = 1L << OWNER_BITS;
+    private static final long SECONDS_PER_DAY = 86_400;
+
+    private static final Comparator<PaperPosition> LARGEST_FIRST = Comparator
+            .comparingLong((PaperPosition position) -> position.getFaceValue().getQuantity()).reversed()
+            .thenComparing(position -> position.getRef().getTxhash())
+            .thenComparingInt(position -> position.getRef().getIndex());
+
+    private final Map<PublicKey, Long> ownerIds = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Long, Map<StateRef, PaperPosition>> buckets = new ConcurrentSkipListMap<>();
+    private final Map<String, NavigableSet<PaperPosition>> bySize = new ConcurrentHashMap<>();
+
+    public synchronized void add(StateRef ref, PaperState state) {
+        PaperPosition position = new PaperPosition(ref, contractName(state), state.getOwner(), state.getFaceValue(), state.getMaturityDate());
+        long key = key(day(state.getMaturityDate()), ownerId(state.getOwner(), true));
+
+        if (this.buckets.computeIfAbsent(key, k -> new ConcurrentHashMap<>()).put(ref, position) == null) {
+            this.bySize.computeIfAbsent(currencyCode(state), currency -> new ConcurrentSkipListSet<>(LARGEST_FIRST)).add(position);
+        }
+    }
+
+    public synchronized void remove(StateRef ref, PaperState state) {
+        long ownerId = ownerId(state.getOwner(), false);
+
+        if (ownerId < 0) {
+            return;
+        }
+
+        long key = key(day(state.getMaturityDate()), ownerId);
+        Map<StateRef, PaperPosition> bucket = this.buckets.get(key);
+        PaperPosition removed = bucket == null ? null : bucket.remove(ref);
+
+        if (removed != null) {
+            this.bySize.get(currencyCode(state)).remove(removed);
+
+            if (bucket.isEmpty()) {
+                this.buckets.remove(key);
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        this.buckets.clear();
+        this.bySize.clear();
+    }
+
+    public int size() {
+        int size = 0;
+
+        for (Map<StateRef, PaperPosition> bucket : this.buckets.values()) {
+            size += bucket.size();
+        }
+
+        return size;
+    }
+
+    /**
+     * Every paper maturing on the days from and to, inclusive, in UTC.
+     */
+    public List<PaperPosition> maturingBetween(LocalDate from, LocalDate to) {
+        List<PaperPosition> positions = new ArrayList<>();
+
+        for (Map<StateRef, PaperPosition> bucket : this.buckets.subMap(key(from.toEpochDay(), 0), key(to.toEpochDay() + 1, 0)).values()) {
+            positions.addAll(bucket.values());
+        }
+
+        return positions;
+    }
+
+    /**
+     * The owner's papers maturing on the days from and to, inclusive, in UTC. One lookup per day.
+     */
+    public List<PaperPosition> maturingBetween(LocalDate from, LocalDate to, AbstractParty owner) {
+        long ownerId = ownerId(owner, false);
+
+        if (ownerId < 0) {
+            return Collections.emptyList();
+        }
+
+        List<PaperPosition> positions = new ArrayList<>();
+
+        for (long day = from.toEpochDay(); day <= to.toEpochDay(); day++) {
+            Map<StateRef, PaperPosition> bucket = this.buckets.get(key(day, ownerId));
+
+            if (bucket != null) {
+                positions.addAll(bucket.values());
+            }
+        }
+
+        return positions;
+    }
+
+    /**
+     * Up to count papers in the currency, largest face value first.
+     */
+    public List<PaperPosition> largest(String currencyCode, int count) {
+        NavigableSet<PaperPosition> positions = this.bySize.get(currencyCode);
+
+        if (positions == null) {
+            return Collections.emptyList();
+        }
+
+        List<PaperPosition> largest = new ArrayList<>(Math.min(count, 64));
+        Iterator<PaperPosition> iterator = positions.iterator();
+
+        while (largest.size() < count && iterator.hasNext()) {
+            largest.add(iterator.next());
+        }
+
+        return largest;
+    }
+
+    static long key(long day, long ownerId) {
+        return (day << OWNER_BITS) | ownerId;
+    }
+
+    static long day(Instant instant) {
+        return Math.floorDiv(instant.getEpochSecond(), SECONDS_PER_DAY);
+    }
+
+    /**
+     * The owner's id, or -1 if the owner isn't known and create is false.
+     */
+    private long ownerId(AbstractParty owner, boolean create) {
+        PublicKey key = owner.getOwningKey();
+        Long id = this.ownerIds.get(key);
+
+        if (id == null) {
+            if (!create) {
+                return -1;
+            }
+
+            if (this.ownerIds.size() >= MAX_OWNERS) {
+                throw new IllegalStateException("The maturity index can't tell more than " + MAX_OWNERS + " owners apart.");
+            }
+
+            id = (long) this.ownerIds.size();
+            this.ownerIds.put(key, id);
+        }
+
+        return id;
+    }
+
+    private static String contractName(PaperState state) {
+        return state.getClass().getEnclosingClass() != null ? state.getClass().getEnclosingClass().getSimpleName() : state.getClass().getSimpleName();
+    }
+
+    private static String currencyCode(PaperState state) {
+        return state.getFaceValue().getToken().getProduct().getCurrencyCode();
+    }
+}
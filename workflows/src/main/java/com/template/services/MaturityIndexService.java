@@ -0,0 +1,154 @@
+package com.template.services;
+
+import com.template.contracts.CommercialPaper;
+import com.template.contracts.DummyContract;
+import com.template.contracts.PaperState;
+import net.corda.core.contracts.ContractState;
+import net.corda.core.contracts.StateAndRef;
+import net.corda.core.contracts.StateRef;
+import net.corda.core.node.AppServiceHub;
+import net.corda.core.node.services.CordaService;
+import net.corda.core.node.services.Vault;
+import net.corda.core.node.services.vault.PageSpecification;
+import net.corda.core.node.services.vault.QueryCriteria;
+import net.corda.core.node.services.vault.Sort;
+import net.corda.core.node.services.vault.SortAttribute;
+import net.corda.core.serialization.SingletonSerializeAsToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Keeps a {@link MaturityIndex} of the CommercialPaper.States and DummyContract.States in the vault, so that questions
+ * like "my papers maturing this week" or "the largest unredeemed positions" are answered from memory.
+ *
+ * The index follows the vault's updates as they are committed. When the node starts it is built from scratch with a
+ * paged scan of the vault, on this service's own thread, while updates are already being applied. A paper consumed
+ * during the scan could move a later one onto a page already read, so a scan that saw any papers consumed is run
+ * again. Until the first scan has finished, {@link #isReady()} is false and answers may be incomplete.
+ */
+@CordaService
+public class MaturityIndexService extends SingletonSerializeAsToken {
+
+    private static final Logger logger = LoggerFactory.getLogger(MaturityIndexService.class);
+    private static final int PAGE_SIZE = 1_000;
+    private static final int MAX_SCANS = 5;
+    private static final List<Class<? extends PaperState>> INDEXED = Arrays.asList(CommercialPaper.State.class, DummyContract.State.class);
+
+    private final AppServiceHub serviceHub;
+    private final MaturityIndex index = new MaturityIndex();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "maturity-index");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private boolean ready;
+    private Set<StateRef> consumedDuringScan = new HashSet<>();
+
+    public MaturityIndexService(AppServiceHub serviceHub) {
+        this.serviceHub = serviceHub;
+        serviceHub.getVaultService().getUpdates().subscribe(this::apply);
+        this.executor.execute(this::rebuild);
+    }
+
+    public MaturityIndex getIndex() {
+        return this.index;
+    }
+
+    public synchronized boolean isReady() {
+        return this.ready;
+    }
+
+    private void apply(Vault.Update<ContractState> update) {
+        for (StateAndRef<ContractState> consumed : update.getConsumed()) {
+            if (isIndexed(consumed)) {
+                synchronized (this) {
+                    if (!this.ready) {
+                        this.consumedDuringScan.add(consumed.getRef());
+                    }
+                }
+
+                this.index.remove(consumed.getRef(), (PaperState) consumed.getState().getData());
+            }
+        }
+
+        for (StateAndRef<ContractState> produced : update.getProduced()) {
+            if (isIndexed(produced)) {
+                this.index.add(produced.getRef(), (PaperState) produced.getState().getData());
+            }
+        }
+    }
+
+    private void rebuild() {
+        long start = System.nanoTime();
+
+        try {
+            for (int scan = 1; scan <= MAX_SCANS; scan++) {
+                for (Class<? extends PaperState> type : INDEXED) {
+                    scan(type);
+                }
+
+                synchronized (this) {
+                    if (this.consumedDuringScan.isEmpty()) {
+                        break;
+                    }
+
+                    if (scan == MAX_SCANS) {
+                        logger.warn("The vault kept changing while the maturity index was built, some papers may be missing");
+                    }
+
+                    this.consumedDuringScan.clear();
+                }
+            }
+
+            logger.info("Built the maturity index of {} papers in {} ms", this.index.size(), (System.nanoTime() - start) / 1_000_000);
+        } catch (RuntimeException e) {
+            logger.error("Couldn't build the maturity index, it only has the papers recorded since the node started", e);
+        } finally {
+            synchronized (this) {
+                this.ready = true;
+                this.consumedDuringScan = new HashSet<>();
+            }
+        }
+    }
+
+    private <T extends PaperState> void scan(Class<T> type) {
+        QueryCriteria unconsumed = new QueryCriteria.VaultQueryCriteria(Vault.StateStatus.UNCONSUMED);
+        // A total order, so that pages don't overlap or leave gaps while nothing is consumed.
+        Sort byStateRef = new Sort(Arrays.asList(
+                new Sort.SortColumn(new SortAttribute.Standard(Sort.CommonStateAttribute.STATE_REF_TXN_ID), Sort.Direction.ASC),
+                new Sort.SortColumn(new SortAttribute.Standard(Sort.CommonStateAttribute.STATE_REF_INDEX), Sort.Direction.ASC)
+        ));
+
+        for (int pageNumber = 1; ; pageNumber++) {
+            List<StateAndRef<T>> page = this.serviceHub.getVaultService()
+                    .queryBy(type, unconsumed, new PageSpecification(pageNumber, PAGE_SIZE), byStateRef)
+                    .getStates();
+
+            synchronized (this) {
+                for (StateAndRef<T> state : page) {
+                    // Consumed since the page was read, and already taken out of the index by apply().
+                    if (!this.consumedDuringScan.contains(state.getRef())) {
+                        this.index.add(state.getRef(), state.getState().getData());
+                    }
+                }
+            }
+
+            if (page.size() < PAGE_SIZE) {
+                return;
+            }
+        }
+    }
+
+    private static boolean isIndexed(StateAndRef<ContractState> state) {
+        ContractState data = state.getState().getData();
+        return data instanceof CommercialPaper.State || data instanceof DummyContract.State;
+    }
+}
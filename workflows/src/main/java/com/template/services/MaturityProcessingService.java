@@ -0,0 +1,150 @@
+package com.template.services;
+
+import com.template.schemas.MaturityPassSchemaV1;
+import net.corda.core.cordapp.CordappConfig;
+import net.corda.core.node.AppServiceHub;
+import net.corda.core.node.services.CordaService;
+import net.corda.core.serialization.SingletonSerializeAsToken;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Settings and bookkeeping for {@link com.template.flows.PaperMaturityFlow}.
+ *
+ * Every matured paper schedules its own maturity flow, but one pass redeems everything that has matured, so only one
+ * pass runs at a time. A flow that finds a pass already running asks it to go round once more, which covers papers
+ * that matured after the running pass last looked, and then ends.
+ *
+ * The running pass is also kept in the maturity_pass table, written in the pass's own database transaction, because a
+ * pass that was running when the node stopped is restored from its checkpoint and carries on. The first flow to ask
+ * after a restart finds the restored pass's row and asks it to run again, rather than starting a second pass beside
+ * it. A pass that fails removes its row on the way out, so that only a pass killed by hand can leave one behind, and
+ * that row has to be deleted by hand as well.
+ *
+ * CorDapp config: "maturity.autoRedeem" (true if not set) and "maturity.batchSize", the most papers per redemption
+ * transaction (50 if not set).
+ */
+@CordaService
+public class MaturityProcessingService extends SingletonSerializeAsToken {
+
+    private static final Logger logger = LoggerFactory.getLogger(MaturityProcessingService.class);
+    private static final String AUTO_REDEEM_CONFIG_KEY = "maturity.autoRedeem";
+    private static final String BATCH_SIZE_CONFIG_KEY = "maturity.batchSize";
+    private static final int DEFAULT_BATCH_SIZE = 50;
+
+    private final AppServiceHub serviceHub;
+    private final boolean autoRedeem;
+    private final int batchSize;
+    private boolean running;
+    private boolean runAgain;
+    // Until a pass has been started or ended in this process, only the table knows about a pass restored from before.
+    private boolean restoredPassChecked;
+
+    public MaturityProcessingService(AppServiceHub serviceHub) {
+        this.serviceHub = serviceHub;
+        boolean autoRedeem = true;
+        int batchSize = DEFAULT_BATCH_SIZE;
+
+        try {
+            CordappConfig config = serviceHub.getAppContext().getConfig();
+
+            if (config.exists(AUTO_REDEEM_CONFIG_KEY)) {
+                autoRedeem = config.getBoolean(AUTO_REDEEM_CONFIG_KEY);
+            }
+
+            if (config.exists(BATCH_SIZE_CONFIG_KEY)) {
+                batchSize = config.getInt(BATCH_SIZE_CONFIG_KEY);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Couldn't read the maturity settings from the CorDapp config, using the defaults", e);
+        }
+
+        this.autoRedeem = autoRedeem;
+        this.batchSize = batchSize;
+    }
+
+    public boolean isAutoRedeem() {
+        return this.autoRedeem;
+    }
+
+    public int getBatchSize() {
+        return this.batchSize;
+    }
+
+    /**
+     * True if the flow run with the given id should run a pass. If one is already running, including one restored
+     * after a restart, it is asked to run again and this returns false.
+     */
+    public synchronized boolean startPass(UUID runId) {
+        if (!this.restoredPassChecked) {
+            this.restoredPassChecked = true;
+            MaturityPassSchemaV1.PersistentPass restored = findPass();
+
+            if (restored != null && !restored.getRunId().equals(runId.toString())) {
+                logger.info("Maturity pass {} was restored from before the node restarted, leaving the pass to it", restored.getRunId());
+                this.running = true;
+            }
+        }
+
+        if (this.running) {
+            this.runAgain = true;
+            return false;
+        }
+
+        this.running = true;
+        MaturityPassSchemaV1.PersistentPass pass = new MaturityPassSchemaV1.PersistentPass(runId.toString(), Instant.now());
+        this.serviceHub.withEntityManager(entityManager -> {
+            entityManager.merge(pass);
+        });
+        return true;
+    }
+
+    /**
+     * True if the caller should stop. False if another maturity flow came due during the pass, in which case the caller
+     * still holds the pass and should run it again.
+     */
+    public synchronized boolean endPass() {
+        this.restoredPassChecked = true;
+
+        if (this.runAgain) {
+            this.runAgain = false;
+            return false;
+        }
+
+        this.running = false;
+        removePass();
+        return true;
+    }
+
+    /**
+     * Gives up the pass without looking at requests to run again, for a pass that failed. The caller must end normally
+     * for the pass's row to go, since a flow that fails has its database work rolled back.
+     */
+    public synchronized void abandonPass() {
+        this.restoredPassChecked = true;
+        this.running = false;
+        this.runAgain = false;
+        removePass();
+    }
+
+    @Nullable
+    private MaturityPassSchemaV1.PersistentPass findPass() {
+        return this.serviceHub.withEntityManager(entityManager -> {
+            return entityManager.find(MaturityPassSchemaV1.PersistentPass.class, MaturityPassSchemaV1.PersistentPass.PASS_ID);
+        });
+    }
+
+    private void removePass() {
+        this.serviceHub.withEntityManager(entityManager -> {
+            MaturityPassSchemaV1.PersistentPass pass = entityManager.find(MaturityPassSchemaV1.PersistentPass.class, MaturityPassSchemaV1.PersistentPass.PASS_ID);
+
+            if (pass != null) {
+                entityManager.remove(pass);
+            }
+        });
+    }
+}
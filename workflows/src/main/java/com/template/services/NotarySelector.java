@@ -0,0 +1,101 @@
+package com.template.services;
+
+import net.corda.core.identity.Party;
+import net.corda.core.node.AppServiceHub;
+import net.corda.core.node.services.CordaService;
+import net.corda.core.serialization.SingletonSerializeAsToken;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Spreads transactions over all the notaries on the network, where flows used to take the first one.
+ *
+ * Every choice is sticky: the same key always gets the same notary, so states that will later be spent together, such
+ * as all the IOUs between two parties or an issuer's papers and the cash that redeems them, share a notary and never
+ * need a notary change. The load is spread by the keys, which are many.
+ *
+ * Keys are placed by rendezvous hashing: every notary is scored against the key and the highest score wins. When a
+ * notary joins or leaves, only the keys it wins or won move, where a plain hash modulo the number of notaries would
+ * move almost all of them.
+ *
+ * The notary list is read from the network map once and then cached until the network map changes.
+ */
+@CordaService
+public class NotarySelector extends SingletonSerializeAsToken {
+
+    private final AppServiceHub serviceHub;
+    private volatile List<Party> notaries;
+
+    public NotarySelector(AppServiceHub serviceHub) {
+        this.serviceHub = serviceHub;
+        serviceHub.getNetworkMapCache().getChanged().subscribe(change -> this.notaries = null);
+    }
+
+    /**
+     * The notary for the key.
+     *
+     * @param stickyKey anything with a hashCode that is the same on every node, such as a Party or a LinearId.
+     */
+    public Party select(Object stickyKey) {
+        return select(notaries(), stickyKey);
+    }
+
+    /**
+     * A sticky key for states between two parties that is the same whichever way round they are given, so both
+     * parties' flows choose the same notary for the pair.
+     */
+    public static Object pairKey(Party first, Party second) {
+        return new HashSet<>(Arrays.asList(first, second));
+    }
+
+    /**
+     * The notary out of notaries, which must not be empty, with the highest score for the key.
+     */
+    public static Party select(List<Party> notaries, Object stickyKey) {
+        Party best = null;
+        long bestScore = Long.MIN_VALUE;
+
+        for (Party notary : notaries) {
+            long score = score(stickyKey.hashCode(), notary.getName().toString().hashCode());
+
+            if (best == null || score > bestScore) {
+                best = notary;
+                bestScore = score;
+            }
+        }
+
+        return best;
+    }
+
+    // The SplitMix64 finaliser over the two hashes, so that every notary's scores are spread evenly whatever the keys.
+    private static long score(int keyHash, int notaryHash) {
+        long z = ((long) keyHash << 32) ^ (notaryHash & 0xffffffffL);
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private List<Party> notaries() {
+        List<Party> current = this.notaries;
+
+        if (current == null) {
+            List<Party> fresh = new ArrayList<>(this.serviceHub.getNetworkMapCache().getNotaryIdentities());
+
+            if (fresh.isEmpty()) {
+                throw new IllegalStateException("There are no notaries on the network.");
+            }
+
+            // A stable order, so that a tie in the scores goes the same way on every node.
+            fresh.sort(Comparator.comparing(party -> party.getName().toString()));
+            current = Collections.unmodifiableList(fresh);
+            this.notaries = current;
+        }
+
+        return current;
+    }
+}
@@ -0,0 +1,69 @@
+package com.template.services;
+
+import net.corda.core.contracts.Amount;
+import net.corda.core.contracts.Issued;
+import net.corda.core.contracts.StateRef;
+import net.corda.core.identity.AbstractParty;
+import net.corda.core.serialization.CordaSerializable;
+
+import java.time.Instant;
+import java.util.Currency;
+
+/**
+ * One unredeemed paper as the maturity index knows it.
+ */
+@CordaSerializable
+public class PaperPosition {
+
+    private final StateRef ref;
+    private final String contract;
+    private final AbstractParty owner;
+    private final Amount<Issued<Currency>> faceValue;
+    private final Instant maturityDate;
+
+    public PaperPosition(StateRef ref, String contract, AbstractParty owner, Amount<Issued<Currency>> faceValue, Instant maturityDate) {
+        this.ref = ref;
+        this.contract = contract;
+        this.owner = owner;
+        this.faceValue = faceValue;
+        this.maturityDate = maturityDate;
+    }
+
+    public StateRef getRef() {
+        return this.ref;
+    }
+
+    /**
+     * CommercialPaper or DummyContract.
+     */
+    public String getContract() {
+        return this.contract;
+    }
+
+    public AbstractParty getOwner() {
+        return this.owner;
+    }
+
+    public Amount<Issued<Currency>> getFaceValue() {
+        return this.faceValue;
+    }
+
+    public Instant getMaturityDate() {
+        return this.maturityDate;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof PaperPosition && this.ref.equals(((PaperPosition) o).ref));
+    }
+
+    @Override
+    public int hashCode() {
+        return this.ref.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "PaperPosition(" + this.ref + ", " + this.contract + ", " + this.faceValue + " maturing " + this.maturityDate + ")";
+    }
+}
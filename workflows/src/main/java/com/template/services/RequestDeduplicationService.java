@@ -0,0 +1,225 @@
+package com.template.services;
+
+import com.template.flows.ForgetRequestFlow;
+import com.template.schemas.RequestIdSchemaV1;
+import net.corda.core.crypto.SecureHash;
+import net.corda.core.flows.FlowException;
+import net.corda.core.node.AppServiceHub;
+import net.corda.core.node.services.CordaService;
+import net.corda.core.serialization.SingletonSerializeAsToken;
+import net.corda.core.transactions.SignedTransaction;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Makes issuing flows idempotent per client request id, so that a client retrying after an RPC timeout gets the
+ * original transaction back instead of a second issuance.
+ *
+ * Every request has a row in the handled_requests table from the moment it begins. The row is written in the flow's
+ * database transaction, so it is committed with the flow's first checkpoint, and a flow restored after a restart
+ * still has it: a retry that arrives while the original is in flight, before or after a restart, is refused rather
+ * than started again. The row gets the transaction id when the request completes. Handled requests are also kept in a
+ * bounded in-memory cache in front of the table so that a retry storm doesn't turn into a database storm.
+ *
+ * A flow calls {@link #begin}, does its work, calls {@link #complete} with the transaction, and calls {@link #release}
+ * in a finally block. If begin reports the request as handled, the flow returns {@link #handledTransaction} instead.
+ * A run that fails has its row removed by a {@link ForgetRequestFlow}, since its own database work is rolled back.
+ */
+@CordaService
+public class RequestDeduplicationService extends SingletonSerializeAsToken {
+
+    private static final Logger logger = LoggerFactory.getLogger(RequestDeduplicationService.class);
+    private static final int CACHE_SIZE = 10_000;
+
+    private final AppServiceHub serviceHub;
+    private final Map<String, Handled> cache = new LinkedHashMap<String, Handled>(CACHE_SIZE * 4 / 3 + 1, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Handled> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+    private final Map<String, String> inFlight = new HashMap<>();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "request-deduplication");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public RequestDeduplicationService(AppServiceHub serviceHub) {
+        this.serviceHub = serviceHub;
+    }
+
+    /**
+     * Returns the transaction an earlier run of this request produced, or null if the request is new, in which case
+     * it is marked as in flight by the run with the given id.
+     *
+     * @throws FlowException if the request is in flight, or was used for a different flow.
+     */
+    @Nullable
+    public SecureHash begin(String requestId, String flowName, UUID runId) throws FlowException {
+        Handled handled;
+
+        // A run that completes puts itself in the cache before it releases its mark, so looking in the cache and
+        // taking the mark under one lock can't miss a run that finishes in between.
+        synchronized (this) {
+            handled = this.cache.get(requestId);
+
+            if (handled == null) {
+                String running = this.inFlight.putIfAbsent(requestId, flowName);
+
+                if (running != null) {
+                    throw new FlowException("Request " + requestId + " is already being handled by " + running + ".");
+                }
+            }
+        }
+
+        if (handled == null) {
+            // Older requests, and ones whose run was restored from a checkpoint, are only in the table. We hold the
+            // mark while we look, so nothing else in this node can handle this request in the meantime.
+            try {
+                handled = load(requestId);
+
+                if (handled == null) {
+                    RequestIdSchemaV1.PersistentRequest row = new RequestIdSchemaV1.PersistentRequest(requestId, flowName, runId.toString(), null, Instant.now());
+                    this.serviceHub.withEntityManager(entityManager -> {
+                        entityManager.persist(row);
+                    });
+                    return null;
+                }
+            } catch (RuntimeException e) {
+                clearMark(requestId);
+                throw e;
+            }
+
+            clearMark(requestId);
+
+            if (handled.transactionId == null) {
+                throw new FlowException("Request " + requestId + " is already being handled by " + handled.flowName + ".");
+            }
+        }
+
+        if (!handled.flowName.equals(flowName)) {
+            throw new FlowException("Request " + requestId + " was already used for " + handled.flowName + ".");
+        }
+
+        return handled.transactionId;
+    }
+
+    /**
+     * The transaction that a request {@link #begin} reported as handled produced.
+     *
+     * @throws FlowException if this node doesn't have the transaction, so that the caller doesn't return nothing.
+     */
+    public SignedTransaction handledTransaction(String requestId, SecureHash transactionId) throws FlowException {
+        SignedTransaction stx = this.serviceHub.getValidatedTransactions().getTransaction(transactionId);
+
+        if (stx == null) {
+            throw new FlowException("Request " + requestId + " was handled by transaction " + transactionId + ", which this node doesn't have.");
+        }
+
+        return stx;
+    }
+
+    /**
+     * Records the transaction the request produced on its row. The row is updated in the flow's database transaction,
+     * so it is committed together with the flow's own results.
+     */
+    public void complete(String requestId, String flowName, UUID runId, SecureHash transactionId) {
+        RequestIdSchemaV1.PersistentRequest row = new RequestIdSchemaV1.PersistentRequest(requestId, flowName, runId.toString(), transactionId.toString(), Instant.now());
+        this.serviceHub.withEntityManager(entityManager -> {
+            entityManager.merge(row);
+        });
+
+        synchronized (this) {
+            this.cache.put(requestId, new Handled(flowName, transactionId));
+        }
+    }
+
+    /**
+     * Clears the in-flight mark, whether or not the request completed. If it didn't, the run's row is removed by a
+     * separate flow, so that the request can be tried again.
+     */
+    public void release(String requestId, UUID runId) {
+        boolean completed;
+
+        synchronized (this) {
+            clearMark(requestId);
+            Handled handled = this.cache.get(requestId);
+            completed = handled != null && handled.transactionId != null;
+        }
+
+        if (!completed) {
+            // Not on the flow's thread, which mustn't wait for another flow to start.
+            this.executor.execute(() -> {
+                try {
+                    this.serviceHub.startFlow(new ForgetRequestFlow(requestId, runId));
+                } catch (RuntimeException e) {
+                    logger.warn("Couldn't forget request " + requestId + ", it stays in flight", e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Removes the row of a request that the given run began and never completed. Called by {@link ForgetRequestFlow}.
+     */
+    public void forget(String requestId, UUID runId) {
+        this.serviceHub.withEntityManager(entityManager -> {
+            RequestIdSchemaV1.PersistentRequest row = entityManager.find(RequestIdSchemaV1.PersistentRequest.class, requestId);
+
+            if (row != null && row.getTransactionId() == null && runId.toString().equals(row.getRunId())) {
+                entityManager.remove(row);
+            }
+        });
+    }
+
+    private synchronized void clearMark(String requestId) {
+        this.inFlight.remove(requestId);
+    }
+
+    @Nullable
+    private Handled load(String requestId) {
+        RequestIdSchemaV1.PersistentRequest row = this.serviceHub.withEntityManager(entityManager -> {
+            return entityManager.find(RequestIdSchemaV1.PersistentRequest.class, requestId);
+        });
+
+        if (row == null) {
+            return null;
+        }
+
+        if (row.getTransactionId() == null) {
+            return new Handled(row.getFlowName(), null);
+        }
+
+        Handled handled = new Handled(row.getFlowName(), SecureHash.parse(row.getTransactionId()));
+
+        synchronized (this) {
+            this.cache.put(requestId, handled);
+        }
+
+        return handled;
+    }
+
+    /**
+     * A request's row: the flow it was for and the transaction it produced, which is null while it is in flight.
+     */
+    private static final class Handled {
+        private final String flowName;
+        @Nullable
+        private final SecureHash transactionId;
+
+        private Handled(String flowName, @Nullable SecureHash transactionId) {
+            this.flowName = flowName;
+            this.transactionId = transactionId;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.template;
+
+import net.corda.core.concurrent.CordaFuture;
+import net.corda.core.flows.FlowLogic;
+import net.corda.core.utilities.ProgressTracker;
+import net.corda.testing.node.MockNetwork;
+import net.corda.testing.node.StartedMockNode;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Measures the checkpoints that flows write, on a MockNetwork that is pumped by hand.
+ *
+ * A flow is run one network round at a time. After each round the checkpoint table of every watched node is read, and
+ * each checkpoint whose bytes changed since the last read counts as a suspension. That catches every checkpoint a flow
+ * is parked on while it waits for a message, which is the copy that sits on disk. A send that does not wait for an
+ * answer is checkpointed and then overwritten within the same round, so it is not seen.
+ *
+ * Budgets are per flow and per checkpoint, and apply to the flow's counterparties' checkpoints as well as its own.
+ */
+class CheckpointProfiler {
+    private static final int MAX_ROUNDS = 1_000;
+
+    private final MockNetwork network;
+    private final Map<String, StartedMockNode> nodes = new LinkedHashMap<>();
+    private final Map<String, Long> budgets = new HashMap<>();
+    private final List<Sample> samples = new ArrayList<>();
+
+    CheckpointProfiler(MockNetwork network) {
+        this.network = network;
+    }
+
+    CheckpointProfiler watch(String name, StartedMockNode node) {
+        this.nodes.put(name, node);
+        return this;
+    }
+
+    /**
+     * The largest checkpoint, in bytes, that flow or its counterparties may write. Can be overridden with
+     * -Dcheckpoint.budget.&lt;flow&gt;=&lt;bytes&gt;.
+     */
+    CheckpointProfiler budget(String flow, long bytes) {
+        this.budgets.put(flow, Long.getLong("checkpoint.budget." + flow, bytes));
+        return this;
+    }
+
+    <T> T run(String flow, StartedMockNode initiator, FlowLogic<T> logic) throws Exception {
+        Map<String, byte[]> previous = new HashMap<>();
+        Map<String, Integer> suspensions = new HashMap<>();
+        CordaFuture<T> future = initiator.startFlow(logic);
+
+        for (int round = 0; round < MAX_ROUNDS && !future.isDone(); round++) {
+            sample(flow, initiator, logic, previous, suspensions);
+            this.network.runNetwork(1);
+        }
+
+        sample(flow, initiator, logic, previous, suspensions);
+        this.network.runNetwork();
+        return future.get();
+    }
+
+    List<Sample> getSamples() {
+        return this.samples;
+    }
+
+    String report() {
+        StringBuilder report = new StringBuilder(String.format("%-32s %-10s %4s  %-40s %10s%n", "flow", "node", "#", "step", "bytes"));
+
+        for (Sample sample : this.samples) {
+            report.append(String.format("%-32s %-10s %4d  %-40s %10d%n", sample.getFlow(), sample.getNode(), sample.getSuspension(), sample.getStep(), sample.getBytes()));
+        }
+
+        return report.toString();
+    }
+
+    void assertWithinBudgets() {
+        List<String> overBudget = new ArrayList<>();
+
+        for (Sample sample : this.samples) {
+            Long budget = this.budgets.get(sample.getFlow());
+
+            if (budget != null && sample.getBytes() > budget) {
+                overBudget.add(sample + " is over the budget of " + budget + " bytes");
+            }
+        }
+
+        if (!overBudget.isEmpty()) {
+            throw new AssertionError("Checkpoints over budget:\n" + String.join("\n", overBudget) + "\n\n" + report());
+        }
+    }
+
+    private void sample(String flow, StartedMockNode initiator, FlowLogic<?> logic, Map<String, byte[]> previous, Map<String, Integer> suspensions) {
+        String step = step(logic);
+
+        for (Map.Entry<String, StartedMockNode> node : this.nodes.entrySet()) {
+            for (Map.Entry<String, byte[]> checkpoint : checkpoints(node.getValue()).entrySet()) {
+                String key = node.getKey() + "/" + checkpoint.getKey();
+
+                if (!Arrays.equals(previous.put(key, checkpoint.getValue()), checkpoint.getValue())) {
+                    int suspension = suspensions.merge(key, 1, Integer::sum);
+                    // The initiator's step is the best label there is for its counterparties' checkpoints too.
+                    String label = node.getValue() == initiator ? step : "responding during " + step;
+                    this.samples.add(new Sample(flow, node.getKey(), suspension, label, checkpoint.getValue().length));
+                }
+            }
+        }
+    }
+
+    private static String step(FlowLogic<?> logic) {
+        ProgressTracker tracker = logic.getProgressTracker();
+        return tracker == null ? "" : tracker.getCurrentStep().getLabel();
+    }
+
+    private static Map<String, byte[]> checkpoints(StartedMockNode node) {
+        return node.transaction(() -> {
+            Map<String, byte[]> checkpoints = new HashMap<>();
+
+            try (PreparedStatement statement = node.getServices().jdbcSession().prepareStatement("SELECT checkpoint_id, checkpoint_value FROM node_checkpoints");
+                 ResultSet results = statement.executeQuery()) {
+                while (results.next()) {
+                    checkpoints.put(results.getString(1), results.getBytes(2));
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException("Could not read the checkpoints of " + node.getInfo().getLegalIdentities().get(0), e);
+            }
+
+            return checkpoints;
+        });
+    }
+
+    static class Sample {
+        private final String flow;
+        private final String node;
+        private final int suspension;
+        private final String step;
+        private final int bytes;
+
+        Sample(String flow, String node, int suspension, String step, int bytes) {
+            this.flow = flow;
+            this.node = node;
+            this.suspension = suspension;
+            this.step = step;
+            this.bytes = bytes;
+        }
+
+        String getFlow() {
+            return this.flow;
+        }
+
+        String getNode() {
+            return this.node;
+        }
+
+        int getSuspension() {
+            return this.suspension;
+        }
+
+        String getStep() {
+            return this.step;
+        }
+
+        int getBytes() {
+            return this.bytes;
+        }
+
+        @Override
+        public String toString() {
+            return this.flow + " on " + this.node + ", suspension " + this.suspension + " (" + this.step + "): " + this.bytes + " bytes";
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.template;
+
+import com.google.common.collect.ImmutableList;
+import com.template.contracts.DummyContract;
+import com.template.flows.DummyContractIssueFlow;
+import com.template.flows.IOUFlow;
+import net.corda.core.contracts.Amount;
+import net.corda.core.contracts.Issued;
+import net.corda.core.contracts.PartyAndReference;
+import net.corda.core.identity.Party;
+import net.corda.core.utilities.OpaqueBytes;
+import net.corda.testing.node.MockNetwork;
+import net.corda.testing.node.MockNetworkParameters;
+import net.corda.testing.node.StartedMockNode;
+import net.corda.testing.node.TestCordapp;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Currency;
+import java.util.Locale;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Keeps the checkpoints of the template flows within budget, since checkpoint writes are most of a node's disk I/O.
+ * Each test prints what it measured, per flow, node and suspension.
+ */
+public class CheckpointSizeTest {
+    private static final Logger logger = LoggerFactory.getLogger(CheckpointSizeTest.class);
+    private static final long KIB = 1024;
+
+    private final MockNetwork network = new MockNetwork(new MockNetworkParameters(ImmutableList.of(
+        TestCordapp.findCordapp("com.template.contracts"),
+        TestCordapp.findCordapp("com.template.flows"),
+        TestCordapp.findCordapp("net.corda.finance.contracts")
+    )));
+    private final StartedMockNode a = network.createNode();
+    private final StartedMockNode b = network.createNode();
+    private final CheckpointProfiler profiler = new CheckpointProfiler(network)
+            .watch("a", a)
+            .watch("b", b)
+            .watch("notary", network.getDefaultNotaryNode())
+            .budget("IOUFlow", 64 * KIB)
+            .budget("DummyContractIssueFlow", 64 * KIB);
+
+    @Before
+    public void setup() {
+        network.runNetwork();
+    }
+
+    @After
+    public void tearDown() {
+        logger.info("Checkpoints:\n{}", profiler.report());
+        network.stopNodes();
+    }
+
+    @Test
+    public void iouFlowCheckpointsAreWithinBudget() throws Exception {
+        Party borrower = b.getInfo().getLegalIdentities().get(0);
+        profiler.run("IOUFlow", a, new IOUFlow(Arrays.asList(10, 20, 30), borrower));
+
+        // Collecting the borrower's signature parks both sides on a receive at least once.
+        assertTrue(profiler.getSamples().stream().anyMatch(sample -> sample.getNode().equals("a")));
+        assertTrue(profiler.getSamples().stream().anyMatch(sample -> sample.getNode().equals("b")));
+        profiler.assertWithinBudgets();
+    }
+
+    @Test
+    public void dummyContractIssueFlowCheckpointsAreWithinBudget() throws Exception {
+        Party issuer = a.getInfo().getLegalIdentities().get(0);
+        Party owner = b.getInfo().getLegalIdentities().get(0);
+        PartyAndReference issuance = issuer.ref(OpaqueBytes.of((byte) 1));
+        Amount<Issued<Currency>> faceValue = new Amount<>(100_000L, new Issued<>(issuance, Currency.getInstance(Locale.US)));
+        DummyContract.State state = new DummyContract.State(issuance, owner, faceValue, Instant.now().plus(30, ChronoUnit.DAYS));
+        profiler.run("DummyContractIssueFlow", a, new DummyContractIssueFlow.InitiatorFlow(state));
+
+        // Notarisation parks the issuer on a receive.
+        assertTrue(profiler.getSamples().stream().anyMatch(sample -> sample.getNode().equals("a")));
+        profiler.assertWithinBudgets();
+    }
+}
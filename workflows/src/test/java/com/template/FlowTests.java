@@ -1,7 +1,41 @@
 package com.template;
 
+import co.paralleluniverse.fibers.Suspendable;
 import com.google.common.collect.ImmutableList;
+import com.template.contracts.CommercialPaper;
+import com.template.flows.FlowLatencyStatsFlow;
+import com.template.flows.IOUBatchFlow;
+import com.template.flows.IOUFlow;
+import com.template.flows.IOUNettingFlow;
+import com.template.flows.PaperMaturityFlow;
+import com.template.flows.ReissuePaperFlow;
 import com.template.flows.Responder;
+import com.template.flows.SelfIssueCashFlow;
+import com.template.flows.SelfIssueSplitCashFlow;
+import com.template.schemas.IOUSchemaV1;
+import com.template.schemas.MaturityPassSchemaV1;
+import com.template.schemas.RequestIdSchemaV1;
+import com.template.services.FlowLatencyReport;
+import com.template.services.FlowStep;
+import com.template.states.IOUState;
+import net.corda.core.concurrent.CordaFuture;
+import net.corda.core.contracts.PartyAndReference;
+import net.corda.core.contracts.StateAndRef;
+import net.corda.core.contracts.TimeWindow;
+import net.corda.core.flows.CollectSignaturesFlow;
+import net.corda.core.flows.FlowException;
+import net.corda.core.flows.FlowSession;
+import net.corda.core.flows.SignTransactionFlow;
+import net.corda.core.identity.Party;
+import net.corda.core.node.StatesToRecord;
+import net.corda.core.node.services.vault.Builder;
+import net.corda.core.node.services.vault.CriteriaExpression;
+import net.corda.core.node.services.vault.FieldInfo;
+import net.corda.core.node.services.vault.QueryCriteria;
+import net.corda.core.transactions.SignedTransaction;
+import net.corda.core.transactions.TransactionBuilder;
+import net.corda.core.utilities.OpaqueBytes;
+import net.corda.finance.contracts.asset.Cash;
 import net.corda.testing.node.MockNetwork;
 import net.corda.testing.node.MockNetworkParameters;
 import net.corda.testing.node.StartedMockNode;
@@ -10,10 +44,30 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+
+import static net.corda.core.node.services.vault.QueryCriteriaUtils.getField;
+import static net.corda.finance.Currencies.DOLLARS;
+import static net.corda.finance.Currencies.issuedBy;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
 public class FlowTests {
     private final MockNetwork network = new MockNetwork(new MockNetworkParameters(ImmutableList.of(
         TestCordapp.findCordapp("com.template.contracts"),
-        TestCordapp.findCordapp("com.template.flows")
+        TestCordapp.findCordapp("com.template.flows"),
+        TestCordapp.findCordapp("net.corda.finance.contracts")
     )));
     private final StartedMockNode a = network.createNode();
     private final StartedMockNode b = network.createNode();
@@ -37,4 +91,380 @@ public class FlowTests {
     public void dummyTest() {
 
     }
+
+    @Test
+    public void iousAreQueryableByLenderAndValue() throws Exception {
+        Party lender = a.getInfo().getLegalIdentities().get(0);
+        Party borrower = b.getInfo().getLegalIdentities().get(0);
+        CordaFuture<SignedTransaction> future = a.startFlow(new IOUFlow(Arrays.asList(10, 20, 30), borrower));
+        network.runNetwork();
+        future.get();
+
+        FieldInfo lenderField = getField("lender", IOUSchemaV1.PersistentIOU.class);
+        FieldInfo valueField = getField("value", IOUSchemaV1.PersistentIOU.class);
+        CriteriaExpression byLender = Builder.equal(lenderField, lender.getName().toString());
+        CriteriaExpression atLeastTwenty = Builder.greaterThanOrEqual(valueField, 20);
+        QueryCriteria criteria = new QueryCriteria.VaultCustomQueryCriteria(byLender).and(new QueryCriteria.VaultCustomQueryCriteria(atLeastTwenty));
+
+        List<StateAndRef<IOUState>> states = b.transaction(() -> b.getServices().getVaultService().queryBy(IOUState.class, criteria).getStates());
+        assertEquals(2, states.size());
+    }
+
+    @Test
+    public void batchFlowIssuesOneTransactionPerCounterparty() throws Exception {
+        StartedMockNode c = network.createNode();
+        Party bParty = b.getInfo().getLegalIdentities().get(0);
+        Party cParty = c.getInfo().getLegalIdentities().get(0);
+        Map<Party, List<Integer>> values = new LinkedHashMap<>();
+        values.put(bParty, Arrays.asList(10, 20));
+        values.put(cParty, Collections.singletonList(30));
+
+        CordaFuture<IOUBatchFlow.Result> future = a.startFlow(new IOUBatchFlow(values));
+        network.runNetwork();
+        IOUBatchFlow.Result result = future.get();
+
+        assertEquals(2, result.getTransactionIds().size());
+        assertEquals(values.keySet(), result.getMillisPerCounterparty().keySet());
+
+        List<StateAndRef<IOUState>> bStates = b.transaction(() -> b.getServices().getVaultService().queryBy(IOUState.class).getStates());
+        List<StateAndRef<IOUState>> cStates = c.transaction(() -> c.getServices().getVaultService().queryBy(IOUState.class).getStates());
+        List<StateAndRef<IOUState>> aStates = a.transaction(() -> a.getServices().getVaultService().queryBy(IOUState.class).getStates());
+        assertEquals(2, bStates.size());
+        assertEquals(1, cStates.size());
+        assertEquals(3, aStates.size());
+        assertEquals(result.getTransactionIds().get(cParty), cStates.get(0).getRef().getTxhash());
+    }
+
+    @Test(expected = ExecutionException.class)
+    public void responderRejectsIousOverTheConfiguredLimit() throws Exception {
+        Party borrower = b.getInfo().getLegalIdentities().get(0);
+        // The second output breaks the default "value < 100" rule, which used to be checked on the first output only.
+        CordaFuture<SignedTransaction> future = a.startFlow(new IOUFlow(Arrays.asList(10, 150), borrower));
+        network.runNetwork();
+        future.get();
+    }
+
+    @Test
+    public void selfIssuanceSplitsIntoCoins() throws Exception {
+        CordaFuture<List<Cash.State>> future = a.startFlow(new SelfIssueSplitCashFlow(DOLLARS(1000), 3));
+        network.runNetwork();
+        List<Cash.State> coins = future.get();
+
+        assertEquals(3, coins.size());
+        assertEquals(33_334L, coins.get(0).getAmount().getQuantity());
+        assertEquals(33_333L, coins.get(2).getAmount().getQuantity());
+        assertEquals(100_000L, coins.stream().mapToLong(coin -> coin.getAmount().getQuantity()).sum());
+
+        List<StateAndRef<Cash.State>> vault = a.transaction(() -> a.getServices().getVaultService().queryBy(Cash.State.class).getStates());
+        assertEquals(3, vault.size());
+    }
+
+    @Test
+    public void latencyIsRecordedPerStep() throws Exception {
+        Party borrower = b.getInfo().getLegalIdentities().get(0);
+        CordaFuture<SignedTransaction> iou = a.startFlow(new IOUFlow(10, borrower));
+        network.runNetwork();
+        iou.get();
+
+        CordaFuture<FlowLatencyReport> future = a.startFlow(new FlowLatencyStatsFlow());
+        network.runNetwork();
+        FlowLatencyReport report = future.get();
+
+        List<FlowStep> steps = new ArrayList<>();
+
+        for (FlowLatencyReport.Row row : report.getRows()) {
+            if (row.getFlow().equals("IOUFlow")) {
+                assertEquals(1, row.getCount());
+                steps.add(row.getStep());
+            }
+        }
+
+        assertEquals(Arrays.asList(FlowStep.VERIFY, FlowStep.SIGN, FlowStep.COLLECT_SIGNATURES, FlowStep.RECORD, FlowStep.TOTAL), steps);
+    }
+
+    @Test
+    public void retriedRequestReturnsTheOriginalTransaction() throws Exception {
+        Party borrower = b.getInfo().getLegalIdentities().get(0);
+        CordaFuture<SignedTransaction> first = a.startFlow(new IOUFlow(Collections.singletonList(10), borrower, "request-1"));
+        network.runNetwork();
+        SignedTransaction original = first.get();
+
+        CordaFuture<SignedTransaction> retry = a.startFlow(new IOUFlow(Collections.singletonList(10), borrower, "request-1"));
+        network.runNetwork();
+
+        assertEquals(original.getId(), retry.get().getId());
+        List<StateAndRef<IOUState>> states = b.transaction(() -> b.getServices().getVaultService().queryBy(IOUState.class).getStates());
+        assertEquals(1, states.size());
+    }
+
+    @Test
+    public void requestInFlightBeforeARestartIsRefused() throws Exception {
+        Party borrower = b.getInfo().getLegalIdentities().get(0);
+
+        // What a run that had reached its first checkpoint leaves behind once the node restarts: the row, but no mark.
+        a.transaction(() -> {
+            a.getServices().withEntityManager(entityManager -> {
+                entityManager.persist(new RequestIdSchemaV1.PersistentRequest("request-2", "IOUFlow", UUID.randomUUID().toString(), null, Instant.now()));
+            });
+            return null;
+        });
+
+        CordaFuture<SignedTransaction> retry = a.startFlow(new IOUFlow(Collections.singletonList(10), borrower, "request-2"));
+        network.runNetwork();
+
+        try {
+            retry.get();
+            fail("The retry should have been refused.");
+        } catch (ExecutionException e) {
+            // Expected.
+        }
+
+        List<StateAndRef<IOUState>> states = b.transaction(() -> b.getServices().getVaultService().queryBy(IOUState.class).getStates());
+        assertTrue(states.isEmpty());
+    }
+
+    @Test
+    public void nettingLeavesOneIouForTheBalance() throws Exception {
+        Party aParty = a.getInfo().getLegalIdentities().get(0);
+        Party bParty = b.getInfo().getLegalIdentities().get(0);
+        CordaFuture<SignedTransaction> lent = a.startFlow(new IOUFlow(Arrays.asList(10, 20, 30), bParty));
+        CordaFuture<SignedTransaction> borrowed = b.startFlow(new IOUFlow(Arrays.asList(15, 5), aParty));
+        network.runNetwork();
+        lent.get();
+        borrowed.get();
+
+        // Five IOUs, three to a batch: the first batch leaves three, the second leaves one.
+        CordaFuture<IOUNettingFlow.Result> future = a.startFlow(new IOUNettingFlow.Initiator(bParty, 3));
+        network.runNetwork();
+        IOUNettingFlow.Result result = future.get();
+
+        assertEquals(2, result.getTransactionIds().size());
+        assertEquals(6, result.getNetted());
+
+        for (StartedMockNode node : Arrays.asList(a, b)) {
+            List<StateAndRef<IOUState>> states = node.transaction(() -> node.getServices().getVaultService().queryBy(IOUState.class).getStates());
+            assertEquals(1, states.size());
+            assertEquals(40, states.get(0).getState().getData().getValue());
+            assertEquals(aParty, states.get(0).getState().getData().getLender());
+        }
+    }
+
+    @Test
+    public void reissuedPaperHasNoHistory() throws Exception {
+        Party issuer = a.getInfo().getLegalIdentities().get(0);
+        StateAndRef<CommercialPaper.State> paper = issuePaper(issuer, b, Instant.now().plus(30, ChronoUnit.DAYS));
+
+        CordaFuture<SignedTransaction> future = b.startFlow(new ReissuePaperFlow.Initiator(paper));
+        network.runNetwork();
+        SignedTransaction reissue = future.get();
+
+        assertTrue(reissue.getTx().getInputs().isEmpty());
+        List<StateAndRef<CommercialPaper.State>> held = b.transaction(() -> b.getServices().getVaultService().queryBy(CommercialPaper.State.class).getStates());
+        assertEquals(1, held.size());
+        assertEquals(reissue.getId(), held.get(0).getRef().getTxhash());
+        assertEquals(paper.getState().getData(), held.get(0).getState().getData());
+    }
+
+    @Test
+    public void failedReissueLeavesThePaperWithItsOwner() throws Exception {
+        Party issuer = a.getInfo().getLegalIdentities().get(0);
+        // The reissue's time window runs 30 seconds ahead, past this maturity, so the issuer can't verify it and the
+        // flow fails after the exit has been signed by both sides.
+        StateAndRef<CommercialPaper.State> paper = issuePaper(issuer, b, Instant.now().plusSeconds(10));
+
+        CordaFuture<SignedTransaction> future = b.startFlow(new ReissuePaperFlow.Initiator(paper));
+        network.runNetwork();
+
+        try {
+            future.get();
+            fail("The reissue should have failed.");
+        } catch (ExecutionException e) {
+            // Expected.
+        }
+
+        for (StartedMockNode node : Arrays.asList(a, b)) {
+            List<StateAndRef<CommercialPaper.State>> held = node.transaction(() -> node.getServices().getVaultService().queryBy(CommercialPaper.State.class).getStates());
+            assertEquals(1, held.size());
+            assertEquals(paper.getRef(), held.get(0).getRef());
+        }
+    }
+
+    @Test
+    public void ownerDroppingOutOfAReissueLeavesTheIssuerOwingOnlyTheNewPaper() throws Exception {
+        Party issuer = a.getInfo().getLegalIdentities().get(0);
+        StateAndRef<CommercialPaper.State> paper = issuePaper(issuer, b, Instant.now().plus(30, ChronoUnit.DAYS));
+
+        CordaFuture<SignedTransaction> future = b.startFlow(new AbandonedReissue(paper));
+        network.runNetwork();
+
+        try {
+            future.get();
+            fail("The owner should have dropped out.");
+        } catch (ExecutionException e) {
+            // Expected.
+        }
+
+        // The issuer notarised the exit as well as the reissue, so the old paper is gone from its books.
+        List<StateAndRef<CommercialPaper.State>> owed = a.transaction(() -> a.getServices().getVaultService().queryBy(CommercialPaper.State.class).getStates());
+        assertEquals(1, owed.size());
+        assertNotEquals(paper.getRef(), owed.get(0).getRef());
+        assertEquals(paper.getState().getData(), owed.get(0).getState().getData());
+    }
+
+    @Test
+    public void maturityFlowRedeemsEveryMaturedPaper() throws Exception {
+        Party issuer = a.getInfo().getLegalIdentities().get(0);
+        CordaFuture<Cash.State> cash = a.startFlow(new SelfIssueCashFlow(DOLLARS(100)));
+        network.runNetwork();
+        cash.get();
+
+        List<StateAndRef<CommercialPaper.State>> papers = new ArrayList<>();
+
+        for (int i = 0; i < 3; i++) {
+            papers.add(issuePaper(issuer, b, Instant.now().plusSeconds(1)));
+        }
+
+        // Let the papers mature.
+        Thread.sleep(1_500);
+
+        // Any one paper's maturity flow redeems them all.
+        CordaFuture<Void> future = a.startFlow(new PaperMaturityFlow(papers.get(0).getRef()));
+        network.runNetwork();
+        future.get();
+
+        assertEquals(0, b.transaction(() -> b.getServices().getVaultService().queryBy(CommercialPaper.State.class).getStates().size()).intValue());
+        assertEquals(30_00L, b.transaction(() -> b.getServices().getVaultService().queryBy(Cash.State.class).getStates().stream()
+                .mapToLong(coin -> coin.getState().getData().getAmount().getQuantity())
+                .sum()).longValue());
+    }
+
+    @Test
+    public void maturityFlowRedeemsThePapersOfEveryHolder() throws Exception {
+        StartedMockNode c = network.createNode();
+        network.runNetwork();
+        Party issuer = a.getInfo().getLegalIdentities().get(0);
+        CordaFuture<Cash.State> cash = a.startFlow(new SelfIssueCashFlow(DOLLARS(100)));
+        network.runNetwork();
+        cash.get();
+
+        List<StateAndRef<CommercialPaper.State>> papers = new ArrayList<>();
+
+        // Interleaved, so that the matured papers don't come back from the vault already sorted by holder.
+        for (int i = 0; i < 3; i++) {
+            papers.add(issuePaper(issuer, b, Instant.now().plusSeconds(1)));
+            papers.add(issuePaper(issuer, c, Instant.now().plusSeconds(1)));
+        }
+
+        // Let the papers mature.
+        Thread.sleep(1_500);
+
+        CordaFuture<Void> future = a.startFlow(new PaperMaturityFlow(papers.get(0).getRef()));
+        network.runNetwork();
+        future.get();
+
+        assertEquals(0, a.transaction(() -> a.getServices().getVaultService().queryBy(CommercialPaper.State.class).getStates().size()).intValue());
+
+        for (StartedMockNode holder : Arrays.asList(b, c)) {
+            assertEquals(0, holder.transaction(() -> holder.getServices().getVaultService().queryBy(CommercialPaper.State.class).getStates().size()).intValue());
+            assertEquals(30_00L, holder.transaction(() -> holder.getServices().getVaultService().queryBy(Cash.State.class).getStates().stream()
+                    .mapToLong(coin -> coin.getState().getData().getAmount().getQuantity())
+                    .sum()).longValue());
+        }
+    }
+
+    @Test
+    public void maturityPassRestoredAfterARestartIsLeftToRun() throws Exception {
+        Party issuer = a.getInfo().getLegalIdentities().get(0);
+
+        // What a pass that had reached a checkpoint leaves behind once the node restarts: the row, but nothing in memory.
+        a.transaction(() -> {
+            a.getServices().withEntityManager(entityManager -> {
+                entityManager.persist(new MaturityPassSchemaV1.PersistentPass(UUID.randomUUID().toString(), Instant.now()));
+            });
+            return null;
+        });
+
+        StateAndRef<CommercialPaper.State> paper = issuePaper(issuer, b, Instant.now().plusSeconds(1));
+
+        // Let the paper mature.
+        Thread.sleep(1_500);
+
+        CordaFuture<Void> future = a.startFlow(new PaperMaturityFlow(paper.getRef()));
+        network.runNetwork();
+        future.get();
+
+        // The restored pass would have redeemed it. This flow only asked it to go round again.
+        assertEquals(1, b.transaction(() -> b.getServices().getVaultService().queryBy(CommercialPaper.State.class).getStates().size()).intValue());
+    }
+
+    /**
+     * Issues a paper straight into the holder's vault, with the notary's signature over the issuance time window. The
+     * issuer keeps a copy, as it would to redeem the paper at maturity.
+     */
+    private StateAndRef<CommercialPaper.State> issuePaper(Party issuer, StartedMockNode holderNode, Instant maturity) {
+        Party holder = holderNode.getInfo().getLegalIdentities().get(0);
+        Instant now = Instant.now();
+        PartyAndReference issuance = issuer.ref(OpaqueBytes.of((byte) 0));
+        TransactionBuilder builder = new TransactionBuilder(network.getDefaultNotaryIdentity());
+        builder.addOutputState(new CommercialPaper.State(issuance, holder, issuedBy(DOLLARS(10), issuance), maturity), CommercialPaper.CP_CONTRACT_ID);
+        builder.addCommand(new CommercialPaper.Commands.Issue(), issuer.getOwningKey());
+        builder.setTimeWindow(TimeWindow.between(now.minusSeconds(1), now.plusMillis(500)));
+
+        SignedTransaction signed = a.transaction(() -> {
+            builder.verify(a.getServices());
+            return a.getServices().signInitialTransaction(builder);
+        });
+        StartedMockNode notary = network.getDefaultNotaryNode();
+        SignedTransaction stx = notary.transaction(() -> notary.getServices().addSignature(signed));
+
+        a.transaction(() -> {
+            a.getServices().recordTransactions(StatesToRecord.ALL_VISIBLE, Collections.singletonList(stx));
+            return null;
+        });
+        holderNode.transaction(() -> {
+            holderNode.getServices().recordTransactions(stx);
+            return null;
+        });
+
+        return stx.getTx().outRef(0);
+    }
+
+    /**
+     * An owner that signs both the exit and the reissue of its paper, then drops out before the issuer sends either
+     * back. Started as a ReissuePaperFlow.Initiator, so the issuer answers it with the usual responder.
+     */
+    public static class AbandonedReissue extends ReissuePaperFlow.Initiator {
+
+        private final StateAndRef<CommercialPaper.State> paper;
+
+        public AbandonedReissue(StateAndRef<CommercialPaper.State> paper) {
+            super(paper);
+            this.paper = paper;
+        }
+
+        @Suspendable
+        @Override
+        public SignedTransaction call() throws FlowException {
+            Party issuer = getServiceHub().getIdentityService().wellKnownPartyFromAnonymous(this.paper.getState().getData().getIssuance().getParty());
+            FlowSession session = initiateFlow(issuer);
+
+            TransactionBuilder exitBuilder = new TransactionBuilder(this.paper.getState().getNotary());
+            new CommercialPaper().generateExit(exitBuilder, this.paper);
+            subFlow(new CollectSignaturesFlow(getServiceHub().signInitialTransaction(exitBuilder), Collections.singletonList(session)));
+            subFlow(new SignAnything(session));
+
+            throw new FlowException("The owner dropped out.");
+        }
+    }
+
+    private static class SignAnything extends SignTransactionFlow {
+
+        private SignAnything(FlowSession otherPartySession) {
+            super(otherPartySession);
+        }
+
+        @Override
+        protected void checkTransaction(SignedTransaction stx) {
+        }
+    }
 }
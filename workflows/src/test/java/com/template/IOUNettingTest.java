@@ -0,0 +1,83 @@
+package com.template;
+
+import com.google.common.collect.ImmutableList;
+import com.template.flows.IOUFlow;
+import com.template.flows.IOUNettingFlow;
+import com.template.states.IOUState;
+import net.corda.core.concurrent.CordaFuture;
+import net.corda.core.contracts.StateAndRef;
+import net.corda.core.identity.CordaX500Name;
+import net.corda.core.identity.Party;
+import net.corda.core.transactions.SignedTransaction;
+import net.corda.testing.node.MockNetwork;
+import net.corda.testing.node.MockNetworkNotarySpec;
+import net.corda.testing.node.MockNetworkParameters;
+import net.corda.testing.node.StartedMockNode;
+import net.corda.testing.node.TestCordapp;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Netting on a network with several notaries. IOUs issued either way between two parties must all land on one notary,
+ * or netting can't bring them down to a single IOU.
+ */
+public class IOUNettingTest {
+    private final MockNetwork network = new MockNetwork(new MockNetworkParameters(ImmutableList.of(
+        TestCordapp.findCordapp("com.template.contracts"),
+        TestCordapp.findCordapp("com.template.flows")
+    )).withNotarySpecs(Arrays.asList(
+        new MockNetworkNotarySpec(new CordaX500Name("NotaryA", "London", "GB")),
+        new MockNetworkNotarySpec(new CordaX500Name("NotaryB", "London", "GB")),
+        new MockNetworkNotarySpec(new CordaX500Name("NotaryC", "London", "GB"))
+    )));
+    private final StartedMockNode a = network.createNode();
+    private final StartedMockNode b = network.createNode();
+
+    @Before
+    public void setup() {
+        network.runNetwork();
+    }
+
+    @After
+    public void tearDown() {
+        network.stopNodes();
+    }
+
+    @Test
+    public void iousIssuedEitherWayNetToOne() throws Exception {
+        Party aParty = a.getInfo().getLegalIdentities().get(0);
+        Party bParty = b.getInfo().getLegalIdentities().get(0);
+        List<CordaFuture<SignedTransaction>> issued = new ArrayList<>();
+
+        // One transaction each, so choosing a notary per transaction rather than per pair would spread them over all three.
+        for (int i = 1; i <= 6; i++) {
+            issued.add(a.startFlow(new IOUFlow(Collections.singletonList(10 * i), bParty)));
+            issued.add(b.startFlow(new IOUFlow(Collections.singletonList(i), aParty)));
+        }
+
+        network.runNetwork();
+
+        for (CordaFuture<SignedTransaction> future : issued) {
+            future.get();
+        }
+
+        CordaFuture<IOUNettingFlow.Result> netting = b.startFlow(new IOUNettingFlow.Initiator(aParty, 4));
+        network.runNetwork();
+        netting.get();
+
+        for (StartedMockNode node : Arrays.asList(a, b)) {
+            List<StateAndRef<IOUState>> states = node.transaction(() -> node.getServices().getVaultService().queryBy(IOUState.class).getStates());
+            assertEquals(1, states.size());
+            assertEquals(210 - 21, states.get(0).getState().getData().getValue());
+            assertEquals(aParty, states.get(0).getState().getData().getLender());
+        }
+    }
+}
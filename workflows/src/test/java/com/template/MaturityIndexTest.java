@@ -0,0 +1,108 @@
+package com.template;
+
+import com.template.contracts.CommercialPaper;
+import com.template.contracts.DummyContract;
+import com.template.services.MaturityIndex;
+import com.template.services.PaperPosition;
+import net.corda.core.contracts.Amount;
+import net.corda.core.contracts.Issued;
+import net.corda.core.contracts.PartyAndReference;
+import net.corda.core.contracts.StateRef;
+import net.corda.core.crypto.SecureHash;
+import net.corda.core.identity.CordaX500Name;
+import net.corda.core.identity.Party;
+import net.corda.core.utilities.OpaqueBytes;
+import net.corda.testing.core.TestIdentity;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Currency;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MaturityIndexTest {
+    private final Party issuer = new TestIdentity(new CordaX500Name("Issuer", "London", "GB")).getParty();
+    private final Party alice = new TestIdentity(new CordaX500Name("Alice", "London", "GB")).getParty();
+    private final Party bob = new TestIdentity(new CordaX500Name("Bob", "New York", "US")).getParty();
+    private final PartyAndReference issuance = issuer.ref(OpaqueBytes.of((byte) 1));
+    private final LocalDate monday = LocalDate.of(2019, 6, 3);
+    private final MaturityIndex index = new MaturityIndex();
+
+    private CommercialPaper.State paper(Party owner, long dollars, LocalDate maturity) {
+        return new CommercialPaper.State(this.issuance, owner, amount(dollars, "USD"), at(maturity));
+    }
+
+    private Amount<Issued<Currency>> amount(long units, String currency) {
+        return new Amount<>(units * 100, new Issued<>(this.issuance, Currency.getInstance(currency)));
+    }
+
+    private static Instant at(LocalDate day) {
+        return day.atTime(12, 0).toInstant(ZoneOffset.UTC);
+    }
+
+    private static StateRef ref(int i) {
+        return new StateRef(SecureHash.sha256("tx" + i), 0);
+    }
+
+    private static List<StateRef> refs(List<PaperPosition> positions) {
+        return positions.stream().map(PaperPosition::getRef).collect(Collectors.toList());
+    }
+
+    private static Set<StateRef> refSet(List<PaperPosition> positions) {
+        return new HashSet<>(refs(positions));
+    }
+
+    @Test
+    public void maturingBetweenIncludesBothEnds() {
+        index.add(ref(1), paper(alice, 10, monday.minusDays(1)));
+        index.add(ref(2), paper(alice, 10, monday));
+        index.add(ref(3), paper(bob, 10, monday.plusDays(4)));
+        index.add(ref(4), paper(alice, 10, monday.plusDays(5)));
+
+        assertEquals(new HashSet<>(Arrays.asList(ref(2), ref(3))), refSet(index.maturingBetween(monday, monday.plusDays(4))));
+    }
+
+    @Test
+    public void maturingBetweenForOneOwner() {
+        index.add(ref(1), paper(alice, 10, monday));
+        index.add(ref(2), paper(bob, 10, monday));
+        index.add(ref(3), paper(alice, 10, monday.plusDays(2)));
+
+        assertEquals(new HashSet<>(Arrays.asList(ref(1), ref(3))), refSet(index.maturingBetween(monday, monday.plusDays(6), alice)));
+        assertTrue(index.maturingBetween(monday, monday.plusDays(6), issuer).isEmpty());
+    }
+
+    @Test
+    public void removedPapersLeaveTheIndex() {
+        CommercialPaper.State first = paper(alice, 10, monday);
+        index.add(ref(1), first);
+        index.add(ref(2), paper(alice, 20, monday));
+        index.remove(ref(1), first);
+        index.remove(ref(1), first);
+
+        assertEquals(1, index.size());
+        assertEquals(Collections.singletonList(ref(2)), refs(index.largest("USD", 10)));
+    }
+
+    @Test
+    public void largestIsPerCurrencyAndLargestFirst() {
+        index.add(ref(1), paper(alice, 10, monday));
+        index.add(ref(2), paper(bob, 30, monday.plusDays(1)));
+        index.add(ref(3), new DummyContract.State(this.issuance, alice, amount(20, "USD"), at(monday)));
+        index.add(ref(4), new CommercialPaper.State(this.issuance, bob, amount(50, "GBP"), at(monday)));
+
+        List<PaperPosition> largest = index.largest("USD", 2);
+        assertEquals(Arrays.asList(ref(2), ref(3)), refs(largest));
+        assertEquals("DummyContract", largest.get(1).getContract());
+        assertEquals(Collections.singletonList(ref(4)), refs(index.largest("GBP", 5)));
+    }
+}
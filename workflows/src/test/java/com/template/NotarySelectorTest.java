@@ -0,0 +1,70 @@
+package com.template;
+
+import com.google.common.collect.ImmutableList;
+import com.template.services.NotarySelector;
+import net.corda.core.identity.CordaX500Name;
+import net.corda.core.identity.Party;
+import net.corda.testing.core.TestIdentity;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class NotarySelectorTest {
+    private final List<Party> notaries = ImmutableList.of(
+            new TestIdentity(new CordaX500Name("NotaryA", "London", "GB")).getParty(),
+            new TestIdentity(new CordaX500Name("NotaryB", "London", "GB")).getParty(),
+            new TestIdentity(new CordaX500Name("NotaryC", "London", "GB")).getParty()
+    );
+
+    @Test
+    public void choosesTheSameNotaryForTheSameKey() {
+        Party first = NotarySelector.select(this.notaries, "issuer");
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(first, NotarySelector.select(this.notaries, "issuer"));
+        }
+    }
+
+    @Test
+    public void pairKeyIsTheSameEitherWayRound() {
+        Party alice = new TestIdentity(new CordaX500Name("Alice", "London", "GB")).getParty();
+        Party bob = new TestIdentity(new CordaX500Name("Bob", "New York", "US")).getParty();
+
+        assertEquals(NotarySelector.pairKey(alice, bob), NotarySelector.pairKey(bob, alice));
+        assertEquals(
+                NotarySelector.select(this.notaries, NotarySelector.pairKey(alice, bob)),
+                NotarySelector.select(this.notaries, NotarySelector.pairKey(bob, alice))
+        );
+    }
+
+    @Test
+    public void keysAreSpreadOverEveryNotary() {
+        Map<Party, Integer> counts = new HashMap<>();
+
+        for (int key = 0; key < 3_000; key++) {
+            counts.merge(NotarySelector.select(this.notaries, key), 1, Integer::sum);
+        }
+
+        for (Party notary : this.notaries) {
+            assertTrue(notary + " got " + counts.get(notary), counts.getOrDefault(notary, 0) > 800);
+        }
+    }
+
+    @Test
+    public void onlyTheKeysOfARemovedNotaryMove() {
+        List<Party> remaining = this.notaries.subList(0, 2);
+
+        for (int key = 0; key < 1_000; key++) {
+            Party before = NotarySelector.select(this.notaries, key);
+
+            if (remaining.contains(before)) {
+                assertEquals(before, NotarySelector.select(remaining, key));
+            }
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.template;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.template.contracts.CommercialPaper;
+import com.template.flows.RedeemPaperFlow;
+import com.template.flows.SelfIssueSplitCashFlow;
+import net.corda.core.concurrent.CordaFuture;
+import net.corda.core.contracts.Amount;
+import net.corda.core.contracts.Issued;
+import net.corda.core.contracts.PartyAndReference;
+import net.corda.core.contracts.StateAndRef;
+import net.corda.core.contracts.StateRef;
+import net.corda.core.contracts.TimeWindow;
+import net.corda.core.identity.Party;
+import net.corda.core.node.StatesToRecord;
+import net.corda.core.transactions.SignedTransaction;
+import net.corda.core.transactions.TransactionBuilder;
+import net.corda.core.utilities.OpaqueBytes;
+import net.corda.finance.contracts.asset.Cash;
+import net.corda.testing.node.MockNetwork;
+import net.corda.testing.node.MockNetworkParameters;
+import net.corda.testing.node.StartedMockNode;
+import net.corda.testing.node.TestCordapp;
+import org.junit.After;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Currency;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static net.corda.finance.Currencies.DOLLARS;
+import static net.corda.finance.Currencies.issuedBy;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 100 redemptions started at once against 25 coins. Every coin is wanted by four flows, so most redemptions find
+ * their coins locked at least once and have to back off and try again. Also a single redemption that pays several
+ * owners, which has to take a different coin for each.
+ */
+public class RedemptionConcurrencyTest {
+    private static final int REDEMPTIONS = 100;
+    private static final int COINS = 25;
+
+    // A thread per node and automatic delivery, so that the flows really do overlap and can sleep between attempts.
+    private final MockNetwork network = new MockNetwork(new MockNetworkParameters(ImmutableList.of(
+        TestCordapp.findCordapp("com.template.contracts"),
+        // The test redeems the papers itself, so the scheduled maturity processing must keep out of the way.
+        TestCordapp.findCordapp("com.template.flows").withConfig(ImmutableMap.of("maturity.autoRedeem", false)),
+        TestCordapp.findCordapp("net.corda.finance.contracts")
+    )).withThreadPerNode(true).withNetworkSendManuallyPumped(false));
+    private final StartedMockNode issuer = network.createNode();
+    private final StartedMockNode holder = network.createNode();
+
+    @After
+    public void tearDown() {
+        network.stopNodes();
+    }
+
+    @Test
+    public void concurrentRedemptionsAllSettle() throws Exception {
+        issuer.startFlow(new SelfIssueSplitCashFlow(DOLLARS(1250), COINS)).get(1, TimeUnit.MINUTES);
+        List<StateAndRef<CommercialPaper.State>> papers = issuePapers(holder, REDEMPTIONS, Duration.ofSeconds(2));
+
+        // Let the papers mature.
+        Thread.sleep(2_500);
+
+        List<CordaFuture<SignedTransaction>> redemptions = new ArrayList<>();
+
+        for (StateAndRef<CommercialPaper.State> paper : papers) {
+            redemptions.add(issuer.startFlow(new RedeemPaperFlow.Initiator(Collections.singletonList(paper))));
+        }
+
+        for (CordaFuture<SignedTransaction> redemption : redemptions) {
+            redemption.get(5, TimeUnit.MINUTES);
+        }
+
+        assertEquals(0, holder.transaction(() -> holder.getServices().getVaultService().queryBy(CommercialPaper.State.class).getStates().size()).intValue());
+        assertEquals(1000_00L, cashTotal(holder));
+        assertEquals(250_00L, cashTotal(issuer));
+    }
+
+    @Test
+    public void oneRedemptionPaysSeveralOwners() throws Exception {
+        StartedMockNode otherHolder = network.createNode();
+
+        // Four $25 coins. Each owner's $10 is paid out of a coin of its own, with $15 change each time.
+        issuer.startFlow(new SelfIssueSplitCashFlow(DOLLARS(100), 4)).get(1, TimeUnit.MINUTES);
+        List<StateAndRef<CommercialPaper.State>> papers = new ArrayList<>(issuePapers(holder, 1, Duration.ofSeconds(2)));
+        papers.addAll(issuePapers(otherHolder, 1, Duration.ofSeconds(2)));
+
+        // Let the papers mature.
+        Thread.sleep(2_500);
+
+        SignedTransaction redemption = issuer.startFlow(new RedeemPaperFlow.Initiator(papers)).get(1, TimeUnit.MINUTES);
+        List<StateRef> inputs = redemption.getTx().getInputs();
+
+        assertEquals(4, inputs.size());
+        assertEquals(inputs.size(), new HashSet<>(inputs).size());
+        assertEquals(10_00L, cashTotal(holder));
+        assertEquals(10_00L, cashTotal(otherHolder));
+        assertEquals(80_00L, cashTotal(issuer));
+    }
+
+    /**
+     * Issues the papers straight into both vaults in one transaction, rather than through a flow this CorDapp doesn't
+     * have. The notary's signature covers the issuance time window, and the issuer keeps a copy so that it can spend
+     * the papers as inputs.
+     */
+    private List<StateAndRef<CommercialPaper.State>> issuePapers(StartedMockNode holderNode, int count, Duration maturity) {
+        Party issuerParty = issuer.getInfo().getLegalIdentities().get(0);
+        Party holderParty = holderNode.getInfo().getLegalIdentities().get(0);
+        Instant now = Instant.now();
+        PartyAndReference issuance = issuerParty.ref(OpaqueBytes.of((byte) 0));
+        Amount<Issued<Currency>> faceValue = issuedBy(DOLLARS(10), issuance);
+        TransactionBuilder builder = new TransactionBuilder(network.getDefaultNotaryIdentity());
+
+        for (int i = 0; i < count; i++) {
+            builder.addOutputState(new CommercialPaper.State(issuance, holderParty, faceValue, now.plus(maturity)), CommercialPaper.CP_CONTRACT_ID);
+        }
+
+        builder.addCommand(new CommercialPaper.Commands.Issue(), issuerParty.getOwningKey());
+        builder.setTimeWindow(TimeWindow.between(now.minusSeconds(1), now.plusMillis(500)));
+
+        SignedTransaction signed = issuer.transaction(() -> {
+            builder.verify(issuer.getServices());
+            return issuer.getServices().signInitialTransaction(builder);
+        });
+        StartedMockNode notary = network.getDefaultNotaryNode();
+        SignedTransaction stx = notary.transaction(() -> notary.getServices().addSignature(signed));
+
+        issuer.transaction(() -> {
+            issuer.getServices().recordTransactions(StatesToRecord.ALL_VISIBLE, Collections.singletonList(stx));
+            return null;
+        });
+        holderNode.transaction(() -> {
+            holderNode.getServices().recordTransactions(stx);
+            return null;
+        });
+
+        List<StateAndRef<CommercialPaper.State>> papers = new ArrayList<>();
+
+        for (int i = 0; i < count; i++) {
+            papers.add(stx.getTx().outRef(i));
+        }
+
+        return papers;
+    }
+
+    private static long cashTotal(StartedMockNode node) {
+        return node.transaction(() -> node.getServices().getVaultService().queryBy(Cash.State.class).getStates().stream()
+                .mapToLong(coin -> coin.getState().getData().getAmount().getQuantity())
+                .sum());
+    }
+}